@@ -19,6 +19,11 @@ android {
         jvmTarget = JavaVersion.VERSION_11.toString()
     }
 
+    testOptions {
+        // Local unit tests run against the stub android.jar, let android.util.Log and friends return defaults
+        unitTests.isReturnDefaultValues = true
+    }
+
     defaultConfig {
         // TODO: Specify your own unique Application ID (https://developer.android.com/studio/build/application-id.html).
         applicationId = "com.pos.mts"
@@ -56,6 +61,8 @@ dependencies {
     implementation(files("libs/IminLibs1.0.15.jar"))
     testImplementation("junit:junit:4.13.2")
     testImplementation("org.mockito:mockito-core:5.0.0")
+    // The stub android.jar has no working org.json, ColumnRows still parses legacy JSON rows
+    testImplementation("org.json:json:20231013")
     implementation("io.reactivex.rxjava2:rxandroid:2.0.1")
     implementation(files("libs/IminStraElectronicSDK_V1.2.jar"))
     implementation("androidx.multidex:multidex:2.0.1")
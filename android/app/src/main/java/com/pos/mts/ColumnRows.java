@@ -0,0 +1,117 @@
+package com.pos.mts;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.List;
+
+/**
+ * Decodes column rows for printColumnsText, printColumnsString and printColumnsTable.
+ * A row is a list of columns and each column is a list [text, width, align, fontSize], as sent
+ * by StandardMessageCodec; the older JSON string form is still accepted. Columns are copied
+ * straight into primitive arrays that are kept per column count and reused for every row,
+ * so an itemised receipt does not allocate per line. The SDKs copy the arrays during the call.
+ */
+class ColumnRows {
+    interface RowPrinter {
+        void print(String[] text, int[] width, int[] align, int[] fontSize) throws Exception;
+    }
+
+    private static final int TEXT = 0;
+    private static final int WIDTH = 1;
+    private static final int ALIGN = 2;
+    private static final int FONT_SIZE = 3;
+
+    // The SDKs take the column count from the array length, so arrays are cached per count
+    private String[][] texts = new String[0][];
+    private int[][] widths = new int[0][];
+    private int[][] aligns = new int[0][];
+    private int[][] fontSizes = new int[0][];
+
+    /**
+     * Print one row given as a list of columns or as the legacy JSON string
+     */
+    synchronized void printRow(Object cols, RowPrinter printer) throws Exception {
+        if (cols instanceof String) {
+            printJsonRow((String) cols, printer);
+        } else if (cols instanceof List) {
+            printListRow((List<?>) cols, printer);
+        } else {
+            throw new IllegalArgumentException("cols must be a list of columns or a JSON string");
+        }
+    }
+
+    /**
+     * Print every row of a table in order, returns the number of rows printed
+     */
+    synchronized int printRows(List<?> rows, RowPrinter printer) throws Exception {
+        for (int i = 0; i < rows.size(); i++) {
+            Object row = rows.get(i);
+            if (!(row instanceof List)) {
+                throw new IllegalArgumentException("Row " + i + " is not a list of columns");
+            }
+            printListRow((List<?>) row, printer);
+        }
+        return rows.size();
+    }
+
+    private void printListRow(List<?> cols, RowPrinter printer) throws Exception {
+        int count = cols.size();
+        ensureCapacity(count);
+        String[] text = texts[count];
+        int[] width = widths[count];
+        int[] align = aligns[count];
+        int[] fontSize = fontSizes[count];
+        for (int i = 0; i < count; i++) {
+            List<?> col = (List<?>) cols.get(i);
+            Object value = col.get(TEXT);
+            text[i] = value != null ? value.toString() : "";
+            width[i] = ((Number) col.get(WIDTH)).intValue();
+            align[i] = ((Number) col.get(ALIGN)).intValue();
+            fontSize[i] = ((Number) col.get(FONT_SIZE)).intValue();
+        }
+        printer.print(text, width, align, fontSize);
+    }
+
+    private void printJsonRow(String json, RowPrinter printer) throws Exception {
+        JSONArray cols = new JSONArray(json);
+        int count = cols.length();
+        ensureCapacity(count);
+        String[] text = texts[count];
+        int[] width = widths[count];
+        int[] align = aligns[count];
+        int[] fontSize = fontSizes[count];
+        for (int i = 0; i < count; i++) {
+            JSONObject col = cols.getJSONObject(i);
+            text[i] = col.getString("text");
+            width[i] = col.getInt("width");
+            align[i] = col.getInt("align");
+            fontSize[i] = col.getInt("fontSize");
+        }
+        printer.print(text, width, align, fontSize);
+    }
+
+    private void ensureCapacity(int count) {
+        if (count >= texts.length) {
+            int size = Math.max(count + 1, texts.length * 2);
+            String[][] grownTexts = new String[size][];
+            int[][] grownWidths = new int[size][];
+            int[][] grownAligns = new int[size][];
+            int[][] grownFontSizes = new int[size][];
+            System.arraycopy(texts, 0, grownTexts, 0, texts.length);
+            System.arraycopy(widths, 0, grownWidths, 0, widths.length);
+            System.arraycopy(aligns, 0, grownAligns, 0, aligns.length);
+            System.arraycopy(fontSizes, 0, grownFontSizes, 0, fontSizes.length);
+            texts = grownTexts;
+            widths = grownWidths;
+            aligns = grownAligns;
+            fontSizes = grownFontSizes;
+        }
+        if (texts[count] == null) {
+            texts[count] = new String[count];
+            widths[count] = new int[count];
+            aligns[count] = new int[count];
+            fontSizes[count] = new int[count];
+        }
+    }
+}
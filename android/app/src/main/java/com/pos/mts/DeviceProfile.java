@@ -0,0 +1,62 @@
+package com.pos.mts;
+
+import android.os.Build;
+
+import com.imin.printerlib.IminPrintUtils;
+
+/**
+ * What the printer code needs to know about the device, resolved once per process by
+ * {@link Utils#getDeviceProfile()}: the iMin model name, which printer SDK drives it and,
+ * for SDK 1.0 devices, how the printer is connected.
+ */
+public final class DeviceProfile {
+    public enum SdkGeneration {
+        SDK1("1.0.0"),
+        SDK2("2.0.0");
+
+        public final String version;
+
+        SdkGeneration(String version) {
+            this.version = version;
+        }
+    }
+
+    public final String model;
+    public final String buildModel;
+    public final String buildDevice;
+    public final SdkGeneration sdkGeneration;
+    // Only meaningful for SDK 1.0, null on SDK 2.0 devices
+    public final IminPrintUtils.PrintConnectType connectType;
+
+    private DeviceProfile(String model, String buildModel, String buildDevice, SdkGeneration sdkGeneration,
+            IminPrintUtils.PrintConnectType connectType) {
+        this.model = model;
+        this.buildModel = buildModel;
+        this.buildDevice = buildDevice;
+        this.sdkGeneration = sdkGeneration;
+        this.connectType = connectType;
+    }
+
+    static DeviceProfile resolve(String model) {
+        String buildModel = Build.MODEL != null ? Build.MODEL : "";
+        SdkGeneration sdkGeneration = buildModel.contains("I23D") || buildModel.contains("I23M")
+                || buildModel.contains("I24D") || buildModel.contains("I24T") || buildModel.contains("I24M")
+                ? SdkGeneration.SDK2 : SdkGeneration.SDK1;
+        IminPrintUtils.PrintConnectType connectType = null;
+        if (sdkGeneration == SdkGeneration.SDK1) {
+            connectType = model.contains("M2-203") || model.contains("M2-202") || model.contains("M2-Pro")
+                    ? IminPrintUtils.PrintConnectType.SPI : IminPrintUtils.PrintConnectType.USB;
+        }
+        return new DeviceProfile(model, buildModel, Build.DEVICE, sdkGeneration, connectType);
+    }
+
+    public boolean isSdk2() {
+        return sdkGeneration == SdkGeneration.SDK2;
+    }
+
+    @Override
+    public String toString() {
+        return "DeviceProfile{model=" + model + ", buildModel=" + buildModel + ", buildDevice=" + buildDevice
+                + ", sdk=" + sdkGeneration + ", connectType=" + connectType + "}";
+    }
+}
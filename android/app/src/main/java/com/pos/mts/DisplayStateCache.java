@@ -0,0 +1,242 @@
+package com.pos.mts;
+
+import android.hardware.display.DisplayManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.Display;
+
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Attached displays, read from DisplayManager once and then kept current by a DisplayListener.
+ * listDisplay is answered from here: the JSON string is built once per change and reused.
+ * Hot-plug callbacks are debounced and listeners only see the net change per display. A display
+ * that drops and comes back within DEBOUNCE_MS gets a new id from Android; the two are paired
+ * up by name and reported as one "reconnected" event instead of a removal and an addition.
+ * Main thread only.
+ */
+public class DisplayStateCache {
+    private static final String TAG = "DisplayStateCache";
+    static final long DEBOUNCE_MS = 300;
+
+    public interface Listener {
+        /**
+         * Debounced change: "added", "changed" or "reconnected" with the new state, "removed" with the
+         * last known state. previous is the state before the change, null for "added".
+         */
+        void onDisplayEvent(String type, Info display, Info previous);
+    }
+
+    /**
+     * Snapshot of one display
+     */
+    public static class Info {
+        public final int id;
+        public final int flags;
+        public final int rotation;
+        public final String name;
+        public final int width;
+        public final int height;
+        public final float refreshRate;
+
+        Info(Display display) {
+            this.id = display.getDisplayId();
+            this.flags = display.getFlags();
+            this.rotation = display.getRotation();
+            this.name = display.getName();
+            Display.Mode mode = display.getMode();
+            this.width = mode.getPhysicalWidth();
+            this.height = mode.getPhysicalHeight();
+            this.refreshRate = display.getRefreshRate();
+        }
+
+        public boolean isPresentation() {
+            return (flags & Display.FLAG_PRESENTATION) != 0;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("id", id);
+            map.put("flags", flags);
+            map.put("rotation", rotation);
+            map.put("name", name);
+            map.put("width", width);
+            map.put("height", height);
+            map.put("refreshRate", (double) refreshRate);
+            return map;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Info)) {
+                return false;
+            }
+            Info other = (Info) o;
+            return id == other.id && flags == other.flags && rotation == other.rotation
+                    && width == other.width && height == other.height
+                    && Float.compare(refreshRate, other.refreshRate) == 0 && Objects.equals(name, other.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, flags, rotation, name, width, height, refreshRate);
+        }
+    }
+
+    private final DisplayManager displayManager;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final LinkedHashMap<Integer, Info> displays = new LinkedHashMap<>();
+    private final List<Listener> listeners = new ArrayList<>();
+    // State of each changed display before the current debounce window, null if it was not attached
+    private final HashMap<Integer, Info> before = new HashMap<>();
+    private final Runnable dispatch = this::dispatch;
+    private String allJson;
+    private String presentationJson;
+
+    private final DisplayManager.DisplayListener displayListener = new DisplayManager.DisplayListener() {
+        @Override
+        public void onDisplayAdded(int displayId) {
+            update(displayId);
+        }
+
+        @Override
+        public void onDisplayRemoved(int displayId) {
+            update(displayId);
+        }
+
+        @Override
+        public void onDisplayChanged(int displayId) {
+            update(displayId);
+        }
+    };
+
+    public DisplayStateCache(DisplayManager displayManager) {
+        this.displayManager = displayManager;
+        for (Display display : displayManager.getDisplays()) {
+            displays.put(display.getDisplayId(), new Info(display));
+        }
+        displayManager.registerDisplayListener(displayListener, handler);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public Info get(int displayId) {
+        return displays.get(displayId);
+    }
+
+    public List<Info> list() {
+        return new ArrayList<>(displays.values());
+    }
+
+    /**
+     * listDisplay payload: a JSON array of {a: id, b: flags, c: rotation, d: name}, all strings.
+     * category is null for every display or DisplayManager.DISPLAY_CATEGORY_PRESENTATION.
+     */
+    public String listJson(String category) {
+        boolean presentationOnly = DisplayManager.DISPLAY_CATEGORY_PRESENTATION.equals(category);
+        if (presentationOnly) {
+            if (presentationJson == null) {
+                presentationJson = toJson(true);
+            }
+            return presentationJson;
+        }
+        if (allJson == null) {
+            allJson = toJson(false);
+        }
+        return allJson;
+    }
+
+    public void close() {
+        displayManager.unregisterDisplayListener(displayListener);
+        handler.removeCallbacks(dispatch);
+        listeners.clear();
+    }
+
+    private void update(int displayId) {
+        if (!before.containsKey(displayId)) {
+            before.put(displayId, displays.get(displayId));
+        }
+        Display display = displayManager.getDisplay(displayId);
+        if (display != null) {
+            displays.put(displayId, new Info(display));
+        } else {
+            displays.remove(displayId);
+        }
+        allJson = null;
+        presentationJson = null;
+        handler.removeCallbacks(dispatch);
+        handler.postDelayed(dispatch, DEBOUNCE_MS);
+    }
+
+    private void dispatch() {
+        List<Info> added = new ArrayList<>();
+        List<Info> removed = new ArrayList<>();
+        for (Map.Entry<Integer, Info> entry : before.entrySet()) {
+            Info previous = entry.getValue();
+            Info current = displays.get(entry.getKey());
+            if (previous == null && current != null) {
+                added.add(current);
+            } else if (previous != null && current == null) {
+                removed.add(previous);
+            } else if (previous != null && !previous.equals(current)) {
+                notifyListeners("changed", current, previous);
+            }
+        }
+        before.clear();
+        for (Info display : added) {
+            Info previous = takeByName(removed, display.name);
+            notifyListeners(previous != null ? "reconnected" : "added", display, previous);
+        }
+        for (Info display : removed) {
+            notifyListeners("removed", display, display);
+        }
+    }
+
+    private static Info takeByName(List<Info> displays, String name) {
+        for (int i = 0; i < displays.size(); i++) {
+            if (Objects.equals(displays.get(i).name, name)) {
+                return displays.remove(i);
+            }
+        }
+        return null;
+    }
+
+    private void notifyListeners(String type, Info display, Info previous) {
+        Log.d(TAG, "Display " + display.id + " " + type);
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.onDisplayEvent(type, display, previous);
+        }
+    }
+
+    private String toJson(boolean presentationOnly) {
+        StringBuilder json = new StringBuilder("[");
+        for (Info display : displays.values()) {
+            if (presentationOnly && !display.isPresentation()) {
+                continue;
+            }
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append("{\"a\":").append(JSONObject.quote(String.valueOf(display.id)))
+                    .append(",\"b\":").append(JSONObject.quote(String.valueOf(display.flags)))
+                    .append(",\"c\":").append(JSONObject.quote(String.valueOf(display.rotation)))
+                    .append(",\"d\":").append(JSONObject.quote(display.name))
+                    .append('}');
+        }
+        return json.append(']').toString();
+    }
+}
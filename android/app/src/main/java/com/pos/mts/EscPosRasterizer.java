@@ -0,0 +1,547 @@
+package com.pos.mts;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.os.SystemClock;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Converts images into ESC/POS "GS v 0" raster bit images for USB thermal printers.
+ * The image is fitted to the paper dot width, converted to luminance row by row and
+ * dithered to 1 bit. Inner loops only work on preallocated int[] rows.
+ * Tall images are dithered by several cores at once as a row wavefront, and finished
+ * bands can be streamed to the printer while the rest of the image is still being dithered.
+ */
+public class EscPosRasterizer {
+    public static final int PAPER_58MM_DOTS = 384;
+    public static final int PAPER_80MM_DOTS = 576;
+    public static final int DEFAULT_THRESHOLD = 128;
+
+    // Rows per GS v 0 command, keeps each command well inside printer buffer limits
+    static final int BAND_ROWS = 256;
+    static final int HEADER_SIZE = 8;
+    // Error rows are padded on both sides so diffusion never needs bounds checks
+    static final int ERROR_PADDING = 2;
+    // Images shorter than this are dithered on the calling thread, the fan out costs more than it saves
+    static final int PARALLEL_MIN_ROWS = BAND_ROWS * 2;
+    // Columns a row stays behind the row above it, so it only reads finished error and never
+    // adds into the same cell as the row above (diffusion reaches at most two columns right)
+    static final int WAVEFRONT_LAG = 4;
+    // Rows publish how far they got every PROGRESS_STEP columns
+    static final int PROGRESS_STEP = 32;
+    private static final int SPINS_BEFORE_PARK = 64;
+    private static final long PARK_NANOS = 20_000;
+
+    // Shared by all conversions so concurrent jobs never oversubscribe the cores
+    private static final ForkJoinPool DITHER_POOL = new ForkJoinPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * Receives finished GS v 0 commands in band order while the rest of the image is dithered
+     */
+    public interface BandSink {
+        void onBand(byte[] raster, int offset, int length, int totalLength) throws Exception;
+    }
+
+    public enum Dither {
+        THRESHOLD, FLOYD_STEINBERG, ATKINSON;
+
+        public static Dither fromName(String name) {
+            if (name == null) {
+                return FLOYD_STEINBERG;
+            }
+            switch (name.toLowerCase()) {
+                case "threshold":
+                case "none":
+                    return THRESHOLD;
+                case "atkinson":
+                    return ATKINSON;
+                default:
+                    return FLOYD_STEINBERG;
+            }
+        }
+    }
+
+    private EscPosRasterizer() {
+    }
+
+    /**
+     * Decode an encoded image (PNG, JPEG, ...) and convert it to GS v 0 raster bytes
+     */
+    public static byte[] rasterize(byte[] encodedImage, int paperWidth, Dither dither, int threshold) {
+        Bitmap bitmap = BitmapFactory.decodeByteArray(encodedImage, 0, encodedImage.length);
+        if (bitmap == null) {
+            throw new IllegalArgumentException("Unable to decode image data");
+        }
+        try {
+            return rasterize(bitmap, paperWidth, dither, threshold);
+        } finally {
+            bitmap.recycle();
+        }
+    }
+
+    public static byte[] rasterize(Bitmap source, int paperWidth, Dither dither, int threshold) {
+        try {
+            return rasterize(source, paperWidth, dither, threshold, null);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            // Only a sink can throw checked exceptions and there is none here
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Decode an encoded image and stream its GS v 0 bands to sink as they finish
+     */
+    public static byte[] rasterize(byte[] encodedImage, int paperWidth, Dither dither, int threshold,
+            BandSink sink) throws Exception {
+        Bitmap bitmap = BitmapFactory.decodeByteArray(encodedImage, 0, encodedImage.length);
+        if (bitmap == null) {
+            throw new IllegalArgumentException("Unable to decode image data");
+        }
+        try {
+            return rasterize(bitmap, paperWidth, dither, threshold, sink);
+        } finally {
+            bitmap.recycle();
+        }
+    }
+
+    /**
+     * Convert the bitmap and hand each finished band to sink (if any) before the next one is done.
+     * Returns the whole raster, the bytes passed to sink are slices of it.
+     */
+    public static byte[] rasterize(Bitmap source, int paperWidth, Dither dither, int threshold, BandSink sink)
+            throws Exception {
+        Bitmap fitted = fitToPaper(source, paperWidth);
+        try {
+            boolean parallel = fitted.getHeight() >= PARALLEL_MIN_ROWS && DITHER_POOL.getParallelism() > 1;
+            return rasterizeFitted(fitted, dither, threshold, sink, parallel);
+        } finally {
+            if (fitted != source) {
+                fitted.recycle();
+            }
+        }
+    }
+
+    // Convert a bitmap that already spans the paper width, on the wavefront or on the calling thread
+    static byte[] rasterizeFitted(Bitmap fitted, Dither dither, int threshold, BandSink sink, boolean parallel)
+            throws Exception {
+        int width = fitted.getWidth();
+        int height = fitted.getHeight();
+        int bytesPerRow = (width + 7) / 8;
+        byte[] out = new byte[rasterSize(bytesPerRow, height)];
+
+        for (int bandStart = 0; bandStart < height; bandStart += BAND_ROWS) {
+            writeHeader(out, bandOffset(bytesPerRow, bandStart), bytesPerRow,
+                    Math.min(BAND_ROWS, height - bandStart));
+        }
+
+        if (parallel) {
+            rasterizeParallel(fitted, out, bytesPerRow, dither, threshold, sink);
+        } else {
+            rasterizeSequential(fitted, out, bytesPerRow, dither, threshold, sink);
+        }
+        return out;
+    }
+
+    private static void rasterizeSequential(Bitmap fitted, byte[] out, int bytesPerRow, Dither dither,
+            int threshold, BandSink sink) throws Exception {
+        int width = fitted.getWidth();
+        int height = fitted.getHeight();
+        int[] row = new int[width];
+        int[][] errors = new int[3][width + ERROR_PADDING * 2];
+
+        for (int bandStart = 0; bandStart < height; bandStart += BAND_ROWS) {
+            int bandRows = Math.min(BAND_ROWS, height - bandStart);
+            int bandOffset = bandOffset(bytesPerRow, bandStart);
+            int offset = bandOffset + HEADER_SIZE;
+
+            for (int y = bandStart; y < bandStart + bandRows; y++) {
+                fitted.getPixels(row, 0, width, 0, y, width, 1);
+                toLuminance(row, width);
+                int[] current = errors[y % 3];
+                int[] next = errors[(y + 1) % 3];
+                int[] afterNext = errors[(y + 2) % 3];
+                ditherRow(row, width, current, next, afterNext, dither, threshold);
+                packRow(row, width, out, offset);
+                // The current error row is reused two rows later
+                Arrays.fill(current, 0);
+                offset += bytesPerRow;
+            }
+            if (sink != null) {
+                sink.onBand(out, bandOffset, HEADER_SIZE + bandRows * bytesPerRow, out.length);
+            }
+        }
+    }
+
+    /**
+     * Error diffusion makes every row depend on the one above, so bands cannot simply be dithered
+     * independently without visible seams. Instead workers claim rows in order and each row trails
+     * the row above by WAVEFRONT_LAG columns, which gives exactly the same output as the sequential
+     * pass while keeping every core busy. The calling thread streams bands as their rows complete.
+     */
+    private static void rasterizeParallel(Bitmap fitted, byte[] out, int bytesPerRow, Dither dither,
+            int threshold, BandSink sink) throws Exception {
+        int height = fitted.getHeight();
+        int workers = Math.min(DITHER_POOL.getParallelism(), height);
+        Wavefront wavefront = new Wavefront(fitted, out, bytesPerRow, dither, threshold, workers);
+        for (int i = 0; i < workers; i++) {
+            DITHER_POOL.execute(wavefront::work);
+        }
+
+        try {
+            for (int bandStart = 0; bandStart < height; bandStart += BAND_ROWS) {
+                int bandRows = Math.min(BAND_ROWS, height - bandStart);
+                for (int y = bandStart; y < bandStart + bandRows; y++) {
+                    wavefront.awaitRowDone(y);
+                }
+                if (sink != null) {
+                    sink.onBand(out, bandOffset(bytesPerRow, bandStart), HEADER_SIZE + bandRows * bytesPerRow,
+                            out.length);
+                }
+            }
+        } finally {
+            // Stops the workers early when the sink failed, and waits until none of them can still read
+            // the bitmap, the caller recycles it as soon as this returns
+            wavefront.cancel();
+            wavefront.awaitWorkers();
+        }
+    }
+
+    /**
+     * Shared state of one parallel conversion
+     */
+    private static final class Wavefront {
+        private final Bitmap bitmap;
+        private final byte[] out;
+        private final int width;
+        private final int height;
+        private final int bytesPerRow;
+        private final Dither dither;
+        private final int threshold;
+        // A row writes error two rows ahead and at most `workers` rows are in flight,
+        // so workers + 3 error rows are enough to never reuse one that is still live
+        private final int[][] errorRing;
+        private final AtomicInteger nextRow = new AtomicInteger();
+        // Number of finished columns per row, width once the row is packed and its error row cleared
+        private final AtomicIntegerArray progress;
+        // Counted down as each worker returns, including workers that start after cancel
+        private final CountDownLatch workersDone;
+        private volatile Throwable failure;
+        private volatile boolean cancelled;
+
+        Wavefront(Bitmap bitmap, byte[] out, int bytesPerRow, Dither dither, int threshold, int workers) {
+            this.bitmap = bitmap;
+            this.out = out;
+            this.width = bitmap.getWidth();
+            this.height = bitmap.getHeight();
+            this.bytesPerRow = bytesPerRow;
+            this.dither = dither;
+            this.threshold = threshold;
+            this.errorRing = new int[workers + 3][width + ERROR_PADDING * 2];
+            this.progress = new AtomicIntegerArray(height);
+            this.workersDone = new CountDownLatch(workers);
+        }
+
+        void work() {
+            int[] row = new int[width];
+            try {
+                int y;
+                while (!cancelled && (y = nextRow.getAndIncrement()) < height) {
+                    processRow(y, row);
+                }
+            } catch (Throwable t) {
+                if (!cancelled) {
+                    failure = t;
+                    cancelled = true;
+                }
+            } finally {
+                workersDone.countDown();
+            }
+        }
+
+        private void processRow(int y, int[] row) {
+            int ring = errorRing.length;
+            int[] current = errorRing[y % ring];
+            int[] next = errorRing[(y + 1) % ring];
+            int[] afterNext = errorRing[(y + 2) % ring];
+            boolean diffuses = dither != Dither.THRESHOLD;
+            if (diffuses && y + 2 >= ring) {
+                // Already finished by construction, the wait only makes its cleared error row visible
+                awaitProgress(y + 2 - ring, width);
+            }
+
+            bitmap.getPixels(row, 0, width, 0, y, width, 1);
+            toLuminance(row, width);
+            for (int from = 0; from < width; from += PROGRESS_STEP) {
+                int to = Math.min(from + PROGRESS_STEP, width);
+                if (diffuses && y > 0) {
+                    awaitProgress(y - 1, Math.min(to - 1 + WAVEFRONT_LAG, width));
+                }
+                ditherSpan(row, from, to, current, next, afterNext, dither, threshold);
+                if (to < width) {
+                    progress.set(y, to);
+                }
+            }
+
+            int band = y / BAND_ROWS;
+            packRow(row, width, out, (band + 1) * HEADER_SIZE + y * bytesPerRow);
+            Arrays.fill(current, 0);
+            progress.set(y, width);
+        }
+
+        private void awaitProgress(int y, int columns) {
+            int spins = 0;
+            while (progress.get(y) < columns) {
+                if (cancelled) {
+                    throw new CancellationException();
+                }
+                if (++spins < SPINS_BEFORE_PARK) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(PARK_NANOS);
+                }
+            }
+        }
+
+        void awaitRowDone(int y) throws Exception {
+            try {
+                awaitProgress(y, width);
+            } catch (CancellationException e) {
+                Throwable cause = failure;
+                if (cause instanceof Exception) {
+                    throw (Exception) cause;
+                }
+                throw new IllegalStateException("Parallel dithering failed", cause);
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+
+        // Not interruptible, returning while a worker still runs would let the bitmap be recycled under it
+        void awaitWorkers() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    workersDone.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Dither a bitmap at its own size into packed MSB-first 1-bit rows (1 = black), for printer
+     * SDKs that take bitmaps rather than raster commands
+     */
+    public static byte[] ditherToBits(Bitmap bitmap, Dither dither, int threshold) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        int bytesPerRow = (width + 7) / 8;
+        byte[] bits = new byte[bytesPerRow * height];
+        int[] row = new int[width];
+        int[][] errors = new int[3][width + ERROR_PADDING * 2];
+        for (int y = 0; y < height; y++) {
+            bitmap.getPixels(row, 0, width, 0, y, width, 1);
+            toLuminance(row, width);
+            int[] current = errors[y % 3];
+            ditherRow(row, width, current, errors[(y + 1) % 3], errors[(y + 2) % 3], dither, threshold);
+            packRow(row, width, bits, y * bytesPerRow);
+            Arrays.fill(current, 0);
+        }
+        return bits;
+    }
+
+    /**
+     * Expand packed 1-bit rows starting at offset back into a black and white bitmap
+     */
+    public static Bitmap bitsToBitmap(byte[] bits, int offset, int width, int height) {
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        int bytesPerRow = (width + 7) / 8;
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            int rowOffset = offset + y * bytesPerRow;
+            for (int x = 0; x < width; x++) {
+                int black = (bits[rowOffset + (x >> 3)] >> (7 - (x & 7))) & 1;
+                row[x] = black == 1 ? Color.BLACK : Color.WHITE;
+            }
+            bitmap.setPixels(row, 0, width, 0, y, width, 1);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Scale images wider than the paper down to the paper width and center narrower
+     * ones, so every raster line spans exactly the printable dots on a white background
+     */
+    static Bitmap fitToPaper(Bitmap source, int paperWidth) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int targetHeight = width > paperWidth ? Math.max(1, Math.round(height * (float) paperWidth / width)) : height;
+        int targetWidth = Math.min(width, paperWidth);
+
+        Bitmap fitted = Bitmap.createBitmap(paperWidth, targetHeight, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(fitted);
+        canvas.drawColor(Color.WHITE);
+        Bitmap scaled = width == targetWidth ? source
+                : Bitmap.createScaledBitmap(source, targetWidth, targetHeight, true);
+        canvas.drawBitmap(scaled, (paperWidth - targetWidth) / 2f, 0, new Paint(Paint.FILTER_BITMAP_FLAG));
+        if (scaled != source) {
+            scaled.recycle();
+        }
+        return fitted;
+    }
+
+    static int rasterSize(int bytesPerRow, int height) {
+        int bands = (height + BAND_ROWS - 1) / BAND_ROWS;
+        return bands * HEADER_SIZE + bytesPerRow * height;
+    }
+
+    // Byte offset of the GS v 0 header for the band starting at bandStart
+    static int bandOffset(int bytesPerRow, int bandStart) {
+        return (bandStart / BAND_ROWS) * HEADER_SIZE + bandStart * bytesPerRow;
+    }
+
+    static void writeHeader(byte[] out, int offset, int bytesPerRow, int rows) {
+        out[offset] = 0x1D;
+        out[offset + 1] = 0x76;
+        out[offset + 2] = 0x30;
+        out[offset + 3] = 0x00;
+        out[offset + 4] = (byte) (bytesPerRow & 0xFF);
+        out[offset + 5] = (byte) ((bytesPerRow >> 8) & 0xFF);
+        out[offset + 6] = (byte) (rows & 0xFF);
+        out[offset + 7] = (byte) ((rows >> 8) & 0xFF);
+    }
+
+    /**
+     * Replace ARGB pixels in place with 0..255 luminance, compositing transparency over white
+     */
+    static void toLuminance(int[] row, int width) {
+        for (int x = 0; x < width; x++) {
+            int argb = row[x];
+            int alpha = argb >>> 24;
+            int lum = (((argb >> 16) & 0xFF) * 299 + ((argb >> 8) & 0xFF) * 587 + (argb & 0xFF) * 114) / 1000;
+            row[x] = (lum * alpha + 255 * (255 - alpha)) / 255;
+        }
+    }
+
+    /**
+     * Dither one luminance row in place: 1 means a black dot, 0 means white.
+     * Error for the following rows is accumulated into next and afterNext.
+     */
+    static void ditherRow(int[] row, int width, int[] current, int[] next, int[] afterNext, Dither dither,
+            int threshold) {
+        ditherSpan(row, 0, width, current, next, afterNext, dither, threshold);
+    }
+
+    // Dither columns [from, to) of a row, lets the parallel path interleave waits with the work
+    static void ditherSpan(int[] row, int from, int to, int[] current, int[] next, int[] afterNext, Dither dither,
+            int threshold) {
+        switch (dither) {
+            case THRESHOLD:
+                for (int x = from; x < to; x++) {
+                    row[x] = row[x] < threshold ? 1 : 0;
+                }
+                break;
+            case FLOYD_STEINBERG:
+                for (int x = from; x < to; x++) {
+                    int e = x + ERROR_PADDING;
+                    int value = row[x] + current[e];
+                    int black = value < threshold ? 1 : 0;
+                    int error = black == 1 ? value : value - 255;
+                    row[x] = black;
+                    current[e + 1] += error * 7 >> 4;
+                    next[e - 1] += error * 3 >> 4;
+                    next[e] += error * 5 >> 4;
+                    next[e + 1] += error >> 4;
+                }
+                break;
+            case ATKINSON:
+                for (int x = from; x < to; x++) {
+                    int e = x + ERROR_PADDING;
+                    int value = row[x] + current[e];
+                    int black = value < threshold ? 1 : 0;
+                    int error = (black == 1 ? value : value - 255) >> 3;
+                    row[x] = black;
+                    current[e + 1] += error;
+                    current[e + 2] += error;
+                    next[e - 1] += error;
+                    next[e] += error;
+                    next[e + 1] += error;
+                    afterNext[e] += error;
+                }
+                break;
+        }
+    }
+
+    /**
+     * Pack a dithered row (1 = black) into MSB-first raster bytes at offset
+     */
+    static void packRow(int[] row, int width, byte[] out, int offset) {
+        int x = 0;
+        for (; x + 8 <= width; x += 8) {
+            out[offset++] = (byte) (row[x] << 7 | row[x + 1] << 6 | row[x + 2] << 5 | row[x + 3] << 4
+                    | row[x + 4] << 3 | row[x + 5] << 2 | row[x + 6] << 1 | row[x + 7]);
+        }
+        if (x < width) {
+            int bits = 0;
+            for (int bit = 7; x < width; x++, bit--) {
+                bits |= row[x] << bit;
+            }
+            out[offset] = (byte) bits;
+        }
+    }
+
+    /**
+     * Time conversion of a synthetic gradient receipt for each height, in milliseconds
+     */
+    public static Map<Integer, Double> benchmark(int paperWidth, int[] heights, Dither dither, int iterations) {
+        Map<Integer, Double> timings = new LinkedHashMap<>();
+        for (int height : heights) {
+            Bitmap bitmap = createGradient(paperWidth, height);
+            // Warm up once so the first height does not pay for class loading and JIT
+            rasterize(bitmap, paperWidth, dither, DEFAULT_THRESHOLD);
+            long start = SystemClock.elapsedRealtimeNanos();
+            for (int i = 0; i < iterations; i++) {
+                rasterize(bitmap, paperWidth, dither, DEFAULT_THRESHOLD);
+            }
+            long elapsed = SystemClock.elapsedRealtimeNanos() - start;
+            timings.put(height, elapsed / 1_000_000.0 / iterations);
+            bitmap.recycle();
+        }
+        return timings;
+    }
+
+    private static Bitmap createGradient(int width, int height) {
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int gray = (x * 255 / width + y) & 0xFF;
+                row[x] = Color.rgb(gray, gray, gray);
+            }
+            bitmap.setPixels(row, 0, width, 0, y, width, 1);
+        }
+        return bitmap;
+    }
+}
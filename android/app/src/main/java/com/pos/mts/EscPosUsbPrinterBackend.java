@@ -0,0 +1,357 @@
+package com.pos.mts;
+
+import android.graphics.Bitmap;
+import android.graphics.Typeface;
+import android.hardware.usb.UsbDevice;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Raw ESC/POS over a USB printer, for receipt printers that are not driven by an iMin SDK.
+ * Setters only append commands to a buffer; every print call flushes the buffer in one transfer,
+ * so a styled line costs a single bulk write. Images are rasterized with EscPosRasterizer.
+ */
+public class EscPosUsbPrinterBackend implements PrinterBackend {
+    private static final byte ESC = 0x1B;
+    private static final byte GS = 0x1D;
+    private static final byte LF = 0x0A;
+    // Font A is 12 dots wide, which gives 32 columns on 58mm and 48 on 80mm paper
+    private static final int FONT_A_WIDTH_DOTS = 12;
+    private static final int DEFAULT_LINE_SPACING_DOTS = 30;
+    // Printer status as reported by the iMin SDKs
+    private static final int STATUS_NORMAL = 0;
+    private static final int STATUS_NOT_CONNECTED = -1;
+
+    private final UsbConnectionManager connectionManager;
+    private final UsbDevice device;
+    private final String printerId;
+    private final int paperWidth;
+    private final Charset charset;
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private int qrModuleSize = 6;
+    private int qrErrorLevel = 49;
+
+    public EscPosUsbPrinterBackend(UsbConnectionManager connectionManager, UsbDevice device, int paperWidth,
+            Charset charset) {
+        this.connectionManager = connectionManager;
+        this.device = device;
+        this.printerId = device.getVendorId() + ":" + device.getProductId();
+        this.paperWidth = paperWidth;
+        this.charset = charset;
+    }
+
+    @Override
+    public String name() {
+        return "escpos_usb";
+    }
+
+    @Override
+    public boolean supports(Capability capability) {
+        switch (capability) {
+            case TEXT_STYLE:
+            case ANTI_WHITE_TEXT:
+            case FULL_CUT:
+            case RAW_DATA:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public synchronized void init() throws Exception {
+        append(ESC, '@');
+        flush();
+    }
+
+    @Override
+    public synchronized void getStatus(StatusCallback callback) {
+        // The bulk OUT endpoint cannot report paper state, only whether the printer answers
+        try {
+            connectionManager.acquire(printerId, device);
+            callback.onStatus(STATUS_NORMAL);
+        } catch (UsbConnectionManager.UsbConnectionException e) {
+            callback.onStatus(STATUS_NOT_CONNECTED);
+        }
+    }
+
+    @Override
+    public synchronized void setTextSize(int size) {
+        // iMin sizes are font pixels with 24-26 as normal; ESC/POS only scales by whole multiples
+        int scale = Math.max(1, Math.min(8, Math.round(size / 24f)));
+        append(GS, '!', (scale - 1) << 4 | (scale - 1));
+    }
+
+    @Override
+    public synchronized void setTextTypeface(Typeface typeface) {
+        append(ESC, 'E', typeface != null && typeface.isBold() ? 1 : 0);
+    }
+
+    @Override
+    public synchronized void setTextWidth(int width) {
+        append(GS, 'W', width & 0xFF, (width >> 8) & 0xFF);
+    }
+
+    @Override
+    public synchronized void setAlignment(int alignment) {
+        append(ESC, 'a', Math.max(0, Math.min(2, alignment)));
+    }
+
+    @Override
+    public synchronized void setTextLineSpacing(float space) {
+        append(ESC, '3', Math.max(0, Math.min(255, Math.round(DEFAULT_LINE_SPACING_DOTS * space))));
+    }
+
+    @Override
+    public synchronized void printText(String text) throws Exception {
+        appendText(text);
+        flush();
+    }
+
+    @Override
+    public synchronized void printAntiWhiteText(String text) throws Exception {
+        append(GS, 'B', 1);
+        appendText(text);
+        append(GS, 'B', 0);
+        flush();
+    }
+
+    @Override
+    public synchronized void printAndLineFeed() throws Exception {
+        append(LF);
+        flush();
+    }
+
+    @Override
+    public synchronized void printAndFeedPaper(int height) throws Exception {
+        append(ESC, 'J', Math.max(0, Math.min(255, height)));
+        flush();
+    }
+
+    @Override
+    public synchronized void partialCut() throws Exception {
+        append(GS, 'V', 1);
+        flush();
+    }
+
+    @Override
+    public synchronized void fullCut() throws Exception {
+        append(GS, 'V', 0);
+        flush();
+    }
+
+    @Override
+    public synchronized void printBitmap(Bitmap bitmap, Integer alignment, BitmapMode mode) throws Exception {
+        if (alignment != null) {
+            setAlignment(alignment);
+        }
+        EscPosRasterizer.Dither dither = mode == BitmapMode.NORMAL ? EscPosRasterizer.Dither.FLOYD_STEINBERG
+                : EscPosRasterizer.Dither.THRESHOLD;
+        byte[] raster = EscPosRasterizer.rasterize(bitmap, paperWidth, dither, EscPosRasterizer.DEFAULT_THRESHOLD);
+        pending.write(raster, 0, raster.length);
+        flush();
+    }
+
+    @Override
+    public synchronized void printMultiBitmap(List<Bitmap> bitmaps, Integer alignment) throws Exception {
+        for (Bitmap bitmap : bitmaps) {
+            printBitmap(bitmap, alignment, BitmapMode.NORMAL);
+        }
+    }
+
+    @Override
+    public synchronized void printColumnsText(String[] text, int[] width, int[] align, int[] fontSize)
+            throws Exception {
+        int lineChars = paperWidth / FONT_A_WIDTH_DOTS;
+        int totalWeight = 0;
+        for (int weight : width) {
+            totalWeight += Math.max(weight, 0);
+        }
+        StringBuilder line = new StringBuilder(lineChars);
+        int used = 0;
+        for (int i = 0; i < text.length; i++) {
+            // Column widths are weights; the last column takes whatever rounding left over
+            int chars = i == text.length - 1 ? lineChars - used
+                    : totalWeight > 0 ? lineChars * Math.max(width[i], 0) / totalWeight : lineChars / text.length;
+            used += chars;
+            line.append(fit(text[i] != null ? text[i] : "", chars, align[i]));
+        }
+        appendText(line.append('\n').toString());
+        flush();
+    }
+
+    private static String fit(String value, int chars, int align) {
+        if (value.length() >= chars) {
+            return value.substring(0, Math.max(chars, 0));
+        }
+        int padding = chars - value.length();
+        int left = align == 1 ? padding / 2 : align == 2 ? padding : 0;
+        StringBuilder cell = new StringBuilder(chars);
+        for (int i = 0; i < left; i++) {
+            cell.append(' ');
+        }
+        cell.append(value);
+        while (cell.length() < chars) {
+            cell.append(' ');
+        }
+        return cell.toString();
+    }
+
+    @Override
+    public synchronized void setQrCodeSize(int size) {
+        qrModuleSize = Math.max(1, Math.min(16, size));
+    }
+
+    @Override
+    public synchronized void setQrCodeErrorCorrectionLev(int level) {
+        // Same 48-51 (L, M, Q, H) values as GS ( k function 169
+        qrErrorLevel = Math.max(48, Math.min(51, level));
+    }
+
+    @Override
+    public synchronized void setLeftMargin(int margin) {
+        append(GS, 'L', margin & 0xFF, (margin >> 8) & 0xFF);
+    }
+
+    @Override
+    public synchronized void printQrCode(String data, Integer alignment, Integer size, Integer level)
+            throws Exception {
+        if (alignment != null) {
+            setAlignment(alignment);
+        }
+        if (size != null) {
+            setQrCodeSize(size);
+        }
+        if (level != null) {
+            setQrCodeErrorCorrectionLev(level);
+        }
+        byte[] content = data.getBytes(charset);
+        int storeLength = content.length + 3;
+        // Model 2, module size, error level, store, print
+        append(GS, '(', 'k', 4, 0, '1', 'A', '2', 0);
+        append(GS, '(', 'k', 3, 0, '1', 'C', qrModuleSize);
+        append(GS, '(', 'k', 3, 0, '1', 'E', qrErrorLevel);
+        append(GS, '(', 'k', storeLength & 0xFF, (storeLength >> 8) & 0xFF, '1', 'P', '0');
+        pending.write(content, 0, content.length);
+        append(GS, '(', 'k', 3, 0, '1', 'Q', '0');
+        append(LF);
+        flush();
+    }
+
+    @Override
+    public synchronized void setBarCodeWidth(int width) {
+        append(GS, 'w', Math.max(2, Math.min(6, width)));
+    }
+
+    @Override
+    public synchronized void setBarCodeHeight(int height) {
+        append(GS, 'h', Math.max(1, Math.min(255, height)));
+    }
+
+    @Override
+    public synchronized void setBarCodeContentPrintPos(int position) {
+        append(GS, 'H', Math.max(0, Math.min(3, position)));
+    }
+
+    @Override
+    public synchronized void printBarCode(int type, String data, Integer alignment, Integer width, Integer height,
+            Integer position) throws Exception {
+        if (alignment != null) {
+            setAlignment(alignment);
+        }
+        if (width != null) {
+            setBarCodeWidth(width);
+        }
+        if (height != null) {
+            setBarCodeHeight(height);
+        }
+        if (position != null) {
+            setBarCodeContentPrintPos(position);
+        }
+        // iMin barcode types 0-8 follow the GS k format B order, UPC-A (65) to CODE128 (73)
+        int symbology = 65 + Math.max(0, Math.min(8, type));
+        String content = symbology == 73 && !data.startsWith("{") ? "{B" + data : data;
+        byte[] bytes = content.getBytes(charset);
+        append(GS, 'k', symbology, bytes.length);
+        pending.write(bytes, 0, bytes.length);
+        append(LF);
+        flush();
+    }
+
+    @Override
+    public void setPageFormat(int style) {
+        // Page format is an iMin SDK setting with no ESC/POS equivalent
+    }
+
+    // Double QR is an iMin SDK layout; callers check supports(DOUBLE_QR) first
+    @Override
+    public void setDoubleQRSize(int size) {
+    }
+
+    @Override
+    public void setDoubleQRLevel(int qr, int level) {
+    }
+
+    @Override
+    public void setDoubleQRMarginLeft(int qr, int margin) {
+    }
+
+    @Override
+    public void setDoubleQRVersion(int qr, int version) {
+    }
+
+    @Override
+    public void printDoubleQR(String qr1Text, String qr2Text) {
+    }
+
+    @Override
+    public synchronized void sendRawData(byte[] data) throws Exception {
+        pending.write(data, 0, data.length);
+        flush();
+    }
+
+    @Override
+    public synchronized void openDrawer() throws Exception {
+        append(ESC, 'p', 0, 25, 250);
+        flush();
+    }
+
+    @Override
+    public synchronized void close() {
+        // Commands set up but never printed must not leak into a later backend's output.
+        // The pooled connection is shared with the thermal printer channel and stays open for it.
+        pending.reset();
+    }
+
+    private void append(int... command) {
+        for (int value : command) {
+            pending.write(value);
+        }
+    }
+
+    private void appendText(String text) {
+        byte[] bytes = text.getBytes(charset);
+        pending.write(bytes, 0, bytes.length);
+    }
+
+    private void flush() throws Exception {
+        if (pending.size() == 0) {
+            return;
+        }
+        byte[] data = pending.toByteArray();
+        pending.reset();
+        // The thermal printer channel writes to the same printer from its own print queue
+        synchronized (connectionManager.writeLock(printerId)) {
+            UsbConnectionManager.PooledConnection pooled = connectionManager.acquire(printerId, device);
+            try {
+                UsbTransferEngine.transfer(pooled.connection, pooled.endpoint, data, 0, data.length, null);
+            } catch (UsbTransferEngine.UsbTransferException e) {
+                // Reopen on the next job rather than reuse a connection that just stalled
+                connectionManager.invalidate(printerId);
+                throw e;
+            }
+        }
+    }
+}
@@ -1,17 +1,14 @@
 package com.pos.mts;
 
-import com.bumptech.glide.Glide;
-import com.bumptech.glide.load.engine.DiskCacheStrategy;
-
 import android.annotation.SuppressLint;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
+import android.hardware.usb.UsbDevice;
 import android.os.Build;
 
 import androidx.annotation.NonNull;
 
 import com.imin.printer.ILabelPrintResult;
-import com.imin.printer.INeoPrinterCallback;
 import com.imin.printer.IPrinterCallback;
 import com.imin.printer.PrinterHelper;
 import com.imin.printer.enums.Align;
@@ -27,17 +24,17 @@ import com.imin.printer.label.LabelBitmapStyle;
 import com.imin.printer.label.LabelCanvasStyle;
 import com.imin.printer.label.LabelQrCodeStyle;
 import com.imin.printer.label.LabelTextStyle;
-import com.imin.printerlib.Callback;
 import com.imin.printerlib.IminPrintUtils;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
 
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 
 import android.graphics.Typeface;
@@ -82,28 +79,63 @@ public class IminPrinterPlugin implements FlutterPlugin, MethodCallHandler, Stre
     private static final String ACTION_PRITER_STATUS = "status";
     private static final String TAG = "IminPrinterPlugin";
     private BroadcastReceiver chargingStateChangeReceiver;
+    // Serial printer thread and bounded image pool, owned by this plugin instance
+    private PrinterExecutors executors;
+    private PrintImageCache printImageCache;
+    private final ColumnRows columnRows = new ColumnRows();
+    // SDK 2.0 only: identity and settings snapshot for getPrinterInfo
+    private PrinterInfoCache printerInfoCache;
+    private BroadcastReceiver printerInfoReceiver;
+    private static final long IMAGE_FETCH_TIMEOUT_MS = 15000;
+    private static final long LABEL_LEARNING_TIMEOUT_MS = 30000;
+    // Pure queries that leave the printer alone and answer on the main thread; every other command
+    // changes printer or label canvas state and runs in arrival order on the printer thread
+    private static final Set<String> MAIN_THREAD_METHODS = new HashSet<>(Arrays.asList(
+            "getSdkVersion", "getExecutorMetrics", "getPrinterInfo", "getFontCodepage", "getCurCodepage",
+            "getEncodeList", "getCurEncode", "getPrinterDensityList", "getPrinterDensity", "getPrinterSpeedList",
+            "getPrinterSpeed", "getPrinterPaperTypeList", "getPrinterPaperType", "getPrinterSerialNumber",
+            "getPrinterModelName", "getPrinterThermalHead", "getPrinterFirmwareVersion", "getServiceVersion",
+            "getPrinterHardwareVersion", "getUsbPrinterVidPid", "getUsbDevicesName", "getPrinterPaperDistance",
+            "getPrinterCutTimes", "getDrawerStatus", "getOpenDrawerTimes", "getPrintModel",
+            "getPrinterIsUpdateStatus"));
+
+    interface MethodHandler {
+        void handle(MethodCall call, Result result) throws Exception;
+    }
+
+    // Every channel method by name; SDK-specific ones check the backend's capability before using the SDK
+    private final Map<String, MethodHandler> handlers = new HashMap<>();
+    // Receipt printer behind the handlers; the SDK backend picked at attach unless switched to raw USB
+    private volatile PrinterBackend backend;
+    private PrinterBackend sdkBackend;
+    private static final int DEFAULT_USB_PAPER_WIDTH = EscPosRasterizer.PAPER_80MM_DOTS;
+    private static final String DEFAULT_USB_CHARSET = "GBK";
 
     @Override
     public void onAttachedToEngine(@NonNull FlutterPluginBinding flutterPluginBinding) {
         channel = new MethodChannel(flutterPluginBinding.getBinaryMessenger(), "imin_printer");
         _context = flutterPluginBinding.getApplicationContext();
         eventChannel = new EventChannel(flutterPluginBinding.getBinaryMessenger(), "imin_printer_event");
-        if (Build.MODEL.contains("I23D") || Build.MODEL.contains("I23M") || Build.MODEL.contains("I24D")
-                || Build.MODEL.contains("I24T") || Build.MODEL.contains("I24M")) {
+        DeviceProfile profile = Utils.getInstance().getDeviceProfile();
+        if (profile.isSdk2()) {
             // 初始化 2.0 的 SDK。
             PrinterHelper.getInstance().initPrinterService(_context);
-            sdkVersion = "2.0.0";
         } else {
             // 初始化 1.0 SDK
             iminPrintUtils = IminPrintUtils.getInstance(_context);
-            String deviceModel = Utils.getInstance().getModel();
-            if (deviceModel.contains("M2-203") || deviceModel.contains("M2-202") || deviceModel.contains("M2-Pro")) {
-                connectType = IminPrintUtils.PrintConnectType.SPI;
-            } else {
-                connectType = IminPrintUtils.PrintConnectType.USB;
-            }
+            connectType = profile.connectType;
             iminPrintUtils.resetDevice();
-            sdkVersion = "1.0.0";
+        }
+        sdkVersion = profile.sdkGeneration.version;
+        sdkBackend = profile.isSdk2() ? new Sdk2PrinterBackend(_context)
+                : new Sdk1PrinterBackend(iminPrintUtils, connectType);
+        backend = sdkBackend;
+        buildHandlers();
+        executors = new PrinterExecutors();
+        printImageCache = new PrintImageCache(_context);
+        if (sdkBackend.supports(PrinterBackend.Capability.PRINTER_SERVICE)) {
+            printerInfoCache = new PrinterInfoCache(executors.io());
+            registerPrinterInfoReceiver();
         }
         eventChannel.setStreamHandler(this);
         channel.setMethodCallHandler(this);
@@ -113,1531 +145,1013 @@ public class IminPrinterPlugin implements FlutterPlugin, MethodCallHandler, Stre
     @SuppressLint("NewApi")
     @Override
     public void onMethodCall(@NonNull MethodCall call, @NonNull Result result) {
-        switch (call.method) {
-            case "getSdkVersion":
-                result.success(sdkVersion);
-                break;
-            case "initPrinter":
-                if (iminPrintUtils != null) {
-                    iminPrintUtils.initPrinter(connectType);
-                    result.success(true);
-                } else {
-                    Log.d(TAG, _context.getPackageName());
-                    PrinterHelper.getInstance().initPrinter(_context.getPackageName(), null);
-                }
-                break;
-            case "getPrinterStatus":
-                if (iminPrintUtils != null) {
-                    if (connectType.equals(IminPrintUtils.PrintConnectType.SPI)) {
-                        iminPrintUtils.getPrinterStatus(connectType, new Callback() {
-                            @Override
-                            public void callback(int status) {
-                                result.success(String.format("%d", status));
-                            }
-                        });
-                    } else {
-                        int status = iminPrintUtils.getPrinterStatus(connectType);
-                        result.success(String.format("%d", status));
-                    }
-                } else {
-                    int status = PrinterHelper.getInstance().getPrinterStatus();
-                    result.success(String.format("%d", status));
-                }
-                break;
-            case "setTextSize":
-                int size = call.argument("size");
-                if (iminPrintUtils != null) {
-                    iminPrintUtils.setTextSize(size);
-                }
-                result.success(true);
-                break;
-            case "setTextTypeface":
-                int font = call.argument("font");
-                if (iminPrintUtils != null) {
-                    switch (font) {
-                        case 1:
-                            iminPrintUtils.setTextTypeface(Typeface.MONOSPACE);
-                            break;
-                        case 2:
-                            iminPrintUtils.setTextTypeface(Typeface.DEFAULT_BOLD);
-                            break;
-                        case 3:
-                            iminPrintUtils.setTextTypeface(Typeface.SANS_SERIF);
-                            break;
-                        case 4:
-                            iminPrintUtils.setTextTypeface(Typeface.SERIF);
-                            break;
-                        default:
-                            iminPrintUtils.setTextTypeface(Typeface.DEFAULT);
-                            break;
-                    }
-                }
-                result.success(true);
-                break;
-            case "setTextStyle":
-                int style = call.argument("style");
-                if (iminPrintUtils != null) {
-                    switch (style) {
-                        case 1:
-                            iminPrintUtils.setTextTypeface(Typeface.DEFAULT_BOLD);
-                            break;
-                        case 2:
-                            iminPrintUtils.setTextTypeface(Typeface.defaultFromStyle(Typeface.ITALIC));
-                            break;
-                        case 3:
-                            iminPrintUtils.setTextTypeface(Typeface.defaultFromStyle(Typeface.BOLD_ITALIC));
-                            break;
-                        default:
-                            iminPrintUtils.setTextTypeface(Typeface.DEFAULT);
-                            break;
-                    }
-                }
-                result.success(true);
-                break;
-            case "setTextWidth":
-                int textWidth = call.argument("width");
-                if (iminPrintUtils != null) {
-                    iminPrintUtils.setTextWidth(textWidth);
-                }
-                result.success(true);
-                break;
-            case "setAlignment":
-                int alignment = call.argument("alignment");
-                if (iminPrintUtils != null) {
-                    iminPrintUtils.setAlignment(alignment);
-                }
-                result.success(true);
-                break;
-            case "setTextLineSpacing":
-                double space = call.argument("space");
-                float c = ((Double) space).floatValue();
-                if (iminPrintUtils != null) {
-                    iminPrintUtils.setTextLineSpacing(c);
-                }
-                result.success(true);
-                break;
-            case "printColumnsText":
-                String colsStr = call.argument("cols");
-                try {
-                    JSONArray cols = new JSONArray(colsStr);
-                    String[] colsText = new String[cols.length()];
-                    int[] colsWidth = new int[cols.length()];
-                    int[] colsAlign = new int[cols.length()];
-                    int[] colsFontSize = new int[cols.length()];
-                    for (int i = 0; i < cols.length(); i++) {
-                        JSONObject col = cols.getJSONObject(i);
-                        String textColumn = col.getString("text");
-                        int widthColumn = col.getInt("width");
-                        int alignColumn = col.getInt("align");
-                        int fontSizeColumn = col.getInt("fontSize");
-                        colsText[i] = textColumn;
-                        colsWidth[i] = widthColumn;
-                        colsAlign[i] = alignColumn;
-                        colsFontSize[i] = fontSizeColumn;
-                    }
-                    if (iminPrintUtils != null) {
-                        iminPrintUtils.printColumnsText(colsText, colsWidth, colsAlign, colsFontSize);
-                    } else {
-                        PrinterHelper.getInstance().printColumnsText(colsText, colsWidth, colsAlign, colsFontSize,
-                                null);
-                    }
-                    result.success(true);
-                } catch (Exception err) {
-                    Log.e("IminPrinter", err.getMessage());
-                }
-                break;
-            case "printText":
-                String text = call.argument("text");
-                if (iminPrintUtils != null) {
-                    iminPrintUtils.printText(text + "\n");
-                } else {
-                    PrinterHelper.getInstance().printText(text + "\n", null);
-                }
-                result.success(true);
-                break;
-            case "printAntiWhiteText":
-                String whiteText = call.argument("text");
-                if (iminPrintUtils != null) {
-                    iminPrintUtils.printAntiWhiteText(whiteText + "\n");
-                }
-                result.success(true);
-                break;
-            case "printAndLineFeed":
-                if (iminPrintUtils != null) {
-                    iminPrintUtils.printAndLineFeed();
-                } else {
-                    PrinterHelper.getInstance().printAndLineFeed();
-                }
-                result.success(true);
-                break;
-            case "printAndFeedPaper":
-                int height = call.argument("height");
-                if (iminPrintUtils != null) {
-                    iminPrintUtils.printAndFeedPaper(height);
-                } else {
-                    PrinterHelper.getInstance().printAndFeedPaper(height);
-                }
-                result.success(true);
-                break;
-            case "partialCut":
-                if (iminPrintUtils != null) {
-                    iminPrintUtils.partialCut();
-                } else {
-                    PrinterHelper.getInstance().partialCut();
-                }
-                result.success(true);
-                break;
-            case "fullCut":
-                if (iminPrintUtils != null) {
-                    // TODO
-                } else {
-                    PrinterHelper.getInstance().fullCut();
-                }
-                result.success(true);
-                break;
-            case "printSingleBitmap":
-                try {
-                    byte[] img = call.argument("bitmap");
-                    Bitmap bitmap = BitmapFactory.decodeByteArray(img, 0, img.length);
-                    if (call.argument("alignment") != null) {
-                        int align = call.argument("alignment");
-                        if (iminPrintUtils != null) {
-                            iminPrintUtils.printSingleBitmap(bitmap, align);
-                        } else {
-                            PrinterHelper.getInstance().printBitmapWithAlign(bitmap, align, null);
-                        }
-
-                    } else {
-                        if (iminPrintUtils != null) {
-                            iminPrintUtils.printSingleBitmap(bitmap);
-                        } else {
-                            PrinterHelper.getInstance().printBitmap(bitmap, null);
-                        }
-
-                    }
-                    result.success(true);
-                } catch (Exception err) {
-                    Log.e("IminPrinter", "printSingleBitmap:" + err.getMessage());
-                    result.success(false);
-                }
-                break;
-            case "printBitmapToUrl":
-                new Thread(new Runnable() {
-                    @Override
-                    public void run() {
-                        try {
-                            if (call.argument("height") != null && call.argument("width") != null) {
-                                int imageWidth = call.argument("width");
-                                int imageHeight = call.argument("height");
-                                if (call.argument("alignment") != null) {
-                                    int align = call.argument("alignment");
-                                    if (call.argument("multiBitmap") != null) {
-                                        ArrayList<String> multiBytes = call.argument("bitmaps");
-                                        ArrayList<Bitmap> bitmaps = new ArrayList<Bitmap>();
-                                        for (int i = 0; i < multiBytes.size(); i++) {
-                                            String url = multiBytes.get(i);
-                                            Bitmap image = Glide.with(_context).asBitmap().load(url)
-                                                    .diskCacheStrategy(DiskCacheStrategy.NONE).skipMemoryCache(true)
-                                                    .submit(imageWidth, imageHeight).get();
-                                            bitmaps.add(image);
-                                        }
-                                        if (iminPrintUtils != null) {
-                                            iminPrintUtils.printMultiBitmap(bitmaps, align);
-                                        } else {
-                                            PrinterHelper.getInstance().printMultiBitmapWithAlign(bitmaps, align, null);
-                                        }
-                                    } else {
-                                        String img = call.argument("bitmap");
-                                        Bitmap image = Glide.with(_context).asBitmap().load(img)
-                                                .diskCacheStrategy(DiskCacheStrategy.NONE).skipMemoryCache(true)
-                                                .submit(imageWidth, imageHeight).get();
-                                        if (iminPrintUtils != null) {
-                                            iminPrintUtils.printSingleBitmap(image, align);
-                                        } else {
-                                            if (call.argument("SingleBitmapColorChart") != null) {
-                                                PrinterHelper.getInstance().printBitmapColorChartWithAlign(image, align,
-                                                        null);
-                                            } else {
-                                                PrinterHelper.getInstance().printBitmapWithAlign(image, align, null);
-                                            }
-                                        }
-                                    }
-                                } else {
-                                    if (call.argument("multiBitmap") != null) {
-                                        ArrayList<String> multiBytes = call.argument("bitmaps");
-                                        ArrayList<Bitmap> bitmaps = new ArrayList<Bitmap>();
-                                        for (int i = 0; i < multiBytes.size(); i++) {
-                                            String url = multiBytes.get(i);
-                                            Bitmap image = Glide.with(_context).asBitmap().load(url)
-                                                    .diskCacheStrategy(DiskCacheStrategy.NONE).skipMemoryCache(true)
-                                                    .submit(imageWidth, imageHeight).get();
-                                            bitmaps.add(image);
-                                        }
-                                        if (iminPrintUtils != null) {
-                                            iminPrintUtils.printMultiBitmap(bitmaps, 0);
-                                        } else {
-                                            PrinterHelper.getInstance().printMultiBitmap(bitmaps, null);
-                                        }
-                                    } else {
-                                        String img = call.argument("bitmap");
-                                        Bitmap bitmap = Glide.with(_context).asBitmap().load(img)
-                                                .diskCacheStrategy(DiskCacheStrategy.NONE).skipMemoryCache(true)
-                                                .submit(imageWidth, imageHeight).get();
-                                        if (iminPrintUtils != null) {
-                                            if (call.argument("blackWhite") != null) {
-                                                iminPrintUtils.printSingleBitmapBlackWhite(bitmap);
-                                            } else {
-                                                iminPrintUtils.printSingleBitmap(bitmap);
-
-                                            }
-                                        } else {
-                                            if (call.argument("SingleBitmapColorChart") != null) {
-                                                PrinterHelper.getInstance().printBitmapColorChart(bitmap, null);
-                                            } else {
-                                                PrinterHelper.getInstance().printBitmap(bitmap, null);
-                                            }
-                                        }
-                                    }
-                                }
-                            }
-                            result.success(true);
-                        } catch (Exception err) {
-                            Log.e("IminPrinter", "printBitmapToUrl:" + err.getMessage());
-                            result.success(false);
-                        }
-                    }
-                }).start();
-                break;
-            case "printSingleBitmapBlackWhite":
-                byte[] blackWhiteBytes = call.argument("bitmap");
+        if (!MAIN_THREAD_METHODS.contains(call.method) && !PrinterExecutors.onPrinterThread()) {
+            Result reply = new MainThreadResult(result);
+            executors.executePrinter(reply, () -> {
                 try {
-                    Bitmap blackWhiteBitmap = BitmapFactory.decodeByteArray(blackWhiteBytes, 0, blackWhiteBytes.length);
-                    if (iminPrintUtils != null) {
-                        iminPrintUtils.printSingleBitmapBlackWhite(blackWhiteBitmap);
-                    }
-                    result.success(true);
-                } catch (Exception err) {
-                    Log.e("IminPrinter", "printSingleBitmapBlackWhite:" + err.getMessage());
-                    result.success(false);
-                }
-                break;
-            case "printMultiBitmap":
-                ArrayList<byte[]> multiBytes = call.argument("bitmaps");
-                ArrayList<Bitmap> bitmaps = new ArrayList<Bitmap>();
-                try {
-                    for (int i = 0; i < multiBytes.size(); i++) {
-                        bitmaps.add(BitmapFactory.decodeByteArray(multiBytes.get(i), 0, multiBytes.get(i).length));
-                    }
-                    if (call.argument("alignment") != null) {
-                        int multiAlign = call.argument("alignment");
-                        if (iminPrintUtils != null) {
-                            iminPrintUtils.printMultiBitmap(bitmaps, multiAlign);
-                        } else {
-                            PrinterHelper.getInstance().printMultiBitmapWithAlign(bitmaps, multiAlign, null);
-                        }
-                    } else {
-                        if (iminPrintUtils != null) {
-                            iminPrintUtils.printMultiBitmap(bitmaps, 0);
-                        } else {
-                            PrinterHelper.getInstance().printMultiBitmap(bitmaps, null);
-                        }
-                    }
-                    result.success(true);
-                } catch (Exception err) {
-                    Log.e("IminPrinter", "printMultiBitmap:" + err.getMessage());
-                    result.success(false);
-                }
-                break;
-            case "setQrCodeSize":
-                int qrSize = call.argument("qrSize");
-                if (iminPrintUtils != null) {
-                    iminPrintUtils.setQrCodeSize(qrSize);
-                } else {
-                    PrinterHelper.getInstance().setQrCodeSize(qrSize);
-                }
-                result.success(true);
-                break;
-            case "setLeftMargin":
-                int margin = call.argument("margin");
-                if (iminPrintUtils != null) {
-                    iminPrintUtils.setLeftMargin(margin);
-                } else {
-                    PrinterHelper.getInstance().setLeftMargin(margin);
-                }
-                result.success(true);
-                break;
-            case "setQrCodeErrorCorrectionLev":
-                int level = call.argument("level");
-                if (iminPrintUtils != null) {
-                    iminPrintUtils.setQrCodeErrorCorrectionLev(level);
-                } else {
-                    PrinterHelper.getInstance().setQrCodeErrorCorrectionLev(level);
-                }
-                result.success(true);
-                break;
-            case "printQrCode":
-                String qrStr = call.argument("data");
-                if (call.argument("alignment") != null) {
-                    int alignmentMode = call.argument("alignment");
-                    if (iminPrintUtils != null) {
-                        Log.e("IminPrinter", "  printQrCode ==> " + qrStr + "  " + alignmentMode);
-
-                        iminPrintUtils.printQrCode(qrStr, alignmentMode);
-                    } else {
-                        if (call.argument("qrSize") != null && call.argument("level") != null) {
-                            int qrFullSize = call.argument("qrSize");
-                            int qrFullLevel = call.argument("level");
-                            PrinterHelper.getInstance().printQRCodeWithFull(qrStr, qrFullSize, qrFullLevel,
-                                    alignmentMode, null);
-                        } else {
-                            PrinterHelper.getInstance().printQrCodeWithAlign(qrStr, alignmentMode, null);
-                        }
-                    }
-                } else {
-                    if (iminPrintUtils != null) {
-                        iminPrintUtils.printQrCode(qrStr);
-                    } else {
-                        PrinterHelper.getInstance().printQrCode(qrStr, null);
-                    }
-                }
-                result.success(true);
-                break;
-            case "setBarCodeWidth":
-                int barCodeWidth = call.argument("width");
-                if (iminPrintUtils != null) {
-                    iminPrintUtils.setBarCodeWidth(barCodeWidth);
-                } else {
-                    PrinterHelper.getInstance().setBarCodeWidth(barCodeWidth);
-                }
-                result.success(true);
-                break;
-            case "setBarCodeHeight":
-                int barCodeHeight = call.argument("height");
-                if (iminPrintUtils != null) {
-                    iminPrintUtils.setBarCodeHeight(barCodeHeight);
-                } else {
-                    PrinterHelper.getInstance().setBarCodeHeight(barCodeHeight);
-                }
-                result.success(true);
-                break;
-            case "setBarCodeContentPrintPos":
-                int barCodePosition = call.argument("position");
-                if (iminPrintUtils != null) {
-                    iminPrintUtils.setBarCodeContentPrintPos(barCodePosition);
-                } else {
-                    PrinterHelper.getInstance().setBarCodeContentPrintPos(barCodePosition);
-                }
-                result.success(true);
-                break;
-            case "setPageFormat":
-                int formatStyle = call.argument("style");
-                if (iminPrintUtils != null) {
-                    iminPrintUtils.setPageFormat(formatStyle);
-                } else {
-                    PrinterHelper.getInstance().setPageFormat(formatStyle);
-                }
-                result.success(true);
-                break;
-            case "printBarCode":
-                try {
-                    String barCodeContent = call.argument("data");
-                    int barCodeType = call.argument("type");
-                    if (call.argument("align") != null) {
-                        int barCodeAlign = call.argument("align");
-                        if (iminPrintUtils != null) {
-                            iminPrintUtils.printBarCode(barCodeType, barCodeContent, barCodeAlign);
-                        } else {
-                            if (call.argument("position") != null && call.argument("height") != null
-                                    && call.argument("width") != null) {
-                                int barCodeFullPosition = call.argument("position");
-                                int barCodeFullHeight = call.argument("height");
-                                int barCodeFullWidth = call.argument("width");
-                                PrinterHelper.getInstance().printBarCodeWithFull(barCodeContent, barCodeType,
-                                        barCodeFullWidth, barCodeFullHeight, barCodeAlign, barCodeFullPosition, null);
-                            } else {
-                                PrinterHelper.getInstance().printBarCodeWithAlign(barCodeContent, barCodeType,
-                                        barCodeAlign, null);
-                            }
-                        }
-                    } else {
-                        if (iminPrintUtils != null) {
-                            iminPrintUtils.printBarCode(barCodeType, barCodeContent);
-                        } else {
-                            Log.d("IminPrinter:printBarCode", "barCodeType:" + barCodeType);
-                            Log.d("IminPrinter:printBarCode", "barCodeContent:" + barCodeContent);
-                            PrinterHelper.getInstance().printBarCode(barCodeContent, barCodeType, null);
-                        }
-                    }
-                    result.success(true);
-                } catch (Exception e) {
-                    Log.e("IminPrinter", e.getMessage());
-                    result.success(false);
-                }
-                break;
-            case "setDoubleQRSize":
-                int doubleQRSize = call.argument("size");
-                if (iminPrintUtils != null) {
-                    iminPrintUtils.setDoubleQRSize(doubleQRSize);
-                } else {
-                    PrinterHelper.getInstance().setDoubleQRSize(doubleQRSize);
-                }
-                result.success(true);
-                break;
-            case "setDoubleQR1Level":
-                int doubleQR1Level = call.argument("level");
-                if (iminPrintUtils != null) {
-                    iminPrintUtils.setDoubleQR1Level(doubleQR1Level);
-                } else {
-                    PrinterHelper.getInstance().setDoubleQR1Level(doubleQR1Level);
-                }
-                result.success(true);
-                break;
-            case "setDoubleQR2Level":
-                int doubleQR2Level = call.argument("level");
-                if (iminPrintUtils != null) {
-                    iminPrintUtils.setDoubleQR2Level(doubleQR2Level);
-                } else {
-                    PrinterHelper.getInstance().setDoubleQR2Level(doubleQR2Level);
-                }
-                result.success(true);
-                break;
-            case "setDoubleQR1MarginLeft":
-                int doubleQR1MarginLeft = call.argument("leftMargin");
-                if (iminPrintUtils != null) {
-                    iminPrintUtils.setDoubleQR1MarginLeft(doubleQR1MarginLeft);
-                } else {
-                    PrinterHelper.getInstance().setDoubleQR1MarginLeft(doubleQR1MarginLeft);
-                }
-                result.success(true);
-                break;
-            case "setDoubleQR2MarginLeft":
-                int doubleQR2MarginLeft = call.argument("leftMargin");
-                if (iminPrintUtils != null) {
-                    iminPrintUtils.setDoubleQR2MarginLeft(doubleQR2MarginLeft);
-                } else {
-                    PrinterHelper.getInstance().setDoubleQR2MarginLeft(doubleQR2MarginLeft);
-                }
-                result.success(true);
-                break;
-            case "setDoubleQR1Version":
-                int doubleQR1Version = call.argument("version");
-                if (iminPrintUtils != null) {
-                    iminPrintUtils.setDoubleQR1Version(doubleQR1Version);
-                } else {
-                    PrinterHelper.getInstance().setDoubleQR1Version(doubleQR1Version);
-                }
-                result.success(true);
-                break;
-            case "setDoubleQR2Version":
-                int doubleQR2Version = call.argument("version");
-                if (iminPrintUtils != null) {
-                    iminPrintUtils.setDoubleQR2Version(doubleQR2Version);
-                } else {
-                    PrinterHelper.getInstance().setDoubleQR2Version(doubleQR2Version);
-                }
-                result.success(true);
-                break;
-            case "printDoubleQR":
-                String qrCode1Text = call.argument("qrCode1Text");
-                String qrCode2Text = call.argument("qrCode2Text");
-                if (iminPrintUtils != null) {
-                    iminPrintUtils.printDoubleQR(qrCode1Text, qrCode2Text);
-                } else {
-                    PrinterHelper.getInstance().printDoubleQR(qrCode1Text, qrCode2Text, null);
-                }
-                result.success(true);
-                break;
-            case "openCashBox":
-                String deviceModel = Build.MODEL;
-                String deviceName = Build.DEVICE;
-                Log.d(TAG, "openCashBox called - Model: " + deviceModel + ", Device: " + deviceName);
-                
-                boolean isSdk2_0 = deviceModel != null && (
-                    deviceModel.contains("I23D") || 
-                    deviceModel.contains("I23M") || 
-                    deviceModel.contains("I24D") || 
-                    deviceModel.contains("I24T") || 
-                    deviceModel.contains("I24M")
-                );
-                Log.d(TAG, "Is SDK 2.0 model? " + isSdk2_0);
-                
-                if (isSdk2_0) {
-                    // For all SDK 2.0 models, use PrinterHelper.openDrawer()
-                    Log.d(TAG, "SDK 2.0 model detected - using PrinterHelper.openDrawer()");
-                    try {
-                        PrinterHelper.getInstance().openDrawer();
-                        Log.d(TAG, "SUCCESS: Drawer opened via PrinterHelper.openDrawer()");
-                    } catch (Exception e) {
-                        Log.e(TAG, "PrinterHelper.openDrawer() failed: " + e.getMessage());
-                        Log.d(TAG, "Attempting fallback method...");
-                        try {
-                            Utils.getInstance().opencashBox();
-                            Log.d(TAG, "SUCCESS: Drawer opened via fallback method");
-                        } catch (Exception e2) {
-                            Log.e(TAG, "Fallback method also failed: " + e2.getMessage());
-                        }
-                    }
-                } else {
-                    // For SDK 1.0 models, use IminSDKManager method
-                    Log.d(TAG, "SDK 1.0 model - using IminSDKManager method");
-                    try {
-                        Utils.getInstance().opencashBox();
-                        Log.d(TAG, "SUCCESS: Cash box opened via IminSDKManager");
-                    } catch (Exception e) {
-                        Log.e(TAG, "IminSDKManager method failed: " + e.getMessage());
-                    }
-                }
-                result.success(true);
-                break;
-            case "setInitIminPrinter":
-                boolean isDefault = call.argument("isDefault");
-                if (iminPrintUtils != null) {
-                    iminPrintUtils.setInitIminPrinter(isDefault);
-                }
-                result.success(true);
-                break;
-            case "resetDevice":
-                if (iminPrintUtils != null) {
-                    iminPrintUtils.resetDevice();
-                }
-                result.success(true);
-                break;
-            case "initPrinterParams":
-                if (iminPrintUtils == null) {
-                    PrinterHelper.getInstance().initPrinterParams();
-                }
-                result.success(true);
-                break;
-            case "unBindService":
-                if (iminPrintUtils == null) {
-                    PrinterHelper.getInstance().deInitPrinterService(_context);
-                }
-                result.success(true);
-                break;
-
-            case "getFontCodepage":// 1. codepage
-                if (iminPrintUtils == null) {
-                    List<String> fontCodepage = PrinterHelper.getInstance().getFontCodepage();
-                    result.success(fontCodepage);
-                }
-                result.success(true);
-                break;
-            case "setFontCodepage":
-                if (iminPrintUtils == null) {
-                    int codepage = call.argument("codepage");// 从getFontCodepage 列表的脚标（0、1、3...）
-                    PrinterHelper.getInstance().setFontCodepage(codepage);
-                }
-                result.success(true);
-                break;
-            case "getCurCodepage":
-                if (iminPrintUtils == null) {
-                    String curCodepage = PrinterHelper.getInstance().getCurCodepage();
-                    result.success(curCodepage);
-                }
-                result.success(true);
-                break;
-
-            case "getEncodeList":// 2. encode
-                if (iminPrintUtils == null) {
-                    List<String> encodeList = PrinterHelper.getInstance().getEncodeList();
-                    result.success(encodeList);
-                }
-                break;
-            case "setPrinterEncode":
-                if (iminPrintUtils == null) {
-                    int encode = call.argument("encode");
-                    PrinterHelper.getInstance().setPrinterEncode(encode);
-                }
-                result.success(true);
-                break;
-            case "getCurEncode":
-                if (iminPrintUtils == null) {
-                    String curEncode = PrinterHelper.getInstance().getCurEncode();
-                    result.success(curEncode);
-                }
-                break;
-
-            case "getPrinterDensityList":// 3. density
-                if (iminPrintUtils == null) {
-                    List<String> printerDensityList = PrinterHelper.getInstance().getPrinterDensityList();
-                    result.success(printerDensityList);
-                }
-                break;
-            case "setPrinterDensity":
-                if (iminPrintUtils == null) {
-                    int density = call.argument("density");
-                    PrinterHelper.getInstance().setPrinterDensity(density);
-                }
-                result.success(true);
-                break;
-            case "getPrinterDensity":
-                if (iminPrintUtils == null) {
-                    result.success(PrinterHelper.getInstance().getPrinterDensity());
-                }
-                break;
-            case "getPrinterSpeedList":// 4. speed
-                if (iminPrintUtils == null) {
-                    List<String> printerSpeedList = PrinterHelper.getInstance().getPrinterSpeedList();
-                    result.success(printerSpeedList);
-                }
-                break;
-            case "setPrinterSpeed":
-                if (iminPrintUtils == null) {
-                    int speed = call.argument("speed");
-                    PrinterHelper.getInstance().setPrinterSpeed(speed);
-                }
-                result.success(true);
-                break;
-            case "getPrinterSpeed":
-                if (iminPrintUtils == null) {
-                    int printerSpeed = PrinterHelper.getInstance().getPrinterSpeed();
-                    result.success(printerSpeed);
-                }
-                break;
-            case "getPrinterPaperTypeList":// 5. Paper width
-                if (iminPrintUtils == null) {
-                    List<String> printerPaperTypeList = PrinterHelper.getInstance().getPrinterPaperTypeList();
-                    result.success(printerPaperTypeList);
-                }
-                break;
-            case "getPrinterPaperType":
-                if (iminPrintUtils == null) {
-                    result.success(PrinterHelper.getInstance().getPrinterPaperType());
-                }
-                break;
-            case "getPrinterSerialNumber":
-                if (iminPrintUtils == null) {
-                    PrinterHelper.getInstance().getPrinterSerialNumber(new INeoPrinterCallback() {
-                        @Override
-                        public void onRunResult(boolean isSuccess) throws RemoteException {
-                            result.success(isSuccess);// "true 绑定服务成功" : "false 绑定服务失败"
-                        }
-
-                        @Override
-                        public void onReturnString(String s) throws RemoteException {
-                            result.success(s);
-                        }
-
-                        @Override
-                        public void onRaiseException(int code, String msg) throws RemoteException {
-
-                        }
-
-                        @Override
-                        public void onPrintResult(int code, String msg) throws RemoteException {
-
-                        }
-                    });
-                }
-                break;
-            case "getPrinterModelName":
-                if (iminPrintUtils == null) {
-                    PrinterHelper.getInstance().getPrinterModelName(new INeoPrinterCallback() {
-                        @Override
-                        public void onRunResult(boolean isSuccess) throws RemoteException {
-                            result.success(isSuccess);// "true 绑定服务成功" : "false 绑定服务失败"
-                        }
-
-                        @Override
-                        public void onReturnString(String s) throws RemoteException {
-                            result.success(s);
-                        }
-
-                        @Override
-                        public void onRaiseException(int code, String msg) throws RemoteException {
-
-                        }
-
-                        @Override
-                        public void onPrintResult(int code, String msg) throws RemoteException {
-
-                        }
-                    });
-                }
-                break;
-            case "getPrinterThermalHead":
-                if (iminPrintUtils == null) {
-                    PrinterHelper.getInstance().getPrinterThermalHead(new INeoPrinterCallback() {
-                        @Override
-                        public void onRunResult(boolean isSuccess) throws RemoteException {
-                            result.success(isSuccess);// "true 绑定服务成功" : "false 绑定服务失败"
-                        }
-
-                        @Override
-                        public void onReturnString(String s) throws RemoteException {
-                            result.success(s);
-                        }
-
-                        @Override
-                        public void onRaiseException(int code, String msg) throws RemoteException {
-
-                        }
-
-                        @Override
-                        public void onPrintResult(int code, String msg) throws RemoteException {
-
-                        }
-                    });
+                    onMethodCall(call, reply);
+                } catch (RuntimeException e) {
+                    Log.e(TAG, call.method + " failed", e);
+                    reply.error("error", e.getMessage(), null);
                 }
-                break;
-            case "getPrinterFirmwareVersion":
-                if (iminPrintUtils == null) {
-                    PrinterHelper.getInstance().getPrinterFirmwareVersion(new INeoPrinterCallback() {
-                        @Override
-                        public void onRunResult(boolean isSuccess) throws RemoteException {
-                            result.success(isSuccess);// "true 绑定服务成功" : "false 绑定服务失败"
-                        }
-
-                        @Override
-                        public void onReturnString(String s) throws RemoteException {
-                            result.success(s);
-                        }
-
-                        @Override
-                        public void onRaiseException(int code, String msg) throws RemoteException {
-
-                        }
-
-                        @Override
-                        public void onPrintResult(int code, String msg) throws RemoteException {
-
-                        }
-                    });
-                }
-                break;
-            case "getServiceVersion":
-                if (iminPrintUtils == null) {
-                    result.success(PrinterHelper.getInstance().getServiceVersion());
-                }
-                break;
-            case "getPrinterHardwareVersion":
-                if (iminPrintUtils == null) {
-                    PrinterHelper.getInstance().getPrinterHardwareVersion(new INeoPrinterCallback() {
-                        @Override
-                        public void onRunResult(boolean isSuccess) throws RemoteException {
-                            result.success(isSuccess);// "true 绑定服务成功" : "false 绑定服务失败"
-                        }
-
-                        @Override
-                        public void onReturnString(String s) throws RemoteException {
-                            result.success(s);
-                        }
-
-                        @Override
-                        public void onRaiseException(int code, String msg) throws RemoteException {
+            });
+            return;
+        }
+        MethodHandler handler = handlers.get(call.method);
+        if (handler == null) {
+            result.notImplemented();
+            return;
+        }
+        try {
+            handler.handle(call, result);
+        } catch (Exception err) {
+            Log.e("IminPrinter", call.method + ": " + err.getMessage());
+            result.success(false);
+        }
+    }
 
-                        }
+    // Pre-dither label images the way the label SDK would process them
+    private static EscPosRasterizer.Dither labelDither(String algorithm) {
+        return "DITHERING".equalsIgnoreCase(algorithm) ? EscPosRasterizer.Dither.FLOYD_STEINBERG
+                : EscPosRasterizer.Dither.THRESHOLD;
+    }
 
-                        @Override
-                        public void onPrintResult(int code, String msg) throws RemoteException {
+    private static int labelThreshold(Integer value) {
+        return value != null && value > 0 && value < 256 ? value : EscPosRasterizer.DEFAULT_THRESHOLD;
+    }
 
-                        }
-                    });
-                }
-                break;
-            case "getUsbPrinterVidPid":
-                if (iminPrintUtils == null) {
-                    result.success(PrinterHelper.getInstance().getUsbPrinterVidPid());
-                }
-                break;
-            case "getUsbDevicesName":
-                if (iminPrintUtils == null) {
-                    result.success(PrinterHelper.getInstance().getUsbDevicesName());
-                }
-                break;
-
-            case "getPrinterPaperDistance":
-                if (iminPrintUtils == null) {
-                    PrinterHelper.getInstance().getPrinterPaperDistance(new INeoPrinterCallback() {
-                        @Override
-                        public void onRunResult(boolean isSuccess) throws RemoteException {
-                            result.success(isSuccess);// "true 绑定服务成功" : "false 绑定服务失败"
-                        }
+    // 标签初始化
+    private void labelInitCanvas(MethodCall call, Result result) {
+        Map<String, Object> labelCanvasStyleMap = call.argument("labelCanvasStyle");
+        if (labelCanvasStyleMap != null) {
+            Integer width = (Integer) labelCanvasStyleMap.get("width");
+            Integer height1 = (Integer) labelCanvasStyleMap.get("height");
+            Integer posX = (Integer) labelCanvasStyleMap.get("posX");
+            Integer posY = (Integer) labelCanvasStyleMap.get("posY");
+
+            Log.e("IminPrinter", "labelInitCanvas:" + width + " " + height1 + " " + posX + " ,y= " + posY);
+            PrinterHelper.getInstance().labelInitCanvas(LabelCanvasStyle.getCanvasStyle()
+                    .setWidth(width)
+                    .setHeight(height1)
+                    .setPosX(posX)
+                    .setPosY(posY));
+        }
+        result.success(true);
+    }
 
-                        @Override
-                        public void onReturnString(String s) throws RemoteException {
-                            result.success(s);
-                        }
+    // 绘制文本内容
+    private void labelAddText(MethodCall call, Result result) {
+        String textLabel = call.argument("text");
+        Map<String, Object> labelAddTexteMap = call.argument("labelTexStyle");
+        if (labelAddTexteMap != null) {
+            Integer posX = (Integer) labelAddTexteMap.get("posX");
+            Integer posY = (Integer) labelAddTexteMap.get("posY");
+            Integer textSize = (Integer) labelAddTexteMap.get("textSize");
+            Integer textWidthRatio = (Integer) labelAddTexteMap.get("textWidthRatio");
+            Integer textHeightRatio = (Integer) labelAddTexteMap.get("textHeightRatio");
+            Integer width = (Integer) labelAddTexteMap.get("width");
+            Integer height1 = (Integer) labelAddTexteMap.get("height");
+            String alignStr = (String) labelAddTexteMap.get("align");
+            String rotateStr = (String) labelAddTexteMap.get("rotate");
+            Integer textSpace = (Integer) labelAddTexteMap.get("textSpace");
+            Boolean enableBold = (Boolean) labelAddTexteMap.get("enableBold");
+            Boolean enableUnderline = (Boolean) labelAddTexteMap.get("enableUnderline");
+            Boolean enableStrikethrough = (Boolean) labelAddTexteMap.get("enableStrikethrough");
+            Boolean enableItalics = (Boolean) labelAddTexteMap.get("enableItalics");
+            Boolean enAntiColor = (Boolean) labelAddTexteMap.get("enAntiColor");
+
+            Log.e("IminPrinter", "labelAddText: 点击绘制文本 " + textLabel + ",width=" +
+                    width + " ,height1= " + height1 + " ,posX= " + posX + " ,posY= " + posY
+                    + " ,rotateStr= " + rotateStr + " ,enableBold= " + enableBold);
+
+            PrinterHelper.getInstance().labelAddText(textLabel, LabelTextStyle.getTextStyle()
+                    .setPosX(posX)
+                    .setPosY(posY)
+                    .setTextSize(textSize)
+                    .setTextWidthRatio(textWidthRatio)
+                    .setTextHeightRatio(textHeightRatio)
+                    .setWidth(width)
+                    .setHeight(height1)
+                    .setAlign(Align.valueOf(alignStr))
+                    .setRotate(Rotate.valueOf(rotateStr))
+                    .setTextSpace(textSpace)
+                    .setEnableBold(enableBold)
+                    .setEnableUnderline(enableUnderline)
+                    .setEnableStrikethrough(enableStrikethrough)
+                    .setEnableItalics(enableItalics)
+                    .setEnAntiColor(enAntiColor));
+        }
+        result.success(true);
+    }
 
-                        @Override
-                        public void onRaiseException(int code, String msg) throws RemoteException {
+    // 绘制条形码内容
+    private void labelAddBarCode(MethodCall call, Result result) {
+        String barCode = call.argument("barCode");
+        Map<String, Object> barCodeStyleMap = call.argument("barCodeStyle");
+        if (barCodeStyleMap != null) {
+            Integer posX = (Integer) barCodeStyleMap.get("posX");
+            Integer posY = (Integer) barCodeStyleMap.get("posY");
+            Integer dotWidth = (Integer) barCodeStyleMap.get("dotWidth");
+            Integer barHeight = (Integer) barCodeStyleMap.get("barHeight");
+            String readable = (String) barCodeStyleMap.get("readable");
+            String symbology = (String) barCodeStyleMap.get("symbology");
+            String alignStr = (String) barCodeStyleMap.get("align");
+            String rotateStr = (String) barCodeStyleMap.get("rotate");
+            Integer width = (Integer) barCodeStyleMap.get("width");
+            Integer height1 = (Integer) barCodeStyleMap.get("height");
+
+            Log.e("IminPrinter", "labelAddBarCode: 绘制条形码内容 " + barCode + ",width=" +
+                    width + " ,height1= " + height1 + " ,posX= " + posX + " ,posY= " + posY + " ,readable= "
+                    + readable + " ,symbology= " + symbology);
+
+            PrinterHelper.getInstance().labelAddBarCode(barCode, LabelBarCodeStyle.getBarCodeStyle()
+                    .setPosX(posX)
+                    .setPosY(posY)
+                    .setSymbology(Symbology.valueOf(symbology))
+                    .setDotWidth(dotWidth)
+                    .setBarHeight(barHeight)
+                    .setReadable(HumanReadable.valueOf(readable))
+                    .setAlign(Align.valueOf(alignStr))
+                    .setRotate(Rotate.valueOf(rotateStr))
+                    .setWidth(width)
+                    .setHeight(height1));
+        }
+        result.success(true);
+    }
 
-                        }
+    // 绘制二维码内容
+    private void labelAddQrCode(MethodCall call, Result result) {
+        String qrCode = call.argument("qrCode");
+        Map<String, Object> qrCodeStyleMap = call.argument("qrCodeStyle");
+        if (qrCodeStyleMap != null) {
+            Integer posX = (Integer) qrCodeStyleMap.get("posX");
+            Integer posY = (Integer) qrCodeStyleMap.get("posY");
+            Integer size1 = (Integer) qrCodeStyleMap.get("size");
+            String errorLevelStr = (String) qrCodeStyleMap.get("errorLevel");
+            String rotateStr = (String) qrCodeStyleMap.get("rotate");
+            Integer width = (Integer) qrCodeStyleMap.get("width");
+            Integer height1 = (Integer) qrCodeStyleMap.get("height");
+            Log.e("IminPrinter", "labelAddQrCode: 绘制二维码内容 " + qrCode + ",width=" +
+                    width + " ,height1= " + height1 + " ,posX= " + posX + " ,posY= " + posY
+                    + " ,errorLevelStr= " + errorLevelStr + " ,size= " + size1);
+
+            PrinterHelper.getInstance().labelAddQrCode(qrCode, LabelQrCodeStyle.getQrCodeStyle()
+                    .setPosX(posX)
+                    .setPosY(posY)
+                    .setSize(size1)
+                    .setErrorLevel(ErrorLevel.valueOf(errorLevelStr))
+                    .setRotate(Rotate.valueOf(rotateStr))
+                    .setWidth(width)
+                    .setHeight(height1));
+        }
+        result.success(true);
+    }
 
-                        @Override
-                        public void onPrintResult(int code, String msg) throws RemoteException {
+    // 绘制图像
+    private void labelAddBitmap(MethodCall call, Result result) throws Exception {
+        byte[] bitmapBase64 = call.argument("bitmap");
+        String bitmapUrl = call.argument("bitmapUrl");
+        Map<String, Object> labelAddAreaMap = call.argument("addBitmapStyle");
+        Integer posX = (Integer) labelAddAreaMap.get("posX");
+        Integer posY = (Integer) labelAddAreaMap.get("posY");
+        String algorithm = (String) labelAddAreaMap.get("algorithm");
+        Integer value = (Integer) labelAddAreaMap.get("value");
+        Integer width = (Integer) labelAddAreaMap.get("width");
+        Integer height1 = (Integer) labelAddAreaMap.get("height");
+
+        Log.e("IminPrinter", "labelAddBitmap: 绘制图像 " + bitmapUrl + " ,width=" + width + " ,height1= "
+                + height1 + " ,posX= " + posX + " ,posY= " + posY + " ,algorithm= " + algorithm + " ,value= " + value);
+
+        Bitmap bitmap;
+        if (bitmapUrl == null || bitmapUrl.isEmpty()) {
+            bitmap = BitmapFactory.decodeByteArray(bitmapBase64, 0, bitmapBase64.length);
+        } else {
+            bitmap = printImageCache.get(bitmapUrl, width, height1, labelDither(algorithm), labelThreshold(value));
+        }
 
-                        }
-                    });
-                }
-                break;
-
-            case "getPrinterCutTimes":
-                if (iminPrintUtils == null) {
-                    PrinterHelper.getInstance().getPrinterCutTimes(new INeoPrinterCallback() {
-                        @Override
-                        public void onRunResult(boolean isSuccess) throws RemoteException {
-                            result.success(isSuccess);// "true 绑定服务成功" : "false 绑定服务失败"
-                        }
+        PrinterHelper.getInstance().labelAddBitmap(bitmap, LabelBitmapStyle.getBitmapStyle()
+                .setPosX(posX)
+                .setPosY(posY)
+                .setAlgorithm(ImageAlgorithm.valueOf(algorithm))
+                .setValue(value)
+                .setWidth(width)
+                .setHeight(height1));
+        result.success(true);
+    }
 
-                        @Override
-                        public void onReturnString(String s) throws RemoteException {
-                            result.success(s);
-                        }
+    // 打印标签样式的图片
+    private void printLabelBitmap(MethodCall call, Result result) throws Exception {
+        byte[] bitmapBase64 = call.argument("bitmap");
+        String bitmapUrl = call.argument("bitmapUrl");
+        Map<String, Object> labelAddAreaMap = call.argument("printBitmapStyle");
+        Integer width = (Integer) labelAddAreaMap.get("width");
+        Integer height1 = (Integer) labelAddAreaMap.get("height");
 
-                        @Override
-                        public void onRaiseException(int code, String msg) throws RemoteException {
+        Log.e("IminPrinter", "printLabelBitmap: 打印标签样式的图片 ,width=" + width + " ,height1= " + height1
+                + "  ,bitmapUrl= " + bitmapUrl + (bitmapBase64 == null));
 
-                        }
+        Bitmap bitmap;
+        if (bitmapUrl == null || bitmapUrl.isEmpty()) {
+            bitmap = BitmapFactory.decodeByteArray(bitmapBase64, 0, bitmapBase64.length);
+        } else {
+            bitmap = printImageCache.get(bitmapUrl, width, height1, EscPosRasterizer.Dither.THRESHOLD,
+                    EscPosRasterizer.DEFAULT_THRESHOLD);
+        }
 
-                        @Override
-                        public void onPrintResult(int code, String msg) throws RemoteException {
+        PrinterHelper.getInstance().labelAddBitmap(bitmap, LabelBitmapStyle.getBitmapStyle()
+                .setWidth(width)
+                .setHeight(height1));
+        result.success(true);
+    }
 
-                        }
-                    });
-                }
-                break;
-            // case "getPrinterMode":
-            // if (iminPrintUtils == null) {
-            // result.success(PrinterHelper.getInstance().getPrinterMode());
-            // }
-            // break;
-            case "getDrawerStatus":
-                if (iminPrintUtils == null) {
-                    result.success(PrinterHelper.getInstance().getDrawerStatus());
-                }
-                break;
-            case "getOpenDrawerTimes":
-                if (iminPrintUtils == null) {
-                    result.success(PrinterHelper.getInstance().getOpenDrawerTimes());
-                }
-                break;
-            case "printerSelfChecking":
-                if (iminPrintUtils == null) {
-                    PrinterHelper.getInstance().printerSelfChecking(null);
-                }
-                break;
-            case "sendRAWData":
-                if (iminPrintUtils == null) {
-                    PrinterHelper.getInstance().sendRAWData((byte[]) call.argument("bytes"), null);
-                }
-                result.success(true);
-                break;
-            case "setCodeAlignment":
-                if (iminPrintUtils == null) {
-                    int align = call.argument("align");
-                    Log.d("TAG", "setCodeAlignment: " + align);
-                    PrinterHelper.getInstance().setCodeAlignment(align);
-                }
-                result.success(true);
-                break;
-            case "setTextBitmapTypeface":
-                if (iminPrintUtils == null) {
-                    int textBitmapFont = call.argument("font");
-                    switch (textBitmapFont) {
-                        case 1:
-                            PrinterHelper.getInstance().setTextBitmapTypeface("Typeface.MONOSPACE");
-                            break;
-                        case 2:
-                            PrinterHelper.getInstance().setTextBitmapTypeface("Typeface.DEFAULT_BOLD");
-                            break;
-                        case 3:
-                            PrinterHelper.getInstance().setTextBitmapTypeface("Typeface.SANS_SERIF");
-                            break;
-                        case 4:
-                            PrinterHelper.getInstance().setTextBitmapTypeface("Typeface.SERIF");
-                            break;
-                        default:
-                            PrinterHelper.getInstance().setTextBitmapTypeface("Typeface.DEFAULT");
-                            break;
-                    }
-                }
-                result.success(true);
-                break;
-            case "setTextBitmapSize":
-                if (iminPrintUtils == null) {
-                    int textBitmapSize = call.argument("size");
-                    PrinterHelper.getInstance().setTextBitmapSize(textBitmapSize);
-                }
-                result.success(true);
-                break;
-            case "setTextBitmapStyle":
-                if (iminPrintUtils == null) {
-                    int textBitmapStyle = call.argument("style");
-                    Log.d("setTextBitmapStyle", "setTextBitmapStyle: " + textBitmapStyle);
-                    PrinterHelper.getInstance().setTextBitmapStyle(textBitmapStyle);
-                }
-                result.success(true);
-                break;
-            case "setTextBitmapStrikeThru":
-                if (iminPrintUtils == null) {
-                    boolean strikeThru = call.argument("strikeThru");
-                    PrinterHelper.getInstance().setTextBitmapStrikeThru(strikeThru);
-                }
-                result.success(true);
-                break;
-            case "setTextBitmapUnderline":
-                if (iminPrintUtils == null) {
-                    boolean haveUnderline = call.argument("haveUnderline");
-                    PrinterHelper.getInstance().setTextBitmapUnderline(haveUnderline);
-                }
-                result.success(true);
-                break;
-            case "setTextBitmapLineSpacing":
-                if (iminPrintUtils == null) {
-                    double lineHeight = call.argument("lineHeight");
-                    float s = ((Double) lineHeight).floatValue();
-                    PrinterHelper.getInstance().setTextBitmapLineSpacing(s);
-                }
-                result.success(true);
-                break;
-            case "setTextBitmapLetterSpacing":
-                if (iminPrintUtils == null) {
-                    double letterSpacing = call.argument("letterSpacing");
-                    float a = ((Double) letterSpacing).floatValue();
-                    PrinterHelper.getInstance().setTextBitmapLetterSpacing(a);
-                }
-                result.success(true);
-                break;
-            case "setTextBitmapAntiWhite":
-                if (iminPrintUtils == null) {
-                    boolean antiWhite = call.argument("antiWhite");
-                    PrinterHelper.getInstance().setTextBitmapAntiWhite(antiWhite);
-                }
-                result.success(true);
-                break;
-            case "printTextBitmap":
-                if (iminPrintUtils == null) {
-                    String textStr = call.argument("text");
-                    PrinterHelper.getInstance().printTextBitmap(textStr, null);
-                }
-                result.success(true);
-                break;
-            case "printTextBitmapWithAli":
-                if (iminPrintUtils == null) {
-                    String textBitmapString = call.argument("text");
-                    int textBitmapAlign = call.argument("align");
-                    PrinterHelper.getInstance().printTextBitmapWithAli(textBitmapString, textBitmapAlign, null);
-                }
-                result.success(true);
-                break;
-            case "printBitmapColorChart":
-                try {
-                    byte[] img = call.argument("bitmap");
-                    Bitmap bitmap = BitmapFactory.decodeByteArray(img, 0, img.length);
-                    if (call.argument("alignment") != null) {
-                        int align = call.argument("alignment");
-                        if (iminPrintUtils == null) {
-                            PrinterHelper.getInstance().printBitmapColorChartWithAlign(bitmap, align, null);
-                        }
+    // 绘制特殊图形
+    private void labelAddArea(MethodCall call, Result result) {
+        Map<String, Object> labelAddAreaMap = call.argument("areaStyle");
+        if (labelAddAreaMap != null) {
+            String styleString = (String) labelAddAreaMap.get("style");
+            Integer width = (Integer) labelAddAreaMap.get("width");
+            Integer height1 = (Integer) labelAddAreaMap.get("height");
+            Integer posX = (Integer) labelAddAreaMap.get("posX");
+            Integer posY = (Integer) labelAddAreaMap.get("posY");
+            Integer endX = (Integer) labelAddAreaMap.get("endX");
+            Integer endY = (Integer) labelAddAreaMap.get("endY");
+            Integer thick = (Integer) labelAddAreaMap.get("thick");
+            Log.e("IminPrinter", "labelAddArea: 绘制特殊图形 " + styleString + ",width=" +
+                    width + " ,height1= " + height1 + " ,posX= " + posX + " ,posY= " + posY + " ,endX= "
+                    + endX + " ,endY= " + endY + " ,thick= " + thick);
+            PrinterHelper.getInstance().labelAddArea(LabelAreaStyle.getAreaStyle()
+                    .setStyle(Shape.valueOf(styleString))
+                    .setWidth(width)
+                    .setHeight(height1)
+                    .setPosX(posX)
+                    .setPosY(posY)
+                    .setEndX(endX)
+                    .setEndY(endY)
+                    .setThick(thick));
+        }
+        result.success(true);
+    }
 
-                    } else {
-                        if (iminPrintUtils == null) {
-                            PrinterHelper.getInstance().printBitmapColorChart(bitmap, null);
-                        }
-                    }
-                    result.success(true);
-                } catch (Exception err) {
-                    Log.e("IminPrinter", "printBitmapColorChart:" + err.getMessage());
-                }
-                result.success(true);
-                break;
-            case "printColumnsString":
-                String colsString = call.argument("cols");
-                Log.e("IminPrinter", "printColumnsString ===> " + colsString);
-                try {
-                    JSONArray cols = new JSONArray(colsString);
-                    String[] colsText = new String[cols.length()];
-                    int[] colsWidth = new int[cols.length()];
-                    int[] colsAlign = new int[cols.length()];
-                    int[] colsFontSize = new int[cols.length()];
-                    for (int i = 0; i < cols.length(); i++) {
-                        JSONObject col = cols.getJSONObject(i);
-                        String textColumn = col.getString("text");
-                        int widthColumn = col.getInt("width");
-                        int alignColumn = col.getInt("align");
-                        int fontSizeColumn = col.getInt("fontSize");
-                        colsText[i] = textColumn;
-                        colsWidth[i] = widthColumn;
-                        colsAlign[i] = alignColumn;
-                        colsFontSize[i] = fontSizeColumn;
-                    }
-                    if (iminPrintUtils == null) {
-                        PrinterHelper.getInstance().printColumnsString(colsText, colsWidth, colsAlign, colsFontSize,
-                                null);
-                    }
-                    result.success(true);
-                } catch (Exception err) {
-                    Log.e("IminPrinter", err.getMessage());
-                    result.success(false);
-                }
+    // ESC/POS bytes written as hex text, whitespace between the bytes is allowed
+    private static byte[] hexToBytes(String hex) {
+        String digits = hex.replaceAll("\\s", "");
+        if (digits.length() % 2 != 0) {
+            throw new IllegalArgumentException("Odd number of hex digits");
+        }
+        byte[] bytes = new byte[digits.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(digits.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
 
-                break;
-            case "getPrinterIsUpdateStatus":
-                // if (iminPrintUtils == null) {
-                // result.success(PrinterHelper.getInstance().getPrinterIsUpdateStatus());
-                // }
-                result.success(true);
-                break;
-
-            case "enterPrinterBuffer":// 进入事务模式
-                if (iminPrintUtils == null) {
-                    boolean isClean = call.argument("isClean");
-                    PrinterHelper.getInstance().enterPrinterBuffer(isClean);
-                }
-                result.success(true);
-                break;
-            case "commitPrinterBuffer":// 提交事务打印
-                if (iminPrintUtils == null) {
-                    PrinterHelper.getInstance().commitPrinterBuffer(null);
+    private BroadcastReceiver createChargingStateChangeReceiver(EventChannel.EventSink events) {
+        return new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                int status = intent.getIntExtra(ACTION_PRITER_STATUS, -1);
+                Log.d("TAG", "打印机状态：" + intent.getAction());
+                if (intent.getAction().equals(ACTION_PRITER_STATUS_CHANGE)) {
+                    Map<String, Object> result = new HashMap<String, Object>();
+                    result.put("status", status);
+                    result.put("action", "printer_status");
+                    events.success(result);
+                } else {
+                    events.success(true);
                 }
-                result.success(true);
-                break;
+            }
+        };
+    }
 
-            case "exitPrinterBuffer":// exit事务模式
-                if (iminPrintUtils == null) {
-                    boolean isCommit = call.argument("isCommit");
-                    PrinterHelper.getInstance().exitPrinterBuffer(isCommit);
-                }
-                result.success(true);
-                break;
-            case "setIsOpenLog":
-                if (iminPrintUtils != null) {
-                    int open = call.argument("open");
-                    iminPrintUtils.setIsOpenLog(open);
-                }
-                result.success(true);
-                break;
-            case "sendRAWDataHexStr":
-                if (iminPrintUtils != null) {
-                    String open = call.argument("hex");
-                    iminPrintUtils.sendRAWData(open);
-                }
-                result.success(true);
-                break;
-            //// 标签打印
-
-            case "labelInitCanvas":// 标签初始化
-            {
-                if (iminPrintUtils == null) {
-                    Map<String, Object> labelCanvasStyleMap = call.argument("labelCanvasStyle");
-
-                    if (labelCanvasStyleMap != null) {
-                        Integer width = (Integer) labelCanvasStyleMap.get("width");
-                        Integer height1 = (Integer) labelCanvasStyleMap.get("height");
-                        Integer posX = (Integer) labelCanvasStyleMap.get("posX");
-                        Integer posY = (Integer) labelCanvasStyleMap.get("posY");
-
-                        // 使用解析后的数据
-                        Log.e("IminPrinter", "labelInitCanvas:" + width + " " + height1 + " " + posX + " ,y= " + posY);
-                        PrinterHelper.getInstance().labelInitCanvas(LabelCanvasStyle.getCanvasStyle()
-                                .setWidth(width)
-                                .setHeight(height1)
-                                .setPosX(posX)
-                                .setPosY(posY));
-                    }
-                    result.success(true);
-                }
+    private void buildHandlers() {
+        handlers.put("getSdkVersion", (call, result) -> result.success(sdkVersion));
+        handlers.put("initPrinter", (call, result) -> {
+            backend.init();
+            result.success(true);
+        });
+        handlers.put("getPrinterStatus",
+                (call, result) -> backend.getStatus(status -> result.success(String.format("%d", status))));
+        handlers.put("setTextSize", (call, result) -> {
+            int size = call.argument("size");
+            backend.setTextSize(size);
+            result.success(true);
+        });
+        handlers.put("setTextTypeface", (call, result) -> {
+            int font = call.argument("font");
+            backend.setTextTypeface(typefaceForFont(font));
+            result.success(true);
+        });
+        handlers.put("setTextStyle", (call, result) -> {
+            int style = call.argument("style");
+            backend.setTextTypeface(typefaceForStyle(style));
+            result.success(true);
+        });
+        handlers.put("setTextWidth", (call, result) -> {
+            int textWidth = call.argument("width");
+            backend.setTextWidth(textWidth);
+            result.success(true);
+        });
+        handlers.put("setAlignment", (call, result) -> {
+            int alignment = call.argument("alignment");
+            backend.setAlignment(alignment);
+            result.success(true);
+        });
+        handlers.put("setTextLineSpacing", (call, result) -> {
+            double space = call.argument("space");
+            backend.setTextLineSpacing((float) space);
+            result.success(true);
+        });
+        handlers.put("printColumnsText", (call, result) -> {
+            columnRows.printRow(call.argument("cols"), backend::printColumnsText);
+            result.success(true);
+        });
+        handlers.put("printColumnsTable", (call, result) -> {
+            // A whole itemised table in one call: rows of [text, width, align, fontSize] columns
+            List<Object> rows = call.argument("rows");
+            if (rows == null) {
+                result.error("INVALID_ARGUMENT", "rows is required", null);
+                return;
             }
-                break;
-            case "labelAddText":// 绘制文本内容
-            {
-                Log.e("IminPrinter", "labelAddText: 点击绘制文本");
-                if (iminPrintUtils == null) {
-                    String textLabel = call.argument("text");
-                    Map<String, Object> labelAddTexteMap = call.argument("labelTexStyle");
-                    if (labelAddTexteMap != null) {
-                        // 手动解析每个参数
-                        Integer posX = (Integer) labelAddTexteMap.get("posX");
-                        Integer posY = (Integer) labelAddTexteMap.get("posY");
-                        Integer textSize = (Integer) labelAddTexteMap.get("textSize");
-                        Integer textWidthRatio = (Integer) labelAddTexteMap.get("textWidthRatio");
-                        Integer textHeightRatio = (Integer) labelAddTexteMap.get("textHeightRatio");
-                        Integer width = (Integer) labelAddTexteMap.get("width");
-                        Integer height1 = (Integer) labelAddTexteMap.get("height");
-                        String alignStr = (String) labelAddTexteMap.get("align");
-                        String rotateStr = (String) labelAddTexteMap.get("rotate");
-                        Integer textSpace = (Integer) labelAddTexteMap.get("textSpace");
-                        Boolean enableBold = (Boolean) labelAddTexteMap.get("enableBold");
-                        Boolean enableUnderline = (Boolean) labelAddTexteMap.get("enableUnderline");
-                        Boolean enableStrikethrough = (Boolean) labelAddTexteMap.get("enableStrikethrough");
-                        Boolean enableItalics = (Boolean) labelAddTexteMap.get("enableItalics");
-                        Boolean enAntiColor = (Boolean) labelAddTexteMap.get("enAntiColor");
-
-                        Log.e("IminPrinter", "labelAddText: 点击绘制文本 " + textLabel + ",width=" +
-                                width + " ,height1= " + height1 + " ,posX= " + posX + " ,posY= " + posY
-                                + " ,rotateStr= " + rotateStr + " ,enableBold= " + enableBold);
-
-                        // 将字符串转换为枚举类型
-                        Align align = Align.valueOf(alignStr);
-                        Rotate rotate = Rotate.valueOf(rotateStr);
-
-                        PrinterHelper.getInstance().labelAddText(textLabel, LabelTextStyle.getTextStyle()
-                                .setPosX(posX)
-                                .setPosY(posY)
-                                .setTextSize(textSize)
-                                .setTextWidthRatio(textWidthRatio)
-                                .setTextHeightRatio(textHeightRatio)
-                                .setWidth(width)
-                                .setHeight(height1)
-                                .setAlign(align)
-                                .setRotate(rotate)
-                                .setTextSpace(textSpace)
-                                .setEnableBold(enableBold)
-                                .setEnableUnderline(enableUnderline)
-                                .setEnableStrikethrough(enableStrikethrough)
-                                .setEnableItalics(enableItalics)
-                                .setEnAntiColor(enAntiColor));
-                    }
-                    result.success(true);
-                }
+            columnRows.printRows(rows, backend::printColumnsText);
+            result.success(true);
+        });
+        handlers.put("printText", (call, result) -> {
+            String text = call.argument("text");
+            backend.printText(text + "\n");
+            result.success(true);
+        });
+        handlers.put("printAntiWhiteText", (call, result) -> {
+            String whiteText = call.argument("text");
+            backend.printAntiWhiteText(whiteText + "\n");
+            result.success(true);
+        });
+        handlers.put("printAndLineFeed", (call, result) -> {
+            backend.printAndLineFeed();
+            result.success(true);
+        });
+        handlers.put("printAndFeedPaper", (call, result) -> {
+            int height = call.argument("height");
+            backend.printAndFeedPaper(height);
+            result.success(true);
+        });
+        handlers.put("partialCut", (call, result) -> {
+            backend.partialCut();
+            result.success(true);
+        });
+        handlers.put("fullCut", (call, result) -> {
+            backend.fullCut();
+            result.success(true);
+        });
+        handlers.put("printSingleBitmap", (call, result) -> {
+            byte[] img = call.argument("bitmap");
+            Bitmap bitmap = BitmapFactory.decodeByteArray(img, 0, img.length);
+            backend.printBitmap(bitmap, call.argument("alignment"), PrinterBackend.BitmapMode.NORMAL);
+            result.success(true);
+        });
+        handlers.put("printSingleBitmapBlackWhite", (call, result) -> {
+            byte[] blackWhiteBytes = call.argument("bitmap");
+            Bitmap blackWhiteBitmap = BitmapFactory.decodeByteArray(blackWhiteBytes, 0, blackWhiteBytes.length);
+            backend.printBitmap(blackWhiteBitmap, null, PrinterBackend.BitmapMode.BLACK_WHITE);
+            result.success(true);
+        });
+        handlers.put("printBitmapColorChart", (call, result) -> {
+            if (backend.supports(PrinterBackend.Capability.COLOR_CHART)) {
+                byte[] img = call.argument("bitmap");
+                Bitmap bitmap = BitmapFactory.decodeByteArray(img, 0, img.length);
+                backend.printBitmap(bitmap, call.argument("alignment"), PrinterBackend.BitmapMode.COLOR_CHART);
             }
-                break;
-            case "labelAddBarCode":// 绘制条形码内容
-            {
-                if (iminPrintUtils == null) {
-                    String barCode = call.argument("barCode");
-                    Map<String, Object> barCodeStyleMap = call.argument("barCodeStyle");
-                    if (barCodeStyleMap != null) {
-                        // 直接从 map 获取各个属性
-                        Integer posX = (Integer) barCodeStyleMap.get("posX");
-                        Integer posY = (Integer) barCodeStyleMap.get("posY");
-                        Integer dotWidth = (Integer) barCodeStyleMap.get("dotWidth");
-                        Integer barHeight = (Integer) barCodeStyleMap.get("barHeight");
-                        String readable = (String) barCodeStyleMap.get("readable");
-                        String symbology = (String) barCodeStyleMap.get("symbology");
-                        String alignStr = (String) barCodeStyleMap.get("align");
-                        String rotateStr = (String) barCodeStyleMap.get("rotate");
-                        Integer width = (Integer) barCodeStyleMap.get("width");
-                        Integer height1 = (Integer) barCodeStyleMap.get("height");
-
-                        Rotate rotate = Rotate.valueOf(rotateStr);
-                        Align align = Align.valueOf(alignStr);
-                        HumanReadable readable1 = HumanReadable.valueOf(readable);
-                        Symbology symbology1 = Symbology.valueOf(symbology);
-
-                        Log.e("IminPrinter", "labelAddBarCode: 绘制条形码内容 " + barCode + ",width=" +
-                                width + " ,height1= " + height1 + " ,posX= " + posX + " ,posY= " + posY + " ,readable= "
-                                + readable + " ,symbology= " + symbology + "  ,HumanReadable=>   " + readable1);
-
-                        PrinterHelper.getInstance().labelAddBarCode(barCode, LabelBarCodeStyle.getBarCodeStyle()
-                                .setPosX(posX)
-                                .setPosY(posY)
-                                .setSymbology(symbology1)
-                                .setDotWidth(dotWidth)
-                                .setBarHeight(barHeight)
-                                .setReadable(readable1)
-                                .setAlign(align)
-                                .setRotate(rotate)
-                                .setWidth(width)
-                                .setHeight(height1));
-
-                    }
-                    result.success(true);
-                }
-
-                Log.e("IminPrinter", "labelAddBarCode: 绘制条形码内容");
-
+            result.success(true);
+        });
+        handlers.put("printMultiBitmap", (call, result) -> {
+            ArrayList<byte[]> multiBytes = call.argument("bitmaps");
+            ArrayList<Bitmap> bitmaps = new ArrayList<Bitmap>();
+            for (int i = 0; i < multiBytes.size(); i++) {
+                bitmaps.add(BitmapFactory.decodeByteArray(multiBytes.get(i), 0, multiBytes.get(i).length));
             }
-                break;
-            case "labelAddQrCode":// 绘制二维码内容
-            {
-                Log.e("IminPrinter", "labelAddQrCode: 绘制二维码内容");
-                if (iminPrintUtils == null) {
-                    String qrCode = call.argument("qrCode");
-                    Map<String, Object> qrCodeStyleMap = call.argument("qrCodeStyle");
-                    if (qrCodeStyleMap != null) {
-                        // 直接从 map 获取各个属性
-                        Integer posX = (Integer) qrCodeStyleMap.get("posX");
-                        Integer posY = (Integer) qrCodeStyleMap.get("posY");
-                        Integer size1 = (Integer) qrCodeStyleMap.get("size");
-                        String errorLevelStr = (String) qrCodeStyleMap.get("errorLevel");
-                        String rotateStr = (String) qrCodeStyleMap.get("rotate");
-                        Integer width = (Integer) qrCodeStyleMap.get("width");
-                        Integer height1 = (Integer) qrCodeStyleMap.get("height");
-                        Log.e("IminPrinter", "labelAddQrCode: 绘制二维码内容 " + qrCode + ",width=" +
-                                width + " ,height1= " + height1 + " ,posX= " + posX + " ,posY= " + posY
-                                + " ,errorLevelStr= " + errorLevelStr + " ,size= " + size1);
-
-                        Rotate rotate = Rotate.valueOf(rotateStr);
-                        ErrorLevel errorLevel = ErrorLevel.valueOf(errorLevelStr);
-
-                        PrinterHelper.getInstance().labelAddQrCode(qrCode, LabelQrCodeStyle.getQrCodeStyle()
-                                .setPosX(posX)
-                                .setPosY(posY)
-                                .setSize(size1)
-                                .setErrorLevel(errorLevel)
-                                .setRotate(rotate)
-                                .setWidth(width)
-                                .setHeight(height1));
-
-                    }
-                    result.success(true);
-                }
+            backend.printMultiBitmap(bitmaps, call.argument("alignment"));
+            result.success(true);
+        });
+        handlers.put("printBitmapToUrl", this::printBitmapToUrl);
+        handlers.put("setQrCodeSize", (call, result) -> {
+            int qrSize = call.argument("qrSize");
+            backend.setQrCodeSize(qrSize);
+            result.success(true);
+        });
+        handlers.put("setLeftMargin", (call, result) -> {
+            int margin = call.argument("margin");
+            backend.setLeftMargin(margin);
+            result.success(true);
+        });
+        handlers.put("setQrCodeErrorCorrectionLev", (call, result) -> {
+            int level = call.argument("level");
+            backend.setQrCodeErrorCorrectionLev(level);
+            result.success(true);
+        });
+        handlers.put("printQrCode", (call, result) -> {
+            String qrStr = call.argument("data");
+            backend.printQrCode(qrStr, call.argument("alignment"), call.argument("qrSize"), call.argument("level"));
+            result.success(true);
+        });
+        handlers.put("setBarCodeWidth", (call, result) -> {
+            int barCodeWidth = call.argument("width");
+            backend.setBarCodeWidth(barCodeWidth);
+            result.success(true);
+        });
+        handlers.put("setBarCodeHeight", (call, result) -> {
+            int barCodeHeight = call.argument("height");
+            backend.setBarCodeHeight(barCodeHeight);
+            result.success(true);
+        });
+        handlers.put("setBarCodeContentPrintPos", (call, result) -> {
+            int barCodePosition = call.argument("position");
+            backend.setBarCodeContentPrintPos(barCodePosition);
+            result.success(true);
+        });
+        handlers.put("setPageFormat", (call, result) -> {
+            int formatStyle = call.argument("style");
+            backend.setPageFormat(formatStyle);
+            result.success(true);
+        });
+        handlers.put("printBarCode", (call, result) -> {
+            String barCodeContent = call.argument("data");
+            int barCodeType = call.argument("type");
+            Log.d("IminPrinter:printBarCode", "barCodeType:" + barCodeType + ", barCodeContent:" + barCodeContent);
+            backend.printBarCode(barCodeType, barCodeContent, call.argument("align"), call.argument("width"),
+                    call.argument("height"), call.argument("position"));
+            result.success(true);
+        });
+        handlers.put("setDoubleQRSize", (call, result) -> {
+            int size = call.argument("size");
+            if (backend.supports(PrinterBackend.Capability.DOUBLE_QR)) {
+                backend.setDoubleQRSize(size);
             }
-                break;
-            case "labelAddBitmap":// 绘制图像
-            {
-                Log.e("IminPrinter", "labelAddBitmap: 绘制图像");
-                if (iminPrintUtils == null) {
-                    new Thread(new Runnable() {
-                        @Override
-                        public void run() {
-                            try {
-                                byte[] bitmapBase64 = call.argument("bitmap");
-                                String bitmapUrl = call.argument("bitmapUrl");
-                                Map<String, Object> labelAddAreaMap = call.argument("addBitmapStyle");
-                                Integer posX = (Integer) labelAddAreaMap.get("posX");
-                                Integer posY = (Integer) labelAddAreaMap.get("posY");
-                                String algorithm = (String) labelAddAreaMap.get("algorithm");
-                                Integer value = (Integer) labelAddAreaMap.get("value");
-                                Integer width = (Integer) labelAddAreaMap.get("width");
-                                Integer height1 = (Integer) labelAddAreaMap.get("height");
-                                ImageAlgorithm imageAlgorithm = ImageAlgorithm.valueOf(algorithm);
-
-                                Log.e("IminPrinter",
-                                        "labelAddBitmap: 绘制图像 " + bitmapUrl + " ,width=" + width + " ,height1= "
-                                                + height1 + " ,posX= " + posX + " ,posY= " + posY + " ,algorithm= "
-                                                + algorithm + " ,value= " + value);
-
-                                Bitmap bitmap = null;
-                                if (bitmapUrl == null || bitmapUrl.isEmpty()) {
-                                    bitmap = BitmapFactory.decodeByteArray(bitmapBase64, 0, bitmapBase64.length);
-                                } else {
-                                    bitmap = Glide.with(_context).asBitmap().load(bitmapUrl)
-                                            .diskCacheStrategy(DiskCacheStrategy.NONE).skipMemoryCache(true)
-                                            .submit(width, height1).get();
-                                }
-
-                                PrinterHelper.getInstance().labelAddBitmap(bitmap, LabelBitmapStyle.getBitmapStyle()
-                                        .setPosX(posX)
-                                        .setPosY(posY)
-                                        .setAlgorithm(imageAlgorithm)
-                                        .setValue(value)
-                                        .setWidth(width)
-                                        .setHeight(height1));
-
-                                result.success(true);
-                            } catch (Exception e) {
-                                Log.e("IminPrinter", "labelAddBitmap: 绘制图像 e" + e.getMessage());
-                                result.success(false);
-                            }
-                        }
-                    }).start();
-
-                }
-
+            result.success(true);
+        });
+        handlers.put("setDoubleQR1Level", (call, result) -> {
+            int level = call.argument("level");
+            if (backend.supports(PrinterBackend.Capability.DOUBLE_QR)) {
+                backend.setDoubleQRLevel(1, level);
             }
-                break;
-            case "printLabelBitmap":// 打印标签样式的图片
-            {
-                Log.e("IminPrinter", "printLabelBitmap: 打印标签样式的图片");
-                if (iminPrintUtils == null) {
-                    new Thread(new Runnable() {
-                        @Override
-                        public void run() {
-                            try {
-                                byte[] bitmapBase64 = call.argument("bitmap");
-                                String bitmapUrl = call.argument("bitmapUrl");
-                                Map<String, Object> labelAddAreaMap = call.argument("printBitmapStyle");
-                                Integer width = (Integer) labelAddAreaMap.get("width");
-                                Integer height1 = (Integer) labelAddAreaMap.get("height");
-
-                                Log.e("IminPrinter", "labelAddArea: 绘制特殊图形 " + ",width=" +
-                                        width + " ,height1= " + height1 + "  ,bitmapUrl= " + bitmapUrl
-                                        + (bitmapBase64 == null));
-
-                                Bitmap bitmap = null;
-                                if (bitmapUrl == null || bitmapUrl.isEmpty()) {
-                                    bitmap = BitmapFactory.decodeByteArray(bitmapBase64, 0, bitmapBase64.length);
-                                } else {
-                                    bitmap = Glide.with(_context).asBitmap().load(bitmapUrl)
-                                            .diskCacheStrategy(DiskCacheStrategy.NONE).skipMemoryCache(true)
-                                            .submit(width, height1).get();
-                                }
-
-                                PrinterHelper.getInstance().labelAddBitmap(bitmap, LabelBitmapStyle.getBitmapStyle()
-                                        .setWidth(width)
-                                        .setHeight(height1));
-
-                                result.success(true);
-                            } catch (Exception e) {
-                                Log.e("IminPrinter", "printLabelBitmap: 打印标签样式的图片 e " + e.getMessage());
-                                result.success(false);
-                            }
-                        }
-                    }).start();
+            result.success(true);
+        });
+        handlers.put("setDoubleQR1MarginLeft", (call, result) -> {
+            int leftMargin = call.argument("leftMargin");
+            if (backend.supports(PrinterBackend.Capability.DOUBLE_QR)) {
+                backend.setDoubleQRMarginLeft(1, leftMargin);
+            }
+            result.success(true);
+        });
+        handlers.put("setDoubleQR1Version", (call, result) -> {
+            int version = call.argument("version");
+            if (backend.supports(PrinterBackend.Capability.DOUBLE_QR)) {
+                backend.setDoubleQRVersion(1, version);
+            }
+            result.success(true);
+        });
+        handlers.put("setDoubleQR2Level", (call, result) -> {
+            int level = call.argument("level");
+            if (backend.supports(PrinterBackend.Capability.DOUBLE_QR)) {
+                backend.setDoubleQRLevel(2, level);
+            }
+            result.success(true);
+        });
+        handlers.put("setDoubleQR2MarginLeft", (call, result) -> {
+            int leftMargin = call.argument("leftMargin");
+            if (backend.supports(PrinterBackend.Capability.DOUBLE_QR)) {
+                backend.setDoubleQRMarginLeft(2, leftMargin);
+            }
+            result.success(true);
+        });
+        handlers.put("setDoubleQR2Version", (call, result) -> {
+            int version = call.argument("version");
+            if (backend.supports(PrinterBackend.Capability.DOUBLE_QR)) {
+                backend.setDoubleQRVersion(2, version);
+            }
+            result.success(true);
+        });
+        handlers.put("printDoubleQR", (call, result) -> {
+            if (backend.supports(PrinterBackend.Capability.DOUBLE_QR)) {
+                backend.printDoubleQR(call.argument("qrCode1Text"), call.argument("qrCode2Text"));
+            }
+            result.success(true);
+        });
+        handlers.put("sendRAWData", (call, result) -> {
+            backend.sendRawData((byte[]) call.argument("bytes"));
+            result.success(true);
+        });
+        handlers.put("openCashBox", (call, result) -> {
+            DeviceProfile deviceProfile = Utils.getInstance().getDeviceProfile();
+            Log.d(TAG, "openCashBox called - Model: " + deviceProfile.buildModel + ", Device: "
+                    + deviceProfile.buildDevice + ", backend: " + backend.name());
+            try {
+                backend.openDrawer();
+                Log.d(TAG, "SUCCESS: Drawer opened via " + backend.name());
+            } catch (Exception e) {
+                Log.e(TAG, "Opening the cash drawer failed: " + e.getMessage());
+            }
+            result.success(true);
+        });
+        handlers.put("printBatch", this::printBatch);
+        handlers.put("selectPrinterBackend", this::selectPrinterBackend);
+        handlers.put("getExecutorMetrics", (call, result) -> result.success(executors.metrics()));
+        handlers.put("clearImageCache", (call, result) -> {
+            printImageCache.clear();
+            result.success(true);
+        });
+        handlers.put("getPrinterIsUpdateStatus", (call, result) -> result.success(true));
+        buildDeviceSessionHandlers();
+        buildPrinterServiceHandlers();
+        buildTextBitmapHandlers();
+        buildLabelHandlers();
+    }
 
-                }
+    /**
+     * Handler that only runs when the current backend has the capability. A query or label call
+     * has no sensible answer without it, so the caller gets an error instead of a missing reply.
+     */
+    private MethodHandler requires(PrinterBackend.Capability capability, MethodHandler handler) {
+        return (call, result) -> {
+            if (backend.supports(capability)) {
+                handler.handle(call, result);
+            } else {
+                result.error("UNSUPPORTED", call.method + " is not supported by the " + backend.name()
+                        + " printer backend", null);
+            }
+        };
+    }
 
+    // SDK 1.0 session commands, acknowledged as no-ops by the other backends
+    private void buildDeviceSessionHandlers() {
+        handlers.put("setInitIminPrinter", (call, result) -> {
+            boolean isDefault = call.argument("isDefault");
+            if (backend.supports(PrinterBackend.Capability.DEVICE_SESSION)) {
+                iminPrintUtils.setInitIminPrinter(isDefault);
             }
-                break;
-            case "labelAddArea":// 绘制特殊图形
-            {
-                if (iminPrintUtils == null) {
-                    Map<String, Object> labelAddAreaMap = call.argument("areaStyle");
-
-                    if (labelAddAreaMap != null) {
-                        // 获取具体的参数
-                        String styleString = (String) labelAddAreaMap.get("style");
-                        Integer width = (Integer) labelAddAreaMap.get("width");
-                        Integer height1 = (Integer) labelAddAreaMap.get("height");
-                        Integer posX = (Integer) labelAddAreaMap.get("posX");
-                        Integer posY = (Integer) labelAddAreaMap.get("posY");
-                        Integer endX = (Integer) labelAddAreaMap.get("endX");
-                        Integer endY = (Integer) labelAddAreaMap.get("endY");
-                        Integer thick = (Integer) labelAddAreaMap.get("thick");
-                        Log.e("IminPrinter", "labelAddArea: 绘制特殊图形 " + styleString + ",width=" +
-                                width + " ,height1= " + height1 + " ,posX= " + posX + " ,posY= " + posY + " ,endX= "
-                                + endX + " ,endY= " + endY + " ,thick= " + thick);
-                        // 转换字符串到枚举
-                        Shape styleShape = Shape.valueOf(styleString);
-                        PrinterHelper.getInstance().labelAddArea(LabelAreaStyle.getAreaStyle()
-                                .setStyle(styleShape)
-                                .setWidth(width)
-                                .setHeight(height1)
-                                .setPosX(posX)
-                                .setPosY(posY)
-                                .setEndX(endX)
-                                .setEndY(endY)
-                                .setThick(thick));
-                    }
-                    result.success(true);
-                }
+            result.success(true);
+        });
+        handlers.put("resetDevice", (call, result) -> {
+            if (backend.supports(PrinterBackend.Capability.DEVICE_SESSION)) {
+                iminPrintUtils.resetDevice();
+            }
+            result.success(true);
+        });
+        handlers.put("setIsOpenLog", (call, result) -> {
+            int open = call.argument("open");
+            if (backend.supports(PrinterBackend.Capability.DEVICE_SESSION)) {
+                iminPrintUtils.setIsOpenLog(open);
+            }
+            result.success(true);
+        });
+        handlers.put("sendRAWDataHexStr", (call, result) -> {
+            String hex = call.argument("hex");
+            if (backend.supports(PrinterBackend.Capability.RAW_DATA)) {
+                backend.sendRawData(hexToBytes(hex));
+            }
+            result.success(true);
+        });
+    }
 
+    // SDK 2.0 printer service: setters are acknowledged as no-ops elsewhere, queries are unsupported
+    private void buildPrinterServiceHandlers() {
+        PrinterBackend.Capability service = PrinterBackend.Capability.PRINTER_SERVICE;
+        handlers.put("initPrinterParams", (call, result) -> {
+            if (backend.supports(service)) {
+                PrinterHelper.getInstance().initPrinterParams();
             }
-                break;
-            case "labelPrintCanvas":// 打印绘制的内容
-            {
-
-                if (iminPrintUtils == null) {
-                    int printCount = call.argument("printCount");
-                    Log.e("IminPrinter", "labelPrintCanvas: 打印绘制的内容 =>" + printCount);
-                    PrinterHelper.getInstance().labelPrintCanvas(printCount, new ILabelPrintResult() {
-                        @Override
-                        public void onResult(int resultCode, String message) throws RemoteException {
-
-                            result.success(true);
-                        }
+            result.success(true);
+        });
+        handlers.put("unBindService", (call, result) -> {
+            if (backend.supports(service)) {
+                PrinterHelper.getInstance().deInitPrinterService(_context);
+            }
+            result.success(true);
+        });
+        handlers.put("printerSelfChecking", (call, result) -> {
+            if (backend.supports(service)) {
+                PrinterHelper.getInstance().printerSelfChecking(null);
+            }
+            result.success(true);
+        });
+        handlers.put("setCodeAlignment", (call, result) -> {
+            int align = call.argument("align");
+            if (backend.supports(service)) {
+                PrinterHelper.getInstance().setCodeAlignment(align);
+            }
+            result.success(true);
+        });
+        // 从getFontCodepage 列表的脚标（0、1、3...）
+        handlers.put("setFontCodepage", printerSetting("codepage",
+                value -> PrinterHelper.getInstance().setFontCodepage(value)));
+        handlers.put("setPrinterEncode", printerSetting("encode",
+                value -> PrinterHelper.getInstance().setPrinterEncode(value)));
+        handlers.put("setPrinterDensity", printerSetting("density",
+                value -> PrinterHelper.getInstance().setPrinterDensity(value)));
+        handlers.put("setPrinterSpeed", printerSetting("speed",
+                value -> PrinterHelper.getInstance().setPrinterSpeed(value)));
+
+        handlers.put("getFontCodepage", requires(service,
+                (call, result) -> result.success(PrinterHelper.getInstance().getFontCodepage())));
+        handlers.put("getCurCodepage", requires(service,
+                (call, result) -> result.success(PrinterHelper.getInstance().getCurCodepage())));
+        handlers.put("getEncodeList", requires(service,
+                (call, result) -> result.success(PrinterHelper.getInstance().getEncodeList())));
+        handlers.put("getCurEncode", requires(service,
+                (call, result) -> result.success(PrinterHelper.getInstance().getCurEncode())));
+        handlers.put("getPrinterDensityList", requires(service,
+                (call, result) -> result.success(PrinterHelper.getInstance().getPrinterDensityList())));
+        handlers.put("getPrinterDensity", requires(service,
+                (call, result) -> result.success(PrinterHelper.getInstance().getPrinterDensity())));
+        handlers.put("getPrinterSpeedList", requires(service,
+                (call, result) -> result.success(PrinterHelper.getInstance().getPrinterSpeedList())));
+        handlers.put("getPrinterSpeed", requires(service,
+                (call, result) -> result.success(PrinterHelper.getInstance().getPrinterSpeed())));
+        handlers.put("getPrinterPaperTypeList", requires(service,
+                (call, result) -> result.success(PrinterHelper.getInstance().getPrinterPaperTypeList())));
+        handlers.put("getPrinterPaperType", requires(service,
+                (call, result) -> result.success(PrinterHelper.getInstance().getPrinterPaperType())));
+        handlers.put("getServiceVersion", requires(service,
+                (call, result) -> result.success(PrinterHelper.getInstance().getServiceVersion())));
+        handlers.put("getUsbPrinterVidPid", requires(service,
+                (call, result) -> result.success(PrinterHelper.getInstance().getUsbPrinterVidPid())));
+        handlers.put("getUsbDevicesName", requires(service,
+                (call, result) -> result.success(PrinterHelper.getInstance().getUsbDevicesName())));
+        handlers.put("getDrawerStatus", requires(service,
+                (call, result) -> result.success(PrinterHelper.getInstance().getDrawerStatus())));
+        handlers.put("getOpenDrawerTimes", requires(service,
+                (call, result) -> result.success(PrinterHelper.getInstance().getOpenDrawerTimes())));
+        // Answered by the printer itself through a callback, so they wait with a timeout
+        handlers.put("getPrinterSerialNumber", printerQuery("getPrinterSerialNumber",
+                callback -> PrinterHelper.getInstance().getPrinterSerialNumber(callback)));
+        handlers.put("getPrinterModelName", printerQuery("getPrinterModelName",
+                callback -> PrinterHelper.getInstance().getPrinterModelName(callback)));
+        handlers.put("getPrinterThermalHead", printerQuery("getPrinterThermalHead",
+                callback -> PrinterHelper.getInstance().getPrinterThermalHead(callback)));
+        handlers.put("getPrinterFirmwareVersion", printerQuery("getPrinterFirmwareVersion",
+                callback -> PrinterHelper.getInstance().getPrinterFirmwareVersion(callback)));
+        handlers.put("getPrinterHardwareVersion", printerQuery("getPrinterHardwareVersion",
+                callback -> PrinterHelper.getInstance().getPrinterHardwareVersion(callback)));
+        handlers.put("getPrinterPaperDistance", printerQuery("getPrinterPaperDistance",
+                callback -> PrinterHelper.getInstance().getPrinterPaperDistance(callback)));
+        handlers.put("getPrinterCutTimes", printerQuery("getPrinterCutTimes",
+                callback -> PrinterHelper.getInstance().getPrinterCutTimes(callback)));
+        handlers.put("getPrinterInfo", requires(service,
+                (call, result) -> NeoPrinterQuery.reply(printerInfoCache.get(), result)));
+
+        // 事务模式, also used by printBatch
+        PrinterBackend.Capability buffer = PrinterBackend.Capability.PRINTER_BUFFER;
+        handlers.put("enterPrinterBuffer", (call, result) -> {
+            boolean isClean = call.argument("isClean");
+            if (backend.supports(buffer)) {
+                PrinterHelper.getInstance().enterPrinterBuffer(isClean);
+            }
+            result.success(true);
+        });
+        handlers.put("commitPrinterBuffer", (call, result) -> {
+            if (backend.supports(buffer)) {
+                PrinterHelper.getInstance().commitPrinterBuffer(null);
+            }
+            result.success(true);
+        });
+        handlers.put("exitPrinterBuffer", (call, result) -> {
+            boolean isCommit = call.argument("isCommit");
+            if (backend.supports(buffer)) {
+                PrinterHelper.getInstance().exitPrinterBuffer(isCommit);
+            }
+            result.success(true);
+        });
+    }
 
-                        @Override
-                        public IBinder asBinder() {
-                            return null;
-                        }
-                    });
-                }
+    private interface PrinterSetter {
+        void set(int value);
+    }
 
+    // A changed setting makes the cached getPrinterInfo snapshot stale
+    private MethodHandler printerSetting(String argument, PrinterSetter setter) {
+        return (call, result) -> {
+            int value = call.argument(argument);
+            if (backend.supports(PrinterBackend.Capability.PRINTER_SERVICE)) {
+                setter.set(value);
+                invalidatePrinterInfo();
             }
-                break;
-            case "labelLearning":// 标签学习
-            {
+            result.success(true);
+        };
+    }
 
-                if (iminPrintUtils == null) {
-                    Log.e("IminPrinter", "labelLearning: 标签学习");
-                    PrinterHelper.getInstance().labelPaperLearning(new INeoPrinterCallback() {
-                        @Override
-                        public void onRunResult(boolean isSuccess) throws RemoteException {
+    private MethodHandler printerQuery(String name, NeoPrinterQuery.Call request) {
+        return requires(PrinterBackend.Capability.PRINTER_SERVICE,
+                (call, result) -> NeoPrinterQuery.reply(NeoPrinterQuery.query(name, request), result));
+    }
 
-                        }
+    // SDK 2.0 text bitmap printing, acknowledged as no-ops by the other backends
+    private void buildTextBitmapHandlers() {
+        handlers.put("setTextBitmapTypeface", textBitmap(call -> {
+            int font = call.argument("font");
+            PrinterHelper.getInstance().setTextBitmapTypeface(textBitmapTypeface(font));
+        }));
+        handlers.put("setTextBitmapSize", textBitmap(call -> {
+            int size = call.argument("size");
+            PrinterHelper.getInstance().setTextBitmapSize(size);
+        }));
+        handlers.put("setTextBitmapStyle", textBitmap(call -> {
+            int style = call.argument("style");
+            PrinterHelper.getInstance().setTextBitmapStyle(style);
+        }));
+        handlers.put("setTextBitmapStrikeThru", textBitmap(call -> {
+            boolean strikeThru = call.argument("strikeThru");
+            PrinterHelper.getInstance().setTextBitmapStrikeThru(strikeThru);
+        }));
+        handlers.put("setTextBitmapUnderline", textBitmap(call -> {
+            boolean haveUnderline = call.argument("haveUnderline");
+            PrinterHelper.getInstance().setTextBitmapUnderline(haveUnderline);
+        }));
+        handlers.put("setTextBitmapLineSpacing", textBitmap(call -> {
+            double lineHeight = call.argument("lineHeight");
+            PrinterHelper.getInstance().setTextBitmapLineSpacing((float) lineHeight);
+        }));
+        handlers.put("setTextBitmapLetterSpacing", textBitmap(call -> {
+            double letterSpacing = call.argument("letterSpacing");
+            PrinterHelper.getInstance().setTextBitmapLetterSpacing((float) letterSpacing);
+        }));
+        handlers.put("setTextBitmapAntiWhite", textBitmap(call -> {
+            boolean antiWhite = call.argument("antiWhite");
+            PrinterHelper.getInstance().setTextBitmapAntiWhite(antiWhite);
+        }));
+        handlers.put("printTextBitmap", textBitmap(call -> {
+            String text = call.argument("text");
+            PrinterHelper.getInstance().printTextBitmap(text, null);
+        }));
+        handlers.put("printTextBitmapWithAli", textBitmap(call -> {
+            String text = call.argument("text");
+            int align = call.argument("align");
+            PrinterHelper.getInstance().printTextBitmapWithAli(text, align, null);
+        }));
+        handlers.put("printColumnsString", textBitmap(call ->
+                columnRows.printRow(call.argument("cols"), (colsText, colsWidth, colsAlign, colsFontSize) ->
+                        PrinterHelper.getInstance().printColumnsString(colsText, colsWidth, colsAlign,
+                                colsFontSize, null))));
+    }
 
-                        @Override
-                        public void onReturnString(String s) throws RemoteException {
-                            Log.e("IminPrinter", "labelLearning: 标签学习" + s);
-                            result.success(true);
-                        }
+    private interface TextBitmapCommand {
+        void run(MethodCall call) throws Exception;
+    }
 
-                        @Override
-                        public void onRaiseException(int code, String msg) throws RemoteException {
+    private MethodHandler textBitmap(TextBitmapCommand command) {
+        return (call, result) -> {
+            if (backend.supports(PrinterBackend.Capability.TEXT_BITMAP)) {
+                command.run(call);
+            }
+            result.success(true);
+        };
+    }
 
-                        }
+    private static String textBitmapTypeface(int font) {
+        switch (font) {
+            case 1:
+                return "Typeface.MONOSPACE";
+            case 2:
+                return "Typeface.DEFAULT_BOLD";
+            case 3:
+                return "Typeface.SANS_SERIF";
+            case 4:
+                return "Typeface.SERIF";
+            default:
+                return "Typeface.DEFAULT";
+        }
+    }
 
-                        @Override
-                        public void onPrintResult(int code, String msg) throws RemoteException {
+    // 标签打印, only on the SDK 2.0 printer service
+    private void buildLabelHandlers() {
+        PrinterBackend.Capability label = PrinterBackend.Capability.LABEL;
+        handlers.put("labelInitCanvas", requires(label, this::labelInitCanvas));
+        handlers.put("labelAddText", requires(label, this::labelAddText));
+        handlers.put("labelAddBarCode", requires(label, this::labelAddBarCode));
+        handlers.put("labelAddQrCode", requires(label, this::labelAddQrCode));
+        handlers.put("labelAddBitmap", requires(label, this::labelAddBitmap));
+        handlers.put("printLabelBitmap", requires(label, this::printLabelBitmap));
+        handlers.put("labelAddArea", requires(label, this::labelAddArea));
+        handlers.put("labelPrintCanvas", requires(label, (call, result) -> {
+            int printCount = call.argument("printCount");
+            Log.e("IminPrinter", "labelPrintCanvas: 打印绘制的内容 =>" + printCount);
+            PrinterHelper.getInstance().labelPrintCanvas(printCount, new ILabelPrintResult() {
+                @Override
+                public void onResult(int resultCode, String message) throws RemoteException {
+                    result.success(true);
+                }
 
+                @Override
+                public IBinder asBinder() {
+                    return null;
+                }
+            });
+        }));
+        handlers.put("labelLearning", requires(label, (call, result) -> {
+            // Learning feeds labels until it finds the gap, so it gets longer than a plain query
+            NeoPrinterQuery.reply(NeoPrinterQuery.query("labelPaperLearning",
+                    PrinterHelper.getInstance()::labelPaperLearning, learned -> {
+                        Log.e("IminPrinter", "labelLearning: 标签学习" + learned);
+                        return true;
+                    }, LABEL_LEARNING_TIMEOUT_MS), result);
+        }));
+        handlers.put("setPrintModel", requires(label, (call, result) -> {
+            int printModel = call.argument("printModel");
+            Log.e("IminPrinter", "setPrintModel: 设置打印模式" + printModel);
+            PrinterHelper.getInstance().setPrinterMode(printModel);
+            result.success(true);
+        }));
+        handlers.put("getPrintModel", requires(label, (call, result) -> {
+            NeoPrinterQuery.reply(NeoPrinterQuery.query("labelGetPrinterMode",
+                    PrinterHelper.getInstance()::labelGetPrinterMode, mode -> {
+                        Log.e("IminPrinter", "getPrintModel: 获取当前打印机模式" + mode);
+                        if (mode == null || mode.isEmpty()) {
+                            throw new IllegalStateException("Empty printer mode");
                         }
-                    });
-                }
+                        return mode.equalsIgnoreCase("Label") ? 1 : 0;
+                    }, NeoPrinterQuery.DEFAULT_TIMEOUT_MS), result);
+        }));
+    }
 
-            }
-                break;
-            case "setPrintModel":// 设置打印模式
-            {
-
-                if (iminPrintUtils == null) {
-                    int printModel = call.argument("printModel");
-                    Log.e("IminPrinter", "setPrintModel: 设置打印模式" + printModel);
-                    PrinterHelper.getInstance().setPrinterMode(printModel);
-                    result.success(true);
+    private static Typeface typefaceForFont(int font) {
+        switch (font) {
+            case 1:
+                return Typeface.MONOSPACE;
+            case 2:
+                return Typeface.DEFAULT_BOLD;
+            case 3:
+                return Typeface.SANS_SERIF;
+            case 4:
+                return Typeface.SERIF;
+            default:
+                return Typeface.DEFAULT;
+        }
+    }
+
+    private static Typeface typefaceForStyle(int style) {
+        switch (style) {
+            case 1:
+                return Typeface.DEFAULT_BOLD;
+            case 2:
+                return Typeface.defaultFromStyle(Typeface.ITALIC);
+            case 3:
+                return Typeface.defaultFromStyle(Typeface.BOLD_ITALIC);
+            default:
+                return Typeface.DEFAULT;
+        }
+    }
+
+    private void printBitmapToUrl(MethodCall call, Result result) {
+        try {
+            // Cached, repeat receipts skip the download and the decode. Images are only pre-dithered
+            // when the caller asks for it, otherwise the SDK does its own grayscale processing.
+            String ditherName = call.argument("dither");
+            Integer thresholdArg = call.argument("threshold");
+            EscPosRasterizer.Dither urlDither = ditherName != null ? EscPosRasterizer.Dither.fromName(ditherName)
+                    : null;
+            int urlThreshold = thresholdArg != null ? thresholdArg : EscPosRasterizer.DEFAULT_THRESHOLD;
+            Integer timeoutArg = call.argument("imageTimeout");
+            long imageTimeout = timeoutArg != null ? timeoutArg : IMAGE_FETCH_TIMEOUT_MS;
+            if (call.argument("height") != null && call.argument("width") != null) {
+                int imageWidth = call.argument("width");
+                int imageHeight = call.argument("height");
+                Integer align = call.argument("alignment");
+                if (call.argument("multiBitmap") != null) {
+                    ArrayList<String> multiBytes = call.argument("bitmaps");
+                    backend.printMultiBitmap(printImageCache.getAll(multiBytes, imageWidth, imageHeight, urlDither,
+                            urlThreshold, executors.io(), imageTimeout), align);
+                } else {
+                    String img = call.argument("bitmap");
+                    PrinterBackend.BitmapMode mode = call.argument("SingleBitmapColorChart") != null
+                            ? PrinterBackend.BitmapMode.COLOR_CHART
+                            : call.argument("blackWhite") != null ? PrinterBackend.BitmapMode.BLACK_WHITE
+                                    : PrinterBackend.BitmapMode.NORMAL;
+                    // The color chart path needs the grayscale image
+                    Bitmap image = printImageCache.get(img, imageWidth, imageHeight,
+                            mode == PrinterBackend.BitmapMode.COLOR_CHART ? null : urlDither, urlThreshold);
+                    backend.printBitmap(image, align, mode);
                 }
             }
-                break;
-            case "getPrintModel":// 获取当前打印机模式
-            {
-
-                if (iminPrintUtils == null) {
-                    Log.e("IminPrinter", "getPrintModel: 获取当前打印机模式");
-                    PrinterHelper.getInstance().labelGetPrinterMode(new INeoPrinterCallback() {
-                        @Override
-                        public void onRunResult(boolean isSuccess) throws RemoteException {
+            result.success(true);
+        } catch (PrintImageCache.FetchException err) {
+            Log.e("IminPrinter", "printBitmapToUrl:" + err.getMessage());
+            Map<String, Object> details = new HashMap<String, Object>();
+            details.put("index", err.index);
+            details.put("url", err.url);
+            result.error("IMAGE_FETCH_FAILED", err.getMessage(), details);
+        } catch (Exception err) {
+            Log.e("IminPrinter", "printBitmapToUrl:" + err.getMessage());
+            result.success(false);
+        }
+    }
 
-                        }
+    private void printBatch(MethodCall call, Result result) {
+        // A whole receipt in one round trip: [{"method": ..., "args": {...}}, ...]
+        List<Map<String, Object>> commands = call.argument("commands");
+        if (commands == null) {
+            result.error("INVALID_ARGUMENT", "commands is required", null);
+            return;
+        }
+        Boolean stopOnError = call.argument("stopOnError");
+        Boolean useBuffer = call.argument("useBuffer");
+        Integer commandTimeout = call.argument("commandTimeout");
+        // Only SDK 2.0 has a printer buffer, the other backends print each command as it arrives
+        PrintBatchRunner.Transaction transaction = backend.supports(PrinterBackend.Capability.PRINTER_BUFFER)
+                && (useBuffer == null || useBuffer) ? new PrintBatchRunner.Transaction() {
+                    @Override
+                    public void begin() {
+                        PrinterHelper.getInstance().enterPrinterBuffer(true);
+                    }
 
-                        @Override
-                        public void onReturnString(String string) throws RemoteException {
-                            Log.e("IminPrinter", "getPrintModel: 获取当前打印机模式" + string);
-                            if (string != null && !string.isEmpty()) {
-                                if (string.equalsIgnoreCase("Label")) {
-                                    result.success(1);
-                                } else {
-                                    result.success(0);
-                                }
-                            }
-                        }
+                    @Override
+                    public void end(boolean commit) {
+                        PrinterHelper.getInstance().exitPrinterBuffer(commit);
+                    }
+                } : null;
+        // Already on the printer thread, so the batch's commands run inline, in order
+        Map<String, Object> summary = PrintBatchRunner.run(commands, this, transaction,
+                stopOnError == null || stopOnError,
+                commandTimeout != null ? commandTimeout : PrintBatchRunner.DEFAULT_COMMAND_TIMEOUT_MS);
+        Log.d(TAG, "printBatch: " + summary.get("executed") + "/" + commands.size()
+                + " commands, success=" + summary.get("success"));
+        result.success(summary);
+    }
 
-                        @Override
-                        public void onRaiseException(int code, String msg) throws RemoteException {
-                        }
+    /**
+     * Switch the receipt handlers between the device's iMin SDK ("sdk") and a raw ESC/POS
+     * USB printer ("usb", with vendorId, productId and optional paperWidth and charset)
+     */
+    private void selectPrinterBackend(MethodCall call, Result result) {
+        String name = call.argument("backend");
+        if (!"usb".equals(name)) {
+            switchBackend(sdkBackend);
+            result.success(backend.name());
+            return;
+        }
 
-                        @Override
-                        public void onPrintResult(int code, String msg) throws RemoteException {
-                        }
+        String vendorId = String.valueOf(call.<Object>argument("vendorId"));
+        String productId = String.valueOf(call.<Object>argument("productId"));
+        UsbPrinterServices usbPrinterServices = UsbPrinterServices.getInstance(_context);
+        UsbDevice device = usbPrinterServices.deviceIndex().find(vendorId, productId);
+        if (device == null) {
+            result.error("PRINTER_NOT_FOUND", "No USB device " + vendorId + ":" + productId, null);
+            return;
+        }
+        if (!usbPrinterServices.usbManager().hasPermission(device)) {
+            // Permission is requested through the thermal printer channel
+            result.error("USB_PERMISSION_DENIED", "No permission for USB device " + device.getDeviceName(), null);
+            return;
+        }
+        Integer paperWidth = call.argument("paperWidth");
+        String charset = call.argument("charset");
+        switchBackend(new EscPosUsbPrinterBackend(usbPrinterServices.connectionManager(), device,
+                paperWidth != null ? paperWidth : DEFAULT_USB_PAPER_WIDTH,
+                Charset.forName(charset != null ? charset : DEFAULT_USB_CHARSET)));
+        result.success(backend.name());
+    }
 
-                        @Override
-                        public IBinder asBinder() {
-                            return null;
-                        }
-                    });
-                }
-            }
+    private void switchBackend(PrinterBackend next) {
+        PrinterBackend previous = backend;
+        if (previous != next) {
+            backend = next;
+            previous.close();
+            Log.d(TAG, "Printer backend: " + next.name());
+        }
+    }
 
-                break;
-            default:
-                result.notImplemented();
-                break;
+    private void invalidatePrinterInfo() {
+        if (printerInfoCache != null) {
+            printerInfoCache.invalidate();
         }
     }
 
-    private BroadcastReceiver createChargingStateChangeReceiver(EventChannel.EventSink events) {
-        return new BroadcastReceiver() {
+    // A status change can mean a reconnected or replaced printer, so the cached info is reloaded on next use
+    private void registerPrinterInfoReceiver() {
+        printerInfoReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
-                int status = intent.getIntExtra(ACTION_PRITER_STATUS, -1);
-                Log.d("TAG", "打印机状态：" + intent.getAction());
-                if (intent.getAction().equals(ACTION_PRITER_STATUS_CHANGE)) {
-                    Map<String, Object> result = new HashMap<String, Object>();
-                    result.put("status", status);
-                    result.put("action", "printer_status");
-                    events.success(result);
-                } else {
-                    events.success(true);
-                }
+                printerInfoCache.invalidate();
             }
         };
+        IntentFilter filter = new IntentFilter(ACTION_PRITER_STATUS_CHANGE);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            // Sent by the iMin printer service, which is another app
+            _context.registerReceiver(printerInfoReceiver, filter, Context.RECEIVER_EXPORTED);
+        } else {
+            _context.registerReceiver(printerInfoReceiver, filter);
+        }
     }
 
     @Override
     public void onDetachedFromEngine(@NonNull FlutterPluginBinding binding) {
         channel.setMethodCallHandler(null);
+        if (printerInfoReceiver != null) {
+            _context.unregisterReceiver(printerInfoReceiver);
+            printerInfoReceiver = null;
+        }
+        if (executors != null) {
+            executors.shutdown();
+        }
+        if (backend != null) {
+            backend.close();
+        }
     }
 
     @Override
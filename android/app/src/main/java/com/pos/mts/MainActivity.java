@@ -5,17 +5,11 @@ import android.bluetooth.BluetoothDevice;
 import android.bluetooth.BluetoothGatt;
 import android.bluetooth.BluetoothGattCallback;
 import android.annotation.SuppressLint;
-import android.app.Presentation;
 import android.content.Context;
 import android.hardware.display.DisplayManager;
 import android.os.Build;
 import android.hardware.usb.UsbDevice;
 import android.hardware.usb.UsbManager;
-import android.hardware.usb.UsbDeviceConnection;
-import android.hardware.usb.UsbInterface;
-import android.hardware.usb.UsbEndpoint;
-import android.hardware.usb.UsbConstants;
-import android.app.PendingIntent;
 import android.content.BroadcastReceiver;
 import android.content.Intent;
 import android.content.IntentFilter;
@@ -27,20 +21,22 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 
-import com.google.gson.Gson;
 
 import org.json.JSONObject;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Set;
 import java.util.HashSet;
 
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import io.flutter.embedding.android.FlutterActivity;
 import io.flutter.embedding.engine.FlutterEngine;
-import io.flutter.embedding.engine.FlutterEngineCache;
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 import io.flutter.plugin.common.EventChannel;
@@ -51,7 +47,6 @@ import io.flutter.embedding.engine.plugins.FlutterPlugin;
 import io.flutter.embedding.engine.plugins.activity.ActivityAware;
 import io.flutter.embedding.engine.plugins.activity.ActivityPluginBinding;
 import io.flutter.FlutterInjector;
-import io.flutter.embedding.engine.dart.DartExecutor;
 import io.flutter.plugins.GeneratedPluginRegistrant;
 
 public class MainActivity extends FlutterActivity implements ActivityAware {
@@ -59,72 +54,69 @@ public class MainActivity extends FlutterActivity implements ActivityAware {
     private static final String TAG = "MainActivity";
     private static final String CHANNEL = "presentation_displays_plugin";
     private static final String EVENT_CHANNEL = "com.pos.mts/event_channel";
-    MethodChannel flutterEngineChannel;
     private Context context;
     private DisplayManager displayManager;
-    private HashMap<Integer, Presentation> presentations = new HashMap<>();
+    // Attached displays kept current by a DisplayListener, serves listDisplay and the hot-plug events
+    private DisplayStateCache displayStateCache;
+    private HashMap<Integer, PresentationDisplay> presentations = new HashMap<>();
+    // Warm engines for the presentation routes, spawned from one FlutterEngineGroup
+    private PresentationEnginePool presentationEnginePool;
+    // Coalesced binary updates to each display's presentation engine, and the display used when none is given
+    private final PresentationDataBus presentationDataBus = new PresentationDataBus();
+    private static final long FIRST_FRAME_TIMEOUT_MS = 1000;
+    private int dataDisplayId = -1;
+    // What a display that went away was showing, by display name, to show again when it comes back
+    private final HashMap<String, RestorablePresentation> restorablePresentations = new HashMap<>();
+    // Ids of reconnected displays by their id before the reconnect, so ids held by Dart keep working
+    private final HashMap<Integer, Integer> displayIdAliases = new HashMap<>();
+
+    private static class RestorablePresentation {
+        final int displayId;
+        final String route;
+        final Object data;
+
+        RestorablePresentation(int displayId, String route, Object data) {
+            this.displayId = displayId;
+            this.route = route;
+            this.data = data;
+        }
+    }
 
     private static final String GATT_CHANNEL = "bluetooth_gatt_utils"; // Add this
     private static final String THERMAL_PRINTER_CHANNEL = "flutter_thermal_printer"; // Add this
     private static final String THERMAL_PRINTER_EVENT_CHANNEL = "flutter_thermal_printer/events"; // Add this
+    // Error for jobs whose permission request was dropped by teardown, they stay in the spool
+    private static final String USB_PERMISSION_CANCELLED = "USB_PERMISSION_CANCELLED";
     private BluetoothGatt currentGatt; // Add this
     private final BluetoothAdapter bluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
 
     // Track connected USB printers
     private Set<String> connectedPrinters = new HashSet<>();
 
-    // USB permission handling
-    private static final String ACTION_USB_PERMISSION = "com.pos.mts.USB_PERMISSION";
-    private Result pendingPrintResult;
-    private String pendingVendorId;
-    private String pendingProductId;
-    private List<Integer> pendingPrintData;
-    private String pendingPrintPath;
+    // Open USB connections kept across print jobs, keyed by the same printer id
+    private UsbConnectionManager usbConnectionManager;
+
+    // Shared USB printer state, the queue and spool outlive a recreated activity
+    private UsbPrinterServices usbPrinterServices;
+
+    // Serial print queue per USB printer, keeps blocking transfers off the main thread
+    private UsbPrintQueue usbPrintQueue;
+
+    // Background thread for image conversion
+    private final ExecutorService imageExecutor = Executors.newSingleThreadExecutor();
+
+    // Crash-safe journal of print jobs, and jobs recovered from it that still have to be printed
+    private PrintSpool printSpool;
+    private Map<Long, PrintSpool.Job> recoveredJobs = new LinkedHashMap<>();
+
+    // USB permission handling, queues every waiting job per device
+    private UsbPermissionBroker usbPermissionBroker;
 
     // USB device listener
     private ThermalPrinterEventStreamHandler thermalPrinterEventHandler;
     private BroadcastReceiver usbDeviceReceiver;
+    private UsbDeviceIndex usbDeviceIndex;
 
-    private final BroadcastReceiver usbReceiver = new BroadcastReceiver() {
-        public void onReceive(Context context, Intent intent) {
-            String action = intent.getAction();
-            if (ACTION_USB_PERMISSION.equals(action)) {
-                synchronized (this) {
-                    UsbDevice device = (UsbDevice) intent.getParcelableExtra(UsbManager.EXTRA_DEVICE);
-                    if (intent.getBooleanExtra(UsbManager.EXTRA_PERMISSION_GRANTED, false)) {
-                        if (device != null) {
-                            Log.d(TAG, "USB permission granted for device: " + device.getDeviceName());
-                            // Check if this is a print request or just a permission request
-                            if (pendingPrintResult != null) {
-                                if (pendingPrintData != null && pendingPrintPath != null) {
-                                    // This is a print request - proceed with actual printing
-                                    performActualPrint(pendingVendorId, pendingProductId, pendingPrintData,
-                                            pendingPrintPath, pendingPrintResult);
-                                } else {
-                                    // This is just a permission request - return success
-                                    pendingPrintResult.success(true);
-                                }
-                            }
-                        }
-                    } else {
-                        Log.e(TAG, "USB permission denied");
-                        if (pendingPrintResult != null) {
-                            if (pendingPrintData != null && pendingPrintPath != null) {
-                                pendingPrintResult.error("USB_PERMISSION_DENIED", "User denied USB permission", null);
-                            } else {
-                                // This is just a permission request - return false
-                                pendingPrintResult.success(false);
-                            }
-                        }
-                    }
-                    // Clear pending data
-                    clearPendingPrintData();
-                }
-            }
-        }
-    };
-
-    // USB device attach/detach receiver
     private void initializeUsbDeviceReceiver() {
         usbDeviceReceiver = new BroadcastReceiver() {
             @Override
@@ -133,15 +125,23 @@ public class MainActivity extends FlutterActivity implements ActivityAware {
 
                 if (UsbManager.ACTION_USB_DEVICE_ATTACHED.equals(action)) {
                     UsbDevice device = (UsbDevice) intent.getParcelableExtra(UsbManager.EXTRA_DEVICE);
-                    if (device != null && isPrinterDevice(device)) {
-                        Log.d(TAG, "USB printer attached: " + device.getDeviceName());
-                        handleUsbPrinterConnected(device);
+                    if (device != null) {
+                        // Index every device, the printer check is cached with the entry
+                        usbDeviceIndex.onAttached(device);
+                        if (usbDeviceIndex.isPrinter(device)) {
+                            Log.d(TAG, "USB printer attached: " + device.getDeviceName());
+                            handleUsbPrinterConnected(device);
+                        }
                     }
                 } else if (UsbManager.ACTION_USB_DEVICE_DETACHED.equals(action)) {
                     UsbDevice device = (UsbDevice) intent.getParcelableExtra(UsbManager.EXTRA_DEVICE);
-                    if (device != null && isPrinterDevice(device)) {
-                        Log.d(TAG, "USB printer detached: " + device.getDeviceName());
-                        handleUsbPrinterDisconnected(device);
+                    if (device != null) {
+                        boolean isPrinter = usbDeviceIndex.isPrinter(device);
+                        usbDeviceIndex.onDetached(device);
+                        if (isPrinter) {
+                            Log.d(TAG, "USB printer detached: " + device.getDeviceName());
+                            handleUsbPrinterDisconnected(device);
+                        }
                     }
                 }
             }
@@ -163,46 +163,6 @@ public class MainActivity extends FlutterActivity implements ActivityAware {
         }
     }
 
-    // Check if the USB device is a printer (supports various thermal printer types)
-    private boolean isPrinterDevice(UsbDevice device) {
-        // Check USB class 7 (Printer class)
-        for (int i = 0; i < device.getInterfaceCount(); i++) {
-            UsbInterface usbInterface = device.getInterface(i);
-            if (usbInterface.getInterfaceClass() == 7) { // USB_CLASS_PRINTER
-                Log.d(TAG, "Device is printer (USB class 7)");
-                return true;
-            }
-        }
-
-        int vendorId = device.getVendorId();
-        int productId = device.getProductId();
-
-        // Check for common thermal printer vendor IDs
-        switch (vendorId) {
-            case 0x04b8: // Epson
-                Log.d(TAG, "Detected Epson printer (VID: 0x04b8)");
-                return true;
-            case 0x0519: // Star Micronics
-                Log.d(TAG, "Detected Star Micronics printer (VID: 0x0519)");
-                return true;
-            case 0x1d90: // Citizen
-                Log.d(TAG, "Detected Citizen printer (VID: 0x1d90)");
-                return true;
-            case 0x0471: // Philips (some thermal printers)
-                Log.d(TAG, "Detected Philips thermal printer (VID: 0x0471)");
-                return true;
-            case 0x0fe6: // iMin devices (including Swan 2 Pro)
-                Log.d(TAG, "Detected iMin device (VID: 0x0fe6) - ProductID: " + productId);
-                return true;
-            case 0x25a7: // Alternative iMin vendor ID
-                Log.d(TAG, "Detected iMin device (VID: 0x25a7)");
-                return true;
-            default:
-                Log.d(TAG, "Unknown vendor ID: 0x" + Integer.toHexString(vendorId));
-                return false;
-        }
-    }
-
     // Handle USB printer connection
     private void handleUsbPrinterConnected(UsbDevice device) {
         String vendorId = String.valueOf(device.getVendorId());
@@ -211,6 +171,9 @@ public class MainActivity extends FlutterActivity implements ActivityAware {
 
         Log.d(TAG, "Attempting to connect to USB printer: " + printerId);
 
+        // Recovered jobs whose printer was missing at startup print once it is plugged in
+        replayRecoveredJobs(vendorId, productId);
+
         // Call connectThermalPrinter method
         connectThermalPrinter(vendorId, productId, new MethodChannel.Result() {
             @Override
@@ -259,8 +222,11 @@ public class MainActivity extends FlutterActivity implements ActivityAware {
 
         Log.d(TAG, "USB printer disconnected: " + printerId);
 
-        // Remove from connected printers set
+        // Remove from connected printers set and close the pooled connection
         connectedPrinters.remove(printerId);
+        if (usbConnectionManager != null) {
+            usbConnectionManager.invalidate(printerId);
+        }
 
         // Send event to Flutter
         if (thermalPrinterEventHandler != null) {
@@ -280,6 +246,10 @@ public class MainActivity extends FlutterActivity implements ActivityAware {
         super.configureFlutterEngine(flutterEngine);
 
         this.displayManager = (DisplayManager) getSystemService(Context.DISPLAY_SERVICE);
+        if (displayStateCache == null) {
+            displayStateCache = new DisplayStateCache(displayManager);
+            displayStateCache.addListener(this::onDisplayEvent);
+        }
 
         // Ensure the activity is fully initialized before any plugin operations
         getWindow().getDecorView().post(() -> {
@@ -287,6 +257,9 @@ public class MainActivity extends FlutterActivity implements ActivityAware {
             Log.d(TAG, "Activity fully initialized");
         });
         this.context = this;
+        if (presentationEnginePool == null) {
+            presentationEnginePool = new PresentationEnginePool(this);
+        }
 
         // Manually register the plugins
         flutterEngine.getPlugins().add(new IminPrinterPlugin());
@@ -298,50 +271,52 @@ public class MainActivity extends FlutterActivity implements ActivityAware {
                             case "showPresentation":
                                 String displayId = call.argument("displayId");
                                 String routerName = call.argument("routerName");
-                                result.success(showPresentation(displayId, routerName));
+                                showPresentation(displayId, routerName, result);
                                 break;
                             case "hidePresentation":
                                 hidePresentation(call, result);
                                 break;
                             case "listDisplay":
-
-                                Gson gson = new Gson();
                                 String category = call.argument("category");
-                                Display[] displays = displayManager != null ? displayManager.getDisplays(category)
-                                        : null;
-                                List<DisplayJson> listJson = new ArrayList<>();
-
-                                if (displays != null) {
-                                    for (Display display : displays) {
-                                        DisplayJson d = new DisplayJson(
-                                                String.valueOf(display.getDisplayId()),
-                                                String.valueOf(display.getFlags()),
-                                                String.valueOf(display.getRotation()),
-                                                display.getName());
-                                        listJson.add(d);
-
-                                        // Show toast for each DisplayJson object
-                                    }
-                                }
-
-                                result.success(gson.toJson(listJson));
+                                result.success(displayStateCache.listJson(category));
                                 break;
 
                             case "transferDataToPresentation":
                                 try {
-                                    flutterEngineChannel.invokeMethod("DataTransfer", call.arguments);
+                                    presentationDataBus.publish(dataTarget(call), call.argument("data"));
                                     result.success(true);
                                 } catch (Exception e) {
                                     Log.e(TAG, "Error in transferDataToPresentation", e);
                                     result.success(false);
                                 }
                                 break;
+                            case "patchPresentationData":
+                                try {
+                                    presentationDataBus.patch(dataTarget(call), call.argument("changes"));
+                                    result.success(true);
+                                } catch (Exception e) {
+                                    Log.e(TAG, "Error in patchPresentationData", e);
+                                    result.success(false);
+                                }
+                                break;
+                            case "getDataBusMetrics":
+                                result.success(presentationDataBus.metrics());
+                                break;
                             case "hideAllPresentations":
                                 hideAllPresentations(result);
                                 break;
                             case "getActivePresentationsCount":
                                 result.success(presentations.size());
                                 break;
+                            case "prewarmPresentations":
+                                List<String> routes = call.argument("routes");
+                                if (routes == null) {
+                                    result.error("INVALID_ARGUMENT", "routes is required", null);
+                                    break;
+                                }
+                                presentationEnginePool.prewarm(routes);
+                                result.success(true);
+                                break;
                             default:
                                 result.notImplemented();
                                 break;
@@ -350,7 +325,7 @@ public class MainActivity extends FlutterActivity implements ActivityAware {
                 });
 
         new EventChannel(flutterEngine.getDartExecutor().getBinaryMessenger(), EVENT_CHANNEL)
-                .setStreamHandler(new DisplayConnectedStreamHandler(displayManager));
+                .setStreamHandler(new DisplayConnectedStreamHandler(displayStateCache));
 
         new MethodChannel(flutterEngine.getDartExecutor().getBinaryMessenger(), GATT_CHANNEL)
                 .setMethodCallHandler((call, result) -> {
@@ -383,6 +358,20 @@ public class MainActivity extends FlutterActivity implements ActivityAware {
                     }
                 });
 
+        UsbManager usbManager = (UsbManager) getSystemService(Context.USB_SERVICE);
+        // Shared with IminPrinterPlugin's USB backend, so only one owner ever claims a printer's interface
+        usbPrinterServices = UsbPrinterServices.getInstance(this);
+        usbConnectionManager = usbPrinterServices.connectionManager();
+        usbDeviceIndex = usbPrinterServices.deviceIndex();
+        // The permission dialog pauses the activity, so the receiver stays registered until onDestroy
+        usbPermissionBroker = new UsbPermissionBroker(this, usbManager);
+        usbPermissionBroker.register();
+        // Reuses the queue and spool of a previous instance, so recovered jobs are only replayed once
+        usbPrinterServices.startPrinting(this);
+        usbPrintQueue = usbPrinterServices.printQueue();
+        printSpool = usbPrinterServices.printSpool();
+        recoveredJobs = usbPrinterServices.recoveredJobs();
+
         // Add thermal printer method channel handler
         new MethodChannel(flutterEngine.getDartExecutor().getBinaryMessenger(), THERMAL_PRINTER_CHANNEL)
                 .setMethodCallHandler((call, result) -> {
@@ -399,11 +388,66 @@ public class MainActivity extends FlutterActivity implements ActivityAware {
                             connectThermalPrinter(vendorId, productId, result);
                             break;
                         case "printText":
+                            // Legacy List<Integer> payload, kept for older Dart callers
                             String printVendorId = call.argument("vendorId");
                             String printProductId = call.argument("productId");
-                            List<Integer> data = call.argument("data");
+                            byte[] data = toByteArray(call.argument("data"));
                             String path = call.argument("path");
-                            printText(printVendorId, printProductId, data, path, result);
+                            long textJobId = usbPrintQueue.newJobId();
+                            printText(printVendorId, printProductId, data, path, textJobId,
+                                    spoolJob(textJobId, PrintSpool.KIND_BYTES, printVendorId, printProductId, 0,
+                                            null, 0, data, result));
+                            break;
+                        case "printBytes":
+                            // Uint8List payload arrives as byte[] and goes straight to the transfer
+                            String bytesVendorId = call.argument("vendorId");
+                            String bytesProductId = call.argument("productId");
+                            byte[] bytes = call.argument("data");
+                            String bytesPath = call.argument("path");
+                            long bytesJobId = usbPrintQueue.newJobId();
+                            printText(bytesVendorId, bytesProductId, bytes, bytesPath, bytesJobId,
+                                    spoolJob(bytesJobId, PrintSpool.KIND_BYTES, bytesVendorId, bytesProductId, 0,
+                                            null, 0, bytes, result));
+                            break;
+                        case "enqueuePrint":
+                            // Reply with the job id right away, the outcome arrives as a print_job event
+                            String jobVendorId = call.argument("vendorId");
+                            String jobProductId = call.argument("productId");
+                            byte[] jobData = toByteArray(call.argument("data"));
+                            String jobPath = call.argument("path");
+                            long jobId = usbPrintQueue.newJobId();
+                            result.success(jobId);
+                            printText(jobVendorId, jobProductId, jobData, jobPath, jobId,
+                                    spoolJob(jobId, PrintSpool.KIND_BYTES, jobVendorId, jobProductId, 0, null, 0,
+                                            jobData, createPrintJobEventResult(jobId, jobVendorId, jobProductId)));
+                            break;
+                        case "printImage":
+                            // Dithered natively and streamed band by band while the rest is converted
+                            String imageVendorId = call.argument("vendorId");
+                            String imageProductId = call.argument("productId");
+                            byte[] printImageData = toByteArray(call.argument("data"));
+                            Integer imagePaperWidth = call.argument("paperWidth");
+                            String imageDither = call.argument("dither");
+                            Integer imageThreshold = call.argument("threshold");
+                            int imageWidth = imagePaperWidth != null ? imagePaperWidth
+                                    : EscPosRasterizer.PAPER_80MM_DOTS;
+                            EscPosRasterizer.Dither imageDitherMode = EscPosRasterizer.Dither.fromName(imageDither);
+                            int imageThresholdValue = imageThreshold != null ? imageThreshold
+                                    : EscPosRasterizer.DEFAULT_THRESHOLD;
+                            long imageJobId = usbPrintQueue.newJobId();
+                            printImage(imageVendorId, imageProductId, printImageData, imageWidth, imageDitherMode,
+                                    imageThresholdValue, imageJobId,
+                                    spoolJob(imageJobId, PrintSpool.KIND_IMAGE, imageVendorId, imageProductId,
+                                            imageWidth, imageDitherMode, imageThresholdValue, printImageData, result));
+                            break;
+                        case "getSpoolStatus":
+                            if (printSpool == null) {
+                                result.error("SPOOL_UNAVAILABLE", "Print spool could not be opened", null);
+                            } else {
+                                Map<String, Object> spoolStatus = printSpool.status();
+                                spoolStatus.put("recoveredCount", recoveredJobs.size());
+                                result.success(spoolStatus);
+                            }
                             break;
                         case "isConnected":
                             String connVendorId = call.argument("vendorId");
@@ -411,8 +455,22 @@ public class MainActivity extends FlutterActivity implements ActivityAware {
                             isConnected(connVendorId, connProductId, result);
                             break;
                         case "convertimage":
-                            List<Integer> imageData = call.argument("path");
-                            convertImageToGrayscale(imageData, result);
+                            byte[] imageData = toByteArray(call.argument("path"));
+                            Integer paperWidth = call.argument("paperWidth");
+                            String dither = call.argument("dither");
+                            Integer threshold = call.argument("threshold");
+                            convertImageToGrayscale(imageData,
+                                    paperWidth != null ? paperWidth : EscPosRasterizer.PAPER_80MM_DOTS,
+                                    EscPosRasterizer.Dither.fromName(dither),
+                                    threshold != null ? threshold : EscPosRasterizer.DEFAULT_THRESHOLD, result);
+                            break;
+                        case "benchmarkConvertImage":
+                            Integer benchmarkWidth = call.argument("paperWidth");
+                            List<Integer> heights = call.argument("heights");
+                            String benchmarkDither = call.argument("dither");
+                            benchmarkConvertImage(
+                                    benchmarkWidth != null ? benchmarkWidth : EscPosRasterizer.PAPER_80MM_DOTS,
+                                    heights, EscPosRasterizer.Dither.fromName(benchmarkDither), result);
                             break;
                         case "disconnect":
                             String discVendorId = call.argument("vendorId");
@@ -440,82 +498,197 @@ public class MainActivity extends FlutterActivity implements ActivityAware {
 
         // Register USB device receiver immediately to catch all USB events
         registerUsbDeviceReceiver();
+
+        // Print whatever was left in the spool when the app last died
+        replayRecoveredJobs(null, null);
+
+        // Start the customer display routes from the last session in the background
+        presentationEnginePool.prewarmRemembered();
     }
 
     @SuppressLint("LongLogTag")
-    private boolean showPresentation(String displayId, String routerName) {
+    private void showPresentation(String displayId, String routerName, Result result) {
         try {
-            int displayIdInt = Integer.parseInt(displayId);
+            int displayIdInt = resolveDisplayId(Integer.parseInt(displayId));
             Display display = displayManager.getDisplay(displayIdInt);
-            FlutterEngine flutterEngine = createFlutterEngine(routerName);
+            if (display == null) {
+                Log.e("MainActivity", "Can't find display");
+                result.success(false);
+                return;
+            }
+            dataDisplayId = displayIdInt;
+
+            PresentationDisplay existingPresentation = presentations.get(displayIdInt);
+            if (existingPresentation != null && existingPresentation.isShowing()) {
+                // Same window and engine, only the engine's navigator moves to the new route
+                if (!existingPresentation.getRoute().equals(routerName)) {
+                    presentationEnginePool.navigate(displayIdInt, routerName);
+                    existingPresentation.setRoute(routerName);
+                    presentationDataBus.setRoute(displayIdInt, routerName);
+                    // The new page starts empty, so it gets the whole data rather than only the next patch
+                    Object state = presentationDataBus.lastState(displayIdInt);
+                    if (state != null) {
+                        presentationDataBus.publish(displayIdInt, state);
+                    }
+                    Log.i(TAG, "Presentation on display " + displayIdInt + " switched to " + routerName);
+                }
+                result.success(true);
+                return;
+            }
+            if (existingPresentation != null) {
+                presentations.remove(displayIdInt);
+                presentationDataBus.detach(displayIdInt);
+                presentationEnginePool.release(displayIdInt);
+            }
 
-            if (display != null && flutterEngine != null) {
-                // Create the new presentation first to minimize flicker
-                flutterEngineChannel = new MethodChannel(flutterEngine.getDartExecutor().getBinaryMessenger(),
-                        CHANNEL + "_engine");
-                Presentation newPresentation = new PresentationDisplay(context, routerName, display);
+            FlutterEngine flutterEngine = createFlutterEngine(displayIdInt, routerName);
+            if (flutterEngine == null) {
+                Log.e("MainActivity", "Can't find FlutterEngine");
+                result.success(false);
+                return;
+            }
 
-                // Show the new presentation immediately
-                newPresentation.show();
+            PresentationDisplay newPresentation = new PresentationDisplay(context,
+                    PresentationEnginePool.cacheName(displayIdInt), routerName, display);
+            // Answer when the engine has drawn into the new window, or after FIRST_FRAME_TIMEOUT_MS at the latest
+            Handler handler = new Handler(Looper.getMainLooper());
+            Runnable reply = new Runnable() {
+                private boolean replied;
 
-                // Now dismiss the old presentation after the new one is shown (reduces flicker)
-                if (presentations.containsKey(displayIdInt)) {
-                    Presentation existingPresentation = presentations.get(displayIdInt);
-                    if (existingPresentation != null) {
-                        // Add a small delay to ensure new presentation is fully rendered
-                        new Handler(Looper.getMainLooper()).postDelayed(() -> {
-                            existingPresentation.dismiss();
-                        }, 500); // 50ms delay to minimize flicker
+                @Override
+                public void run() {
+                    if (!replied) {
+                        replied = true;
+                        handler.removeCallbacks(this);
+                        result.success(true);
                     }
                 }
-
-                // Store the new presentation with its display ID
-                presentations.put(displayIdInt, newPresentation);
-
-                Log.i(TAG, "Presentation created and stored for display ID: " + displayIdInt);
-                return true;
-            } else {
-                Log.e("MainActivity", display == null ? "Can't find display" : "Can't find FlutterEngine");
-                return false;
+            };
+            newPresentation.setOnFirstFrame(reply);
+            try {
+                presentationDataBus.attach(displayIdInt, routerName,
+                        flutterEngine.getDartExecutor().getBinaryMessenger());
+                if (presentationEnginePool.isWarm(displayIdInt)) {
+                    // Clear the cart a previous display left in the engine, a restore replaces it in the same frame
+                    presentationDataBus.publish(displayIdInt, new HashMap<String, Object>());
+                }
+                newPresentation.show();
+            } catch (RuntimeException e) {
+                presentationDataBus.detach(displayIdInt);
+                presentationEnginePool.release(displayIdInt);
+                throw e;
             }
+            handler.postDelayed(reply, FIRST_FRAME_TIMEOUT_MS);
+            presentations.put(displayIdInt, newPresentation);
+
+            Log.i(TAG, "Presentation created and stored for display ID: " + displayIdInt);
         } catch (Exception e) {
             Log.e("MainActivity", "Error in showPresentation", e);
-            return false;
+            result.success(false);
         }
     }
 
-    private FlutterEngine createFlutterEngine(String tag) {
-        if (context == null) {
+    /**
+     * Display a data update goes to: the one given, null to broadcast, otherwise the last one shown
+     */
+    private Integer dataTarget(MethodCall call) {
+        Boolean broadcast = call.argument("broadcast");
+        if (broadcast != null && broadcast) {
             return null;
         }
+        Object displayId = call.argument("displayId");
+        return displayId != null ? resolveDisplayId(Integer.parseInt(String.valueOf(displayId))) : dataDisplayId;
+    }
+
+    private int resolveDisplayId(int displayId) {
+        Integer current = displayIdAliases.get(displayId);
+        return current != null ? current : displayId;
+    }
+
+    private void onDisplayEvent(String type, DisplayStateCache.Info display, DisplayStateCache.Info previous) {
+        if ("removed".equals(type) || "reconnected".equals(type)) {
+            int goneId = "removed".equals(type) ? display.id : previous.id;
+            PresentationDisplay presentation = presentations.remove(goneId);
+            if (presentation != null) {
+                // Android has already cancelled the window, keep what it showed for when the display is back
+                restorablePresentations.put(display.name, new RestorablePresentation(goneId,
+                        presentation.getRoute(), presentationDataBus.lastState(goneId)));
+                presentation.dismiss();
+                presentationDataBus.detach(goneId);
+                presentationEnginePool.release(goneId);
+                Log.i(TAG, "Display " + goneId + " (" + display.name + ") went away, presentation kept for restore");
+            }
+        }
+        if ("added".equals(type) || "reconnected".equals(type)) {
+            RestorablePresentation restorable = restorablePresentations.remove(display.name);
+            if (restorable != null) {
+                restorePresentation(display.id, restorable);
+            }
+        }
+    }
+
+    /**
+     * Show the route again on the display's new id, on a warm engine for it if there is one, and replay its data
+     */
+    private void restorePresentation(int displayId, RestorablePresentation restorable) {
+        displayIdAliases.put(restorable.displayId, displayId);
+        for (Map.Entry<Integer, Integer> alias : displayIdAliases.entrySet()) {
+            if (alias.getValue() == restorable.displayId) {
+                alias.setValue(displayId);
+            }
+        }
+        int previousDataDisplayId = dataDisplayId;
+        Result restored = new Result() {
+            @Override
+            public void success(Object value) {
+                Log.i(TAG, "Presentation restored on display " + displayId + ": " + value);
+            }
 
-        FlutterEngine engine = FlutterEngineCache.getInstance().get(tag);
-        if (engine == null) {
-            engine = new FlutterEngine(context);
-            engine.getNavigationChannel().setInitialRoute(tag);
-            engine.getDartExecutor().executeDartEntrypoint(
-                    DartExecutor.DartEntrypoint.createDefault());
-            engine.getLifecycleChannel().appIsResumed();
-            FlutterEngineCache.getInstance().put(tag, engine);
+            @Override
+            public void error(String errorCode, String errorMessage, Object errorDetails) {
+                Log.e(TAG, "Restoring presentation on display " + displayId + " failed: " + errorMessage);
+            }
 
-        } else {
+            @Override
+            public void notImplemented() {
+            }
+        };
+        showPresentation(String.valueOf(displayId), restorable.route, restored);
+        dataDisplayId = previousDataDisplayId == restorable.displayId ? displayId : previousDataDisplayId;
+        if (restorable.data != null && presentations.containsKey(displayId)) {
+            presentationDataBus.publish(displayId, restorable.data);
+        }
+    }
+
+    private FlutterEngine createFlutterEngine(int displayId, String route) {
+        if (context == null) {
+            return null;
         }
-        return engine;
+
+        return presentationEnginePool.acquire(displayId, route);
     }
 
     private void hidePresentation(MethodCall call, Result result) {
         try {
             JSONObject obj = new JSONObject((String) call.arguments);
-            int displayId = obj.getInt("displayId");
+            int displayId = resolveDisplayId(obj.getInt("displayId"));
             Log.i(TAG, "Channel: method: " + call.method + " | displayId: " + displayId);
 
+            // A display that is gone is not shown again when it comes back
+            if (restorablePresentations.values().removeIf(restorable -> restorable.displayId == displayId)) {
+                result.success(true);
+                return;
+            }
+
             // Check if we have a presentation for this specific display ID
             if (presentations.containsKey(displayId)) {
-                Presentation presentation = presentations.get(displayId);
+                PresentationDisplay presentation = presentations.get(displayId);
                 if (presentation != null) {
                     Log.i(TAG, "PRESENTATION FOUND FOR DISPLAY " + displayId + ", DISMISSING");
                     presentation.dismiss();
                     presentations.remove(displayId); // Remove from map
+                    presentationDataBus.detach(displayId);
+                    presentationEnginePool.release(displayId);
                     result.success(true);
                 } else {
                     Log.i(TAG, "PRESENTATION FOR DISPLAY " + displayId + " IS NULL");
@@ -541,16 +714,19 @@ public class MainActivity extends FlutterActivity implements ActivityAware {
             ArrayList<Integer> displayIds = new ArrayList<>(presentations.keySet());
 
             for (Integer displayId : displayIds) {
-                Presentation presentation = presentations.get(displayId);
+                PresentationDisplay presentation = presentations.get(displayId);
                 if (presentation != null) {
                     Log.i(TAG, "Dismissing presentation for display: " + displayId);
                     presentation.dismiss();
+                    presentationDataBus.detach(displayId);
+                    presentationEnginePool.release(displayId);
                     dismissedCount++;
                 }
             }
 
             // Clear all presentations from the map
             presentations.clear();
+            restorablePresentations.clear();
 
             Log.i(TAG, "Successfully dismissed " + dismissedCount + " presentations");
             result.success(dismissedCount);
@@ -592,47 +768,39 @@ public class MainActivity extends FlutterActivity implements ActivityAware {
         displayManager = (DisplayManager) context.getSystemService(Context.DISPLAY_SERVICE);
     }
 
+    /**
+     * Debounced display hot-plug events: a map with "type" (added, removed or changed) and the
+     * display's id, flags, rotation, name, width, height and refreshRate
+     */
     public class DisplayConnectedStreamHandler implements EventChannel.StreamHandler {
-        private DisplayManager displayManager;
+        private final DisplayStateCache displayStateCache;
         private EventChannel.EventSink sink;
-        private Handler handler;
 
-        private DisplayManager.DisplayListener displayListener = new DisplayManager.DisplayListener() {
-            @Override
-            public void onDisplayAdded(int displayId) {
-                if (sink != null) {
-                    sink.success(1);
+        private final DisplayStateCache.Listener displayListener = (type, display, previous) -> {
+            if (sink != null) {
+                Map<String, Object> event = display.toMap();
+                event.put("type", type);
+                if (previous != null && previous.id != display.id) {
+                    event.put("previousId", previous.id);
                 }
-            }
-
-            @Override
-            public void onDisplayRemoved(int displayId) {
-                if (sink != null) {
-                    sink.success(0);
-                }
-            }
-
-            @Override
-            public void onDisplayChanged(int displayId) {
+                sink.success(event);
             }
         };
 
-        public DisplayConnectedStreamHandler(DisplayManager displayManager) {
-            this.displayManager = displayManager;
+        public DisplayConnectedStreamHandler(DisplayStateCache displayStateCache) {
+            this.displayStateCache = displayStateCache;
         }
 
         @Override
         public void onListen(Object arguments, EventChannel.EventSink events) {
             this.sink = events;
-            this.handler = new Handler(Looper.getMainLooper());
-            displayManager.registerDisplayListener(displayListener, handler);
+            displayStateCache.addListener(displayListener);
         }
 
         @Override
         public void onCancel(Object arguments) {
             this.sink = null;
-            this.handler = null;
-            displayManager.unregisterDisplayListener(displayListener);
+            displayStateCache.removeListener(displayListener);
         }
     }
 
@@ -674,20 +842,12 @@ public class MainActivity extends FlutterActivity implements ActivityAware {
     // Thermal Printer Methods
     private void getUsbDevicesList(Result result) {
         try {
-            UsbManager usbManager = (UsbManager) getSystemService(Context.USB_SERVICE);
-            HashMap<String, UsbDevice> deviceList = usbManager.getDeviceList();
-            Log.d(TAG, "Scanning " + deviceList.size() + " USB devices for printers");
+            // An explicit scan resyncs the index, classifications of known devices are reused
+            usbDeviceIndex.rebuild();
 
             List<HashMap<String, Object>> devices = new ArrayList<>();
-            for (UsbDevice device : deviceList.values()) {
-                // Only include printer devices
-                if (!isPrinterDevice(device)) {
-                    Log.d(TAG, "Skipping non-printer device: " + device.getDeviceName() + 
-                          " (VID: 0x" + Integer.toHexString(device.getVendorId()) + 
-                          ", PID: 0x" + Integer.toHexString(device.getProductId()) + ")");
-                    continue;
-                }
-
+            for (UsbDeviceIndex.Entry entry : usbDeviceIndex.printers()) {
+                UsbDevice device = entry.device;
                 HashMap<String, Object> deviceInfo = new HashMap<>();
                 deviceInfo.put("vendorId", device.getVendorId());
                 deviceInfo.put("productId", device.getProductId());
@@ -736,16 +896,7 @@ public class MainActivity extends FlutterActivity implements ActivityAware {
 
             // Get UsbManager and find the device
             UsbManager usbManager = (UsbManager) getSystemService(Context.USB_SERVICE);
-            HashMap<String, UsbDevice> deviceList = usbManager.getDeviceList();
-
-            UsbDevice targetDevice = null;
-            for (UsbDevice device : deviceList.values()) {
-                if (device.getVendorId() == Integer.parseInt(vendorId) &&
-                        device.getProductId() == Integer.parseInt(productId)) {
-                    targetDevice = device;
-                    break;
-                }
-            }
+            UsbDevice targetDevice = usbDeviceIndex.find(vendorId, productId);
 
             if (targetDevice == null) {
                 Log.e(TAG, "USB device not found: " + printerId);
@@ -757,29 +908,15 @@ public class MainActivity extends FlutterActivity implements ActivityAware {
             if (!usbManager.hasPermission(targetDevice)) {
                 Log.d(TAG, "No USB permission, requesting permission for device: " + targetDevice.getDeviceName());
 
-                // Store the pending connection data
-                pendingPrintResult = result;
-                pendingVendorId = vendorId;
-                pendingProductId = productId;
-                pendingPrintData = null; // No print data for connection request
-                pendingPrintPath = null; // No print path for connection request
-
-                // Register the USB receiver
-                IntentFilter filter = new IntentFilter(ACTION_USB_PERMISSION);
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
-                    registerReceiver(usbReceiver, filter, Context.RECEIVER_EXPORTED);
-                } else {
-                    registerReceiver(usbReceiver, filter);
-                }
-
-                // Request permission
-                PendingIntent permissionIntent = PendingIntent.getBroadcast(
-                        this,
-                        0,
-                        new Intent(ACTION_USB_PERMISSION),
-                        PendingIntent.FLAG_IMMUTABLE);
-                usbManager.requestPermission(targetDevice, permissionIntent);
-                return; // Exit here, the actual connection will happen in the receiver
+                // Connect again once the user has decided, the retry then finds the permission
+                usbPermissionBroker.request(targetDevice, granted -> {
+                    if (granted) {
+                        connectThermalPrinter(vendorId, productId, result);
+                    } else {
+                        result.success(false);
+                    }
+                });
+                return; // Exit here, the actual connection will happen in the callback
             }
 
             // For USB printers, we consider them "connected" if they are physically
@@ -799,30 +936,40 @@ public class MainActivity extends FlutterActivity implements ActivityAware {
         }
     }
 
-    private void printText(String vendorId, String productId, List<Integer> data, String path, Result result) {
-        try {
-            Log.d(TAG, "Starting USB print: vendorId=" + vendorId + ", productId=" + productId + ", dataSize="
-                    + data.size());
+    private void printText(String vendorId, String productId, byte[] data, String path, long jobId,
+            Result result) {
+        if (data == null) {
+            result.error("INVALID_DATA", "Print data is missing", null);
+            return;
+        }
+        Log.d(TAG, "Starting USB print: vendorId=" + vendorId + ", productId=" + productId + ", dataSize="
+                + data.length);
+        runWithUsbPermission(vendorId, productId,
+                () -> enqueuePrint(vendorId, productId, data, path, jobId, result), result);
+    }
+
+    private void printImage(String vendorId, String productId, byte[] imageData, int paperWidth,
+            EscPosRasterizer.Dither dither, int threshold, long jobId, Result result) {
+        if (imageData == null) {
+            result.error("INVALID_DATA", "Image data is missing", null);
+            return;
+        }
+        Log.d(TAG, "Starting USB image print: vendorId=" + vendorId + ", productId=" + productId
+                + ", imageSize=" + imageData.length + ", dither=" + dither);
+        String printerId = vendorId + ":" + productId;
+        Result mainThreadResult = new MainThreadResult(result);
+        runWithUsbPermission(vendorId, productId, () -> usbPrintQueue.submit(printerId, jobId,
+                () -> performImagePrint(vendorId, productId, imageData, paperWidth, dither, threshold,
+                        mainThreadResult)),
+                result);
+    }
 
+    // Find the printer and run the job, asking for USB permission first when it is missing
+    private void runWithUsbPermission(String vendorId, String productId, Runnable job, Result result) {
+        try {
             // Get UsbManager and find the device
             UsbManager usbManager = (UsbManager) getSystemService(Context.USB_SERVICE);
-            HashMap<String, UsbDevice> deviceList = usbManager.getDeviceList();
-
-            Log.d(TAG, "Found " + deviceList.size() + " USB devices");
-
-            // Find the target device by vendor and product ID
-            UsbDevice targetDevice = null;
-            for (UsbDevice device : deviceList.values()) {
-                Log.d(TAG, "Checking USB device: vendorId=" + device.getVendorId() + ", productId="
-                        + device.getProductId());
-
-                if (String.valueOf(device.getVendorId()).equals(vendorId) &&
-                        String.valueOf(device.getProductId()).equals(productId)) {
-                    targetDevice = device;
-                    Log.d(TAG, "Found target USB printer device: " + device.getDeviceName());
-                    break;
-                }
-            }
+            UsbDevice targetDevice = usbDeviceIndex.find(vendorId, productId);
 
             if (targetDevice == null) {
                 Log.e(TAG, "Target USB printer not found");
@@ -834,33 +981,28 @@ public class MainActivity extends FlutterActivity implements ActivityAware {
             if (!usbManager.hasPermission(targetDevice)) {
                 Log.d(TAG, "No USB permission, requesting permission for device: " + targetDevice.getDeviceName());
 
-                // Store the pending print data
-                pendingPrintResult = result;
-                pendingVendorId = vendorId;
-                pendingProductId = productId;
-                pendingPrintData = data;
-                pendingPrintPath = path;
-
-                // Register the USB receiver
-                IntentFilter filter = new IntentFilter(ACTION_USB_PERMISSION);
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
-                    registerReceiver(usbReceiver, filter, Context.RECEIVER_EXPORTED);
-                } else {
-                    registerReceiver(usbReceiver, filter);
-                }
+                // Queue the job behind the device's permission request, it is replayed once granted
+                usbPermissionBroker.request(targetDevice, new UsbPermissionBroker.Callback() {
+                    @Override
+                    public void onResult(boolean granted) {
+                        if (granted) {
+                            job.run();
+                        } else {
+                            result.error("USB_PERMISSION_DENIED", "User denied USB permission", null);
+                        }
+                    }
 
-                // Request permission
-                PendingIntent permissionIntent = PendingIntent.getBroadcast(
-                        this,
-                        0,
-                        new Intent(ACTION_USB_PERMISSION),
-                        PendingIntent.FLAG_IMMUTABLE);
-                usbManager.requestPermission(targetDevice, permissionIntent);
-                return; // Exit here, the actual printing will happen in the receiver
+                    @Override
+                    public void onCancelled() {
+                        result.error(USB_PERMISSION_CANCELLED, "Activity closed before USB permission was decided",
+                                null);
+                    }
+                });
+                return; // Exit here, the actual printing will happen in the callback
             }
 
-            // If we already have permission, proceed with printing
-            performActualPrint(vendorId, productId, data, path, result);
+            // If we already have permission, queue the job on the printer's own thread
+            job.run();
 
         } catch (Exception e) {
             Log.e(TAG, "Error printing to USB printer", e);
@@ -868,111 +1010,239 @@ public class MainActivity extends FlutterActivity implements ActivityAware {
         }
     }
 
-    private void performActualPrint(String vendorId, String productId, List<Integer> data, String path, Result result) {
-        try {
-            Log.d(TAG, "Performing actual USB print: vendorId=" + vendorId + ", productId=" + productId);
+    // Run the print on the printer's serial queue and reply on the main looper
+    private void enqueuePrint(String vendorId, String productId, byte[] data, String path, long jobId,
+            Result result) {
+        String printerId = vendorId + ":" + productId;
+        Result mainThreadResult = new MainThreadResult(result);
+        usbPrintQueue.submit(printerId, jobId,
+                () -> performActualPrint(vendorId, productId, data, path, mainThreadResult));
+    }
 
-            // Convert List<Integer> to byte array
-            byte[] byteData = new byte[data.size()];
-            for (int i = 0; i < data.size(); i++) {
-                byteData[i] = data.get(i).byteValue();
+    // Result for enqueuePrint jobs, reports the outcome through the thermal printer event stream
+    private Result createPrintJobEventResult(long jobId, String vendorId, String productId) {
+        return new MethodChannel.Result() {
+            @Override
+            public void success(Object value) {
+                sendPrintJobEvent(jobId, vendorId, productId, true, null);
             }
 
-            // Get UsbManager and find the device
-            UsbManager usbManager = (UsbManager) getSystemService(Context.USB_SERVICE);
-            HashMap<String, UsbDevice> deviceList = usbManager.getDeviceList();
-
-            // Find the target device by vendor and product ID
-            UsbDevice targetDevice = null;
-            for (UsbDevice device : deviceList.values()) {
-                if (String.valueOf(device.getVendorId()).equals(vendorId) &&
-                        String.valueOf(device.getProductId()).equals(productId)) {
-                    targetDevice = device;
-                    break;
-                }
+            @Override
+            public void error(String errorCode, String errorMessage, Object errorDetails) {
+                sendPrintJobEvent(jobId, vendorId, productId, false, errorCode + ": " + errorMessage);
             }
 
-            if (targetDevice == null) {
-                Log.e(TAG, "Target USB printer not found during actual print");
-                result.error("PRINTER_NOT_FOUND", "Target USB printer not found", null);
-                return;
+            @Override
+            public void notImplemented() {
+                sendPrintJobEvent(jobId, vendorId, productId, false, "Not implemented");
             }
+        };
+    }
 
-            // Open connection to the device
-            UsbDeviceConnection connection = usbManager.openDevice(targetDevice);
-            if (connection == null) {
-                Log.e(TAG, "Failed to open USB device connection");
-                result.error("CONNECTION_FAILED", "Failed to open USB device connection", null);
-                return;
+    private void sendPrintJobEvent(long jobId, String vendorId, String productId, boolean success, String error) {
+        if (thermalPrinterEventHandler != null) {
+            HashMap<String, Object> eventData = new HashMap<>();
+            eventData.put("event", "print_job");
+            eventData.put("jobId", jobId);
+            eventData.put("vendorId", vendorId);
+            eventData.put("productId", productId);
+            eventData.put("success", success);
+            if (error != null) {
+                eventData.put("error", error);
             }
+            thermalPrinterEventHandler.sendUsbDeviceEvent(eventData);
+        }
+    }
 
-            // Declare interface outside try block so it's accessible in finally
-            UsbInterface usbInterface = null;
-            try {
-                // Find the first interface (usually the printer interface)
-                usbInterface = targetDevice.getInterface(0);
-                if (!connection.claimInterface(usbInterface, true)) {
-                    Log.e(TAG, "Failed to claim USB interface");
-                    result.error("INTERFACE_CLAIM_FAILED", "Failed to claim USB interface", null);
-                    return;
+    // Journal the job before it is sent, and acknowledge it once its outcome has been reported.
+    // A job whose permission request was cancelled never ran, so it stays spooled and is printed later.
+    private Result spoolJob(long jobId, byte kind, String vendorId, String productId, int paperWidth,
+            EscPosRasterizer.Dither dither, int threshold, byte[] payload, Result result) {
+        PrintSpool spool = printSpool;
+        if (spool == null || payload == null
+                || !spool.append(jobId, kind, vendorId, productId, paperWidth, dither, threshold, payload)) {
+            return result;
+        }
+        Map<Long, PrintSpool.Job> recovered = recoveredJobs;
+        return new MethodChannel.Result() {
+            @Override
+            public void success(Object value) {
+                spool.ack(jobId);
+                result.success(value);
+            }
+
+            @Override
+            public void error(String errorCode, String errorMessage, Object errorDetails) {
+                if (USB_PERMISSION_CANCELLED.equals(errorCode)) {
+                    // Null once the spool is closed, the next start recovers it from the file instead
+                    PrintSpool.Job job = spool.pendingJob(jobId);
+                    if (job != null) {
+                        recovered.put(jobId, job);
+                    }
+                } else {
+                    spool.ack(jobId);
                 }
+                result.error(errorCode, errorMessage, errorDetails);
+            }
 
-                // Find the bulk OUT endpoint for sending data
-                UsbEndpoint endpoint = null;
-                for (int i = 0; i < usbInterface.getEndpointCount(); i++) {
-                    UsbEndpoint ep = usbInterface.getEndpoint(i);
-                    if (ep.getType() == UsbConstants.USB_ENDPOINT_XFER_BULK &&
-                            ep.getDirection() == UsbConstants.USB_DIR_OUT) {
-                        endpoint = ep;
-                        break;
+            @Override
+            public void notImplemented() {
+                spool.ack(jobId);
+                result.notImplemented();
+            }
+        };
+    }
+
+    // Print recovered jobs, all of them or only those for one printer, reporting through print_job events
+    private void replayRecoveredJobs(String vendorId, String productId) {
+        PrintSpool spool = printSpool;
+        Map<Long, PrintSpool.Job> recovered = recoveredJobs;
+        for (PrintSpool.Job job : new ArrayList<>(recovered.values())) {
+            if (vendorId != null && !(job.vendorId.equals(vendorId) && job.productId.equals(productId))) {
+                continue;
+            }
+            recovered.remove(job.jobId);
+            Log.d(TAG, "Replaying spooled print job " + job.jobId + " for " + job.vendorId + ":" + job.productId);
+            Result events = createPrintJobEventResult(job.jobId, job.vendorId, job.productId);
+            Result result = new MethodChannel.Result() {
+                @Override
+                public void success(Object value) {
+                    spool.ack(job.jobId);
+                    events.success(value);
+                }
+
+                @Override
+                public void error(String errorCode, String errorMessage, Object errorDetails) {
+                    if ("PRINTER_NOT_FOUND".equals(errorCode) || USB_PERMISSION_CANCELLED.equals(errorCode)) {
+                        // Keep it spooled and try again when this printer is attached or printing restarts
+                        recovered.put(job.jobId, job);
+                        return;
                     }
+                    spool.ack(job.jobId);
+                    events.error(errorCode, errorMessage, errorDetails);
                 }
 
-                if (endpoint == null) {
-                    Log.e(TAG, "No bulk OUT endpoint found");
-                    result.error("NO_ENDPOINT", "No bulk OUT endpoint found", null);
-                    return;
+                @Override
+                public void notImplemented() {
+                    spool.ack(job.jobId);
+                    events.notImplemented();
                 }
+            };
+            if (job.kind == PrintSpool.KIND_IMAGE) {
+                printImage(job.vendorId, job.productId, job.payload, job.paperWidth, job.dither, job.threshold,
+                        job.jobId, result);
+            } else {
+                printText(job.vendorId, job.productId, job.payload, "", job.jobId, result);
+            }
+        }
+    }
 
-                // Send the print data
-                Log.d(TAG, "Sending " + byteData.length + " bytes to USB printer");
-                int bytesTransferred = connection.bulkTransfer(endpoint, byteData, byteData.length, 5000);
+    private void performActualPrint(String vendorId, String productId, byte[] byteData, String path, Result result) {
+        Log.d(TAG, "Performing actual USB print: vendorId=" + vendorId + ", productId=" + productId);
+        // Stream the print data in packet-sized chunks, reporting progress to Flutter
+        performUsbPrint(vendorId, productId, result, pooled -> {
+            Log.d(TAG, "Sending " + byteData.length + " bytes to USB printer");
+            return UsbTransferEngine.transfer(pooled.connection, pooled.endpoint, byteData, 0, byteData.length,
+                    (bytesSent, totalBytes) -> sendPrintProgress(vendorId, productId, bytesSent, totalBytes));
+        });
+    }
 
-                if (bytesTransferred < 0) {
-                    Log.e(TAG, "Failed to transfer data to USB printer. Bytes transferred: " + bytesTransferred);
-                    result.error("TRANSFER_FAILED", "Failed to transfer data to USB printer", null);
-                } else {
-                    Log.d(TAG, "Successfully transferred " + bytesTransferred + " bytes to USB printer");
-                    result.success(true);
+    // Send each GS v 0 band as soon as it is dithered, so the printer starts feeding before the image is done
+    private void performImagePrint(String vendorId, String productId, byte[] imageData, int paperWidth,
+            EscPosRasterizer.Dither dither, int threshold, Result result) {
+        Log.d(TAG, "Performing USB image print: vendorId=" + vendorId + ", productId=" + productId);
+        performUsbPrint(vendorId, productId, result, pooled -> {
+            long start = System.currentTimeMillis();
+            byte[] raster = EscPosRasterizer.rasterize(imageData, paperWidth, dither, threshold,
+                    (data, offset, length, totalLength) -> {
+                        try {
+                            UsbTransferEngine.transfer(pooled.connection, pooled.endpoint, data, offset, length,
+                                    null);
+                        } catch (UsbTransferEngine.UsbTransferException e) {
+                            // Report the position within the whole raster, not the band
+                            throw new UsbTransferEngine.UsbTransferException(e.getMessage(), offset + e.bytesSent);
+                        }
+                        sendPrintProgress(vendorId, productId, offset + length, totalLength);
+                    });
+            Log.d(TAG, "Streamed image raster: rasterSize=" + raster.length + ", took "
+                    + (System.currentTimeMillis() - start) + "ms");
+            return raster.length;
+        });
+    }
+
+    // Writes a job to an open printer connection and returns the number of bytes sent
+    private interface UsbPrintWork {
+        int run(UsbConnectionManager.PooledConnection pooled) throws Exception;
+    }
+
+    private void performUsbPrint(String vendorId, String productId, Result result, UsbPrintWork work) {
+        try {
+            // Find the device by vendor and product ID
+            UsbDevice targetDevice = usbDeviceIndex.find(vendorId, productId);
+
+            if (targetDevice == null) {
+                Log.e(TAG, "Target USB printer not found during actual print");
+                result.error("PRINTER_NOT_FOUND", "Target USB printer not found", null);
+                return;
+            }
+
+            String printerId = vendorId + ":" + productId;
+            // Held for the whole job, the iMin channel's USB backend may write to the same printer
+            synchronized (usbConnectionManager.writeLock(printerId)) {
+                // Reuse the pooled connection, opening and claiming the interface only when needed
+                UsbConnectionManager.PooledConnection pooled;
+                try {
+                    pooled = usbConnectionManager.acquire(printerId, targetDevice);
+                } catch (UsbConnectionManager.UsbConnectionException e) {
+                    Log.e(TAG, e.getMessage());
+                    result.error(e.code, e.getMessage(), null);
+                    return;
                 }
 
-            } finally {
-                // Release the interface and close connection
-                if (usbInterface != null) {
-                    connection.releaseInterface(usbInterface);
+                try {
+                    int bytesTransferred = work.run(pooled);
+                    Log.d(TAG, "Successfully transferred " + bytesTransferred + " bytes to USB printer");
+                    result.success(true);
+                } catch (UsbTransferEngine.UsbTransferException e) {
+                    Log.e(TAG, "Failed to transfer data to USB printer: " + e.getMessage());
+                    // Drop the connection so the next job starts from a fresh one
+                    usbConnectionManager.invalidate(printerId);
+                    result.error("TRANSFER_FAILED", "Failed to transfer data to USB printer", e.bytesSent);
                 }
-                connection.close();
             }
 
         } catch (Exception e) {
-            Log.e(TAG, "Error in performActualPrint", e);
+            Log.e(TAG, "Error in performUsbPrint", e);
             result.error("PRINT_ERROR", e.getMessage(), null);
         }
     }
 
-    private void clearPendingPrintData() {
-        pendingPrintResult = null;
-        pendingVendorId = null;
-        pendingProductId = null;
-        pendingPrintData = null;
-        pendingPrintPath = null;
+    // Report print job progress through the thermal printer event stream
+    private void sendPrintProgress(String vendorId, String productId, int bytesSent, int totalBytes) {
+        if (thermalPrinterEventHandler != null) {
+            HashMap<String, Object> eventData = new HashMap<>();
+            eventData.put("event", "print_progress");
+            eventData.put("vendorId", vendorId);
+            eventData.put("productId", productId);
+            eventData.put("bytesSent", bytesSent);
+            eventData.put("totalBytes", totalBytes);
+            eventData.put("progress", totalBytes == 0 ? 1.0 : (double) bytesSent / totalBytes);
+            thermalPrinterEventHandler.sendUsbDeviceEvent(eventData);
+        }
+    }
 
-        // Unregister the receiver to avoid memory leaks
-        try {
-            unregisterReceiver(usbReceiver);
-        } catch (IllegalArgumentException e) {
-            // Receiver was not registered, ignore
+    // Accept both Uint8List (byte[]) and legacy List<Integer> payloads from Dart
+    @SuppressWarnings("unchecked")
+    private static byte[] toByteArray(Object data) {
+        if (data == null || data instanceof byte[]) {
+            return (byte[]) data;
         }
+        List<Integer> list = (List<Integer>) data;
+        byte[] bytes = new byte[list.size()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = list.get(i).byteValue();
+        }
+        return bytes;
     }
 
     private void isConnected(String vendorId, String productId, Result result) {
@@ -997,22 +1267,48 @@ public class MainActivity extends FlutterActivity implements ActivityAware {
         }
     }
 
-    private void convertImageToGrayscale(List<Integer> imageData, Result result) {
-        try {
-            // Convert List<Integer> to byte array
-            byte[] byteData = new byte[imageData.size()];
-            for (int i = 0; i < imageData.size(); i++) {
-                byteData[i] = imageData.get(i).byteValue();
+    // Decode, fit to the paper width, dither and pack the image into GS v 0 raster bytes
+    private void convertImageToGrayscale(byte[] imageData, int paperWidth, EscPosRasterizer.Dither dither,
+            int threshold, Result result) {
+        if (imageData == null) {
+            result.error("CONVERT_ERROR", "Image data is missing", null);
+            return;
+        }
+        Result mainThreadResult = new MainThreadResult(result);
+        imageExecutor.execute(() -> {
+            try {
+                long start = System.currentTimeMillis();
+                byte[] raster = EscPosRasterizer.rasterize(imageData, paperWidth, dither, threshold);
+                Log.d(TAG, "Converted image: dataSize=" + imageData.length + ", rasterSize=" + raster.length
+                        + ", dither=" + dither + ", took " + (System.currentTimeMillis() - start) + "ms");
+                mainThreadResult.success(raster);
+            } catch (Exception e) {
+                Log.e(TAG, "Error converting image", e);
+                mainThreadResult.error("CONVERT_ERROR", e.getMessage(), null);
             }
+        });
+    }
 
-            // For now, just return the same data - you'll need to implement actual
-            // conversion logic
-            Log.d(TAG, "Converting image to grayscale: dataSize=" + byteData.length);
-            result.success(imageData);
-        } catch (Exception e) {
-            Log.e(TAG, "Error converting image", e);
-            result.error("CONVERT_ERROR", e.getMessage(), null);
+    // Measure raster conversion time per receipt height, returns height -> milliseconds
+    private void benchmarkConvertImage(int paperWidth, List<Integer> heights, EscPosRasterizer.Dither dither,
+            Result result) {
+        int[] receiptHeights = heights == null ? new int[] { 200, 800, 2000, 4000 } : new int[heights.size()];
+        if (heights != null) {
+            for (int i = 0; i < receiptHeights.length; i++) {
+                receiptHeights[i] = heights.get(i);
+            }
         }
+        Result mainThreadResult = new MainThreadResult(result);
+        imageExecutor.execute(() -> {
+            try {
+                Map<Integer, Double> timings = EscPosRasterizer.benchmark(paperWidth, receiptHeights, dither, 5);
+                Log.d(TAG, "Raster conversion benchmark (" + dither + ", " + paperWidth + " dots): " + timings);
+                mainThreadResult.success(timings);
+            } catch (Exception e) {
+                Log.e(TAG, "Error running conversion benchmark", e);
+                mainThreadResult.error("BENCHMARK_ERROR", e.getMessage(), null);
+            }
+        });
     }
 
     private void requestUsbPermission(String vendorId, String productId, Result result) {
@@ -1027,14 +1323,7 @@ public class MainActivity extends FlutterActivity implements ActivityAware {
             }
 
             // Find the target device
-            UsbDevice targetDevice = null;
-            for (UsbDevice device : usbManager.getDeviceList().values()) {
-                if (String.valueOf(device.getVendorId()).equals(vendorId) &&
-                        String.valueOf(device.getProductId()).equals(productId)) {
-                    targetDevice = device;
-                    break;
-                }
-            }
+            UsbDevice targetDevice = usbDeviceIndex.find(vendorId, productId);
 
             if (targetDevice == null) {
                 Log.e(TAG, "USB device not found: vendorId=" + vendorId + ", productId=" + productId);
@@ -1049,29 +1338,9 @@ public class MainActivity extends FlutterActivity implements ActivityAware {
                 return;
             }
 
-            // Store the result for later use in the receiver
-            pendingPrintResult = result;
-            pendingVendorId = vendorId;
-            pendingProductId = productId;
-
-            // Register the USB receiver
-            IntentFilter filter = new IntentFilter(ACTION_USB_PERMISSION);
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
-                registerReceiver(usbReceiver, filter, Context.RECEIVER_EXPORTED);
-            } else {
-                registerReceiver(usbReceiver, filter);
-            }
-
-            // Request permission
-            PendingIntent permissionIntent = PendingIntent.getBroadcast(
-                    this,
-                    0,
-                    new Intent(ACTION_USB_PERMISSION),
-                    PendingIntent.FLAG_IMMUTABLE);
-            usbManager.requestPermission(targetDevice, permissionIntent);
-
-            Log.d(TAG, "USB permission request sent for device: " + targetDevice.getDeviceName());
-            // Don't call result.success() here - it will be called in the receiver
+            // Shares the outstanding request if a print job is already waiting on this device
+            usbPermissionBroker.request(targetDevice, result::success);
+            // Don't call result.success() here - it will be called by the broker
 
         } catch (Exception e) {
             Log.e(TAG, "Error requesting USB permission", e);
@@ -1086,8 +1355,11 @@ public class MainActivity extends FlutterActivity implements ActivityAware {
             // Create the same unique identifier used in connect
             String printerId = vendorId + ":" + productId;
 
-            // Remove from connected set
+            // Remove from connected set and release the pooled connection
             boolean wasConnected = connectedPrinters.remove(printerId);
+            if (usbConnectionManager != null) {
+                usbConnectionManager.invalidate(printerId);
+            }
 
             Log.d(TAG, "Disconnected printer: " + printerId + " (was connected: " + wasConnected + ")");
             Log.d(TAG, "Remaining connected printers: " + connectedPrinters.size());
@@ -1134,10 +1406,31 @@ public class MainActivity extends FlutterActivity implements ActivityAware {
         }
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (presentationEnginePool != null) {
+            presentationEnginePool.onTrimMemory(level);
+        }
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
 
+        if (displayStateCache != null) {
+            displayStateCache.close();
+        }
+        for (PresentationDisplay presentation : presentations.values()) {
+            if (presentation != null) {
+                presentation.dismiss();
+            }
+        }
+        presentations.clear();
+        if (presentationEnginePool != null) {
+            presentationEnginePool.destroy();
+        }
+
         // Unregister USB device receiver if it's still registered
         if (usbDeviceReceiver != null) {
             try {
@@ -1149,15 +1442,19 @@ public class MainActivity extends FlutterActivity implements ActivityAware {
             }
         }
 
-        // Clean up any pending USB operations
-        clearPendingPrintData();
-    }
+        // Answer every job still waiting on a permission dialog
+        if (usbPermissionBroker != null) {
+            usbPermissionBroker.unregister();
+        }
 
-    @Override
-    protected void onPause() {
-        super.onPause();
-        // Clean up any pending USB operations when app goes to background
-        clearPendingPrintData();
+        imageExecutor.shutdown();
+
+        // A configuration change keeps printing through the same queue and spool in the next instance.
+        // Otherwise stop the queues, close the spool and then the pooled connections, unless a newer
+        // instance has already taken them over.
+        if (usbPrinterServices != null && isFinishing()) {
+            usbPrinterServices.stopPrinting(this);
+        }
     }
 
 }
\ No newline at end of file
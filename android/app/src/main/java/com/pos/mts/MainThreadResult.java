@@ -0,0 +1,43 @@
+package com.pos.mts;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import io.flutter.plugin.common.MethodChannel.Result;
+
+/**
+ * Result wrapper that always replies on the main looper, so work running on
+ * background threads can complete a MethodChannel call safely.
+ */
+public class MainThreadResult implements Result {
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final Result result;
+
+    public MainThreadResult(Result result) {
+        this.result = result;
+    }
+
+    @Override
+    public void success(Object value) {
+        post(() -> result.success(value));
+    }
+
+    @Override
+    public void error(String errorCode, String errorMessage, Object errorDetails) {
+        post(() -> result.error(errorCode, errorMessage, errorDetails));
+    }
+
+    @Override
+    public void notImplemented() {
+        post(result::notImplemented);
+    }
+
+    private void post(Runnable runnable) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            runnable.run();
+        } else {
+            mainHandler.post(runnable);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.pos.mts;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.RemoteException;
+
+import com.imin.printer.INeoPrinterCallback;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import io.flutter.Log;
+import io.flutter.plugin.common.MethodChannel.Result;
+
+/**
+ * Turns the SDK 2.0 INeoPrinterCallback queries into CompletableFutures.
+ * The value comes from onReturnString; onRaiseException, a failed onRunResult and the timeout
+ * complete the future exceptionally instead of leaving the Dart call waiting forever.
+ * A future completes once, so each channel call gets exactly one reply, and several queries
+ * can be combined with {@link #all}.
+ */
+class NeoPrinterQuery {
+    private static final String TAG = "NeoPrinterQuery";
+    static final long DEFAULT_TIMEOUT_MS = 3000;
+
+    // minSdk has no CompletableFuture.orTimeout, so timeouts are posted to the main looper
+    private static final Handler timeoutHandler = new Handler(Looper.getMainLooper());
+
+    interface Call {
+        void start(INeoPrinterCallback callback) throws Exception;
+    }
+
+    /**
+     * Failure reported by the printer service, carried to Dart as the error code
+     */
+    static class QueryException extends Exception {
+        final String code;
+
+        QueryException(String code, String message) {
+            super(message);
+            this.code = code;
+        }
+    }
+
+    private NeoPrinterQuery() {
+    }
+
+    static CompletableFuture<Object> query(String name, Call call) {
+        return query(name, call, value -> value, DEFAULT_TIMEOUT_MS);
+    }
+
+    /**
+     * Start call and complete with mapper applied to the returned string
+     */
+    static CompletableFuture<Object> query(String name, Call call, Function<String, Object> mapper,
+            long timeoutMs) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        Runnable timeout = () -> future.completeExceptionally(
+                new TimeoutException(name + " did not answer within " + timeoutMs + "ms"));
+        timeoutHandler.postDelayed(timeout, timeoutMs);
+        future.whenComplete((value, error) -> timeoutHandler.removeCallbacks(timeout));
+
+        try {
+            call.start(new INeoPrinterCallback() {
+                @Override
+                public void onRunResult(boolean isSuccess) throws RemoteException {
+                    // false means the printer service is not bound; true is followed by the value
+                    if (!isSuccess) {
+                        future.completeExceptionally(
+                                new QueryException("SERVICE_UNAVAILABLE", name + ": printer service is not bound"));
+                    }
+                }
+
+                @Override
+                public void onReturnString(String s) throws RemoteException {
+                    try {
+                        future.complete(mapper.apply(s));
+                    } catch (RuntimeException e) {
+                        future.completeExceptionally(
+                                new QueryException("INVALID_RESULT", name + " returned " + s));
+                    }
+                }
+
+                @Override
+                public void onRaiseException(int code, String msg) throws RemoteException {
+                    future.completeExceptionally(new QueryException("PRINTER_EXCEPTION", name + " (" + code + "): " + msg));
+                }
+
+                @Override
+                public void onPrintResult(int code, String msg) throws RemoteException {
+                }
+            });
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Complete with every value by key once all queries are done, or with the first failure
+     */
+    static CompletableFuture<Map<String, Object>> all(Map<String, CompletableFuture<Object>> queries) {
+        return CompletableFuture.allOf(queries.values().toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            Map<String, Object> values = new HashMap<>();
+            for (Map.Entry<String, CompletableFuture<Object>> entry : queries.entrySet()) {
+                values.put(entry.getKey(), entry.getValue().join());
+            }
+            return values;
+        });
+    }
+
+    /**
+     * Reply to a channel call with the future's outcome, on the main thread
+     */
+    static void reply(CompletableFuture<?> future, Result result) {
+        Result reply = new MainThreadResult(result);
+        future.whenComplete((value, error) -> {
+            if (error == null) {
+                reply.success(value);
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            Log.e(TAG, "Query failed: " + cause.getMessage());
+            if (cause instanceof QueryException) {
+                reply.error(((QueryException) cause).code, cause.getMessage(), null);
+            } else if (cause instanceof TimeoutException) {
+                reply.error("TIMEOUT", cause.getMessage(), null);
+            } else {
+                reply.error("QUERY_FAILED", cause.getMessage(), null);
+            }
+        });
+    }
+}
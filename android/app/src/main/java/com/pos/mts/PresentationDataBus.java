@@ -0,0 +1,298 @@
+package com.pos.mts;
+
+import android.util.Log;
+import android.view.Choreographer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import io.flutter.plugin.common.BasicMessageChannel;
+import io.flutter.plugin.common.BinaryCodec;
+import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.StandardMessageCodec;
+
+/**
+ * Data pushed from the cashier engine to the presentation engines, keyed by display id.
+ * Each display gets a BasicMessageChannel with the binary codec on its own engine,
+ * so a payload is encoded with StandardMessageCodec and sent as raw bytes without a method call envelope.
+ * Updates go to one display or are broadcast to all of them.
+ * Updates published within one frame are coalesced, latest wins: a full snapshot replaces
+ * whatever is pending and a patch is merged into it key by key, and only the merged result
+ * is sent on the next Choreographer frame. Displays with the same pending update share it,
+ * so a broadcast is encoded once and every display is sent a duplicate of the same buffer.
+ * While MAX_IN_FLIGHT messages to a display are still unanswered, its updates wait for a later frame.
+ * Messages are a map of "full" (snapshot or patch) and "data"; a patch value of null removes the key.
+ * Main thread only.
+ */
+public class PresentationDataBus {
+    private static final String TAG = "PresentationDataBus";
+    static final String CHANNEL = "presentation_displays_plugin_data";
+    static final int MAX_IN_FLIGHT = 2;
+
+    /**
+     * Update waiting for the next frame; never modified, merging creates a new one
+     */
+    private static class Pending {
+        final boolean full;
+        final Object data;
+
+        Pending(boolean full, Object data) {
+            this.full = full;
+            this.data = data;
+        }
+
+        Pending merge(Map<?, ?> changes) {
+            if (!full) {
+                LinkedHashMap<Object, Object> patch = new LinkedHashMap<>((Map<?, ?>) data);
+                patch.putAll(changes);
+                return new Pending(false, patch);
+            }
+            return new Pending(true, applyPatch(data, changes));
+        }
+    }
+
+    private static class Target {
+        String route;
+        final BinaryMessenger messenger;
+        final BasicMessageChannel<ByteBuffer> channel;
+        Pending pending;
+        int inFlight;
+        // Data as the display has it after the last update that was sent
+        Object state;
+
+        Target(String route, BinaryMessenger messenger) {
+            this.route = route;
+            this.messenger = messenger;
+            this.channel = new BasicMessageChannel<>(messenger, CHANNEL, BinaryCodec.INSTANCE);
+        }
+    }
+
+    private final HashMap<Integer, Target> targets = new HashMap<>();
+    private final Choreographer.FrameCallback flushCallback = frameTimeNanos -> flush();
+    private boolean flushScheduled;
+
+    // Backpressure metrics
+    private long published;
+    private long patches;
+    private long sent;
+    private long encodes;
+    private long coalesced;
+    private long deferredFrames;
+    private long bytesSent;
+    private int lastPayloadBytes;
+
+    /**
+     * Route the display's updates to the engine behind this messenger, replacing its previous engine.
+     * Every display needs an engine of its own, otherwise one display's data would show on another.
+     */
+    public void attach(int displayId, String route, BinaryMessenger messenger) {
+        for (Map.Entry<Integer, Target> entry : targets.entrySet()) {
+            if (entry.getKey() != displayId && entry.getValue().messenger == messenger) {
+                throw new IllegalStateException("Display " + displayId + " shares its engine with display "
+                        + entry.getKey());
+            }
+        }
+        targets.put(displayId, new Target(route, messenger));
+    }
+
+    public void detach(int displayId) {
+        targets.remove(displayId);
+    }
+
+    /**
+     * Latest data for the display, including an update still waiting for its frame; null if there is none
+     */
+    public Object lastState(int displayId) {
+        Target target = targets.get(displayId);
+        if (target == null) {
+            return null;
+        }
+        Pending update = target.pending;
+        if (update == null) {
+            return target.state;
+        }
+        return update.full ? update.data : applyPatch(target.state, (Map<?, ?>) update.data);
+    }
+
+    public void setRoute(int displayId, String route) {
+        Target target = targets.get(displayId);
+        if (target != null) {
+            target.route = route;
+        }
+    }
+
+    /**
+     * Replace the display's data with a full snapshot; a null display id broadcasts to every display
+     */
+    public void publish(Integer displayId, Object data) {
+        Collection<Target> selected = select(displayId);
+        if (selected.isEmpty()) {
+            return;
+        }
+        published++;
+        Pending update = new Pending(true, data);
+        for (Target target : selected) {
+            if (target.pending != null) {
+                coalesced++;
+            }
+            target.pending = update;
+        }
+        scheduleFlush();
+    }
+
+    /**
+     * Update only the given keys of the display's data; a null display id broadcasts to every display
+     */
+    public void patch(Integer displayId, Map<?, ?> changes) {
+        Collection<Target> selected = select(displayId);
+        if (selected.isEmpty()) {
+            return;
+        }
+        published++;
+        patches++;
+        // Displays that shared a pending update still share the merged one
+        IdentityHashMap<Pending, Pending> merged = new IdentityHashMap<>();
+        Pending patchOnly = null;
+        for (Target target : selected) {
+            if (target.pending == null) {
+                if (patchOnly == null) {
+                    patchOnly = new Pending(false, new LinkedHashMap<>(changes));
+                }
+                target.pending = patchOnly;
+                continue;
+            }
+            coalesced++;
+            Pending next = merged.get(target.pending);
+            if (next == null) {
+                next = target.pending.merge(changes);
+                merged.put(target.pending, next);
+            }
+            target.pending = next;
+        }
+        scheduleFlush();
+    }
+
+    private Collection<Target> select(Integer displayId) {
+        if (displayId == null) {
+            return targets.values();
+        }
+        Target target = targets.get(displayId);
+        if (target == null) {
+            Log.w(TAG, "No presentation on display " + displayId);
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(target);
+    }
+
+    public Map<String, Object> metrics() {
+        int inFlight = 0;
+        int pending = 0;
+        Map<String, Object> routes = new HashMap<>();
+        for (Map.Entry<Integer, Target> entry : targets.entrySet()) {
+            Target target = entry.getValue();
+            inFlight += target.inFlight;
+            pending += target.pending != null ? 1 : 0;
+            routes.put(String.valueOf(entry.getKey()), target.route);
+        }
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("displays", targets.size());
+        metrics.put("routes", routes);
+        metrics.put("published", published);
+        metrics.put("patches", patches);
+        metrics.put("sent", sent);
+        metrics.put("encodes", encodes);
+        metrics.put("coalesced", coalesced);
+        metrics.put("deferredFrames", deferredFrames);
+        metrics.put("inFlight", inFlight);
+        metrics.put("pending", pending);
+        metrics.put("bytesSent", bytesSent);
+        metrics.put("lastPayloadBytes", lastPayloadBytes);
+        return metrics;
+    }
+
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            Choreographer.getInstance().postFrameCallback(flushCallback);
+        }
+    }
+
+    private void flush() {
+        flushScheduled = false;
+        boolean deferred = false;
+        // One encoding per distinct pending update, shared by every display it goes to
+        IdentityHashMap<Pending, ByteBuffer> encoded = new IdentityHashMap<>();
+        for (Target target : new ArrayList<>(targets.values())) {
+            if (target.pending == null) {
+                continue;
+            }
+            if (target.inFlight >= MAX_IN_FLIGHT) {
+                deferred = true;
+                continue;
+            }
+            Pending update = target.pending;
+            target.pending = null;
+            ByteBuffer payload = encoded.get(update);
+            if (payload == null) {
+                payload = encode(update);
+                if (payload == null) {
+                    continue;
+                }
+                encoded.put(update, payload);
+            }
+            target.state = update.full ? update.data : applyPatch(target.state, (Map<?, ?>) update.data);
+            // The duplicate has its own position, the bytes are not copied
+            send(target, payload.duplicate());
+        }
+        if (deferred) {
+            deferredFrames++;
+            scheduleFlush();
+        }
+    }
+
+    private static LinkedHashMap<Object, Object> applyPatch(Object base, Map<?, ?> changes) {
+        LinkedHashMap<Object, Object> merged = base instanceof Map
+                ? new LinkedHashMap<>((Map<?, ?>) base) : new LinkedHashMap<>();
+        for (Map.Entry<?, ?> entry : changes.entrySet()) {
+            if (entry.getValue() == null) {
+                merged.remove(entry.getKey());
+            } else {
+                merged.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return merged;
+    }
+
+    private ByteBuffer encode(Pending update) {
+        Map<String, Object> message = new HashMap<>();
+        message.put("full", update.full);
+        message.put("data", update.data);
+        try {
+            encodes++;
+            return StandardMessageCodec.INSTANCE.encodeMessage(message);
+        } catch (IllegalArgumentException e) {
+            Log.e(TAG, "Payload can't be encoded", e);
+            return null;
+        }
+    }
+
+    private void send(Target target, ByteBuffer payload) {
+        lastPayloadBytes = payload.position();
+        bytesSent += lastPayloadBytes;
+        sent++;
+        target.inFlight++;
+        // The presentation engine answers once its handler has taken the update
+        target.channel.send(payload, reply -> {
+            target.inFlight--;
+            if (target.pending != null) {
+                scheduleFlush();
+            }
+        });
+    }
+}
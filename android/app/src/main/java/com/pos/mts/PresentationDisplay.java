@@ -10,15 +10,21 @@ import android.widget.FrameLayout;
 import io.flutter.embedding.android.FlutterView;
 import io.flutter.embedding.engine.FlutterEngine;
 import io.flutter.embedding.engine.FlutterEngineCache;
+import io.flutter.embedding.engine.renderer.FlutterUiDisplayListener;
 
 public class PresentationDisplay extends Presentation {
     private static final String TAG = "PresentationDisplay";
 
-    private String tag;
+    // FlutterEngineCache name of the display's own engine, which stays the same when it navigates
+    private final String tag;
+    private String route;
+    private FlutterView flutterView;
+    private Runnable onFirstFrame;
 
-    public PresentationDisplay(Context context, String tag, Display display) {
+    public PresentationDisplay(Context context, String tag, String route, Display display) {
         super(context, display);
         this.tag = tag;
+        this.route = route;
     }
 
     @Override
@@ -34,8 +40,49 @@ public class PresentationDisplay extends Presentation {
 
         setContentView(flContainer);
 
-        FlutterView flutterView = new FlutterView(getContext());
+        flutterView = new FlutterView(getContext());
         flContainer.addView(flutterView, params);
+        if (onFirstFrame != null) {
+            flutterView.addOnFirstFrameRenderedListener(new FlutterUiDisplayListener() {
+                @Override
+                public void onFlutterUiDisplayed() {
+                    flutterView.removeOnFirstFrameRenderedListener(this);
+                    onFirstFrame.run();
+                }
+
+                @Override
+                public void onFlutterUiNoLongerDisplayed() {
+                }
+            });
+        }
+        attachEngine();
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    public void setRoute(String route) {
+        this.route = route;
+    }
+
+    /**
+     * Run once the engine has drawn its first frame into this window; set before show()
+     */
+    public void setOnFirstFrame(Runnable onFirstFrame) {
+        this.onFirstFrame = onFirstFrame;
+    }
+
+    @Override
+    protected void onStop() {
+        // Let go of the engine's surface, the engine itself is owned by PresentationEnginePool
+        if (flutterView != null) {
+            flutterView.detachFromFlutterEngine();
+        }
+        super.onStop();
+    }
+
+    private void attachEngine() {
         FlutterEngine flutterEngine = FlutterEngineCache.getInstance().get(tag);
         if (flutterEngine != null) {
             flutterView.attachToFlutterEngine(flutterEngine);
@@ -0,0 +1,276 @@
+package com.pos.mts;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import io.flutter.embedding.engine.FlutterEngine;
+import io.flutter.embedding.engine.FlutterEngineCache;
+import io.flutter.embedding.engine.FlutterEngineGroup;
+import io.flutter.embedding.engine.dart.DartExecutor;
+
+/**
+ * FlutterEngines for the customer-facing presentation routes.
+ * Engines are spawned from one FlutterEngineGroup so they share the Dart VM and the isolate
+ * snapshot, and routes shown before are warmed up again while the main thread is idle after
+ * startup, so the first showPresentation does not pay for a cold engine start.
+ * Every display gets an engine of its own, so navigating or sending data to one display never
+ * shows up on another one, even when both show the same route.
+ * When a display lets go, its engine stays warm for IDLE_TIMEOUT_MS under the route it was showing
+ * and is then destroyed; the next display acquiring that route takes it over.
+ * Warm engines that are not on a display are capped at MAX_IDLE_ENGINES and dropped on memory pressure.
+ * Engines on a display are registered in FlutterEngineCache under cacheName(displayId), where
+ * PresentationDisplay looks them up.
+ * Main thread only.
+ */
+public class PresentationEnginePool {
+    private static final String TAG = "PresentationEnginePool";
+    private static final String PREFS = "presentation_engine_pool";
+    private static final String PREF_PREWARM_ROUTES = "prewarm_routes";
+    static final int MAX_IDLE_ENGINES = 2;
+    static final long IDLE_TIMEOUT_MS = 5 * 60 * 1000;
+
+    private final Context context;
+    private final FlutterEngineGroup engineGroup;
+    private final SharedPreferences preferences;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    // Warm engines not shown on any display by the route they show, oldest first
+    private final LinkedHashMap<String, FlutterEngine> idle = new LinkedHashMap<>();
+    // Expiry of the idle engines that were released by a presentation; prewarmed ones have none
+    private final HashMap<String, Runnable> idleExpiry = new HashMap<>();
+    // Engine owned by each display, with the route it currently shows
+    private final HashMap<Integer, DisplayEngine> displays = new HashMap<>();
+    private final ArrayDeque<String> pendingWarmUps = new ArrayDeque<>();
+    private boolean warmUpScheduled;
+
+    private static class DisplayEngine {
+        final FlutterEngine engine;
+        // Taken from the idle set, its isolate may still hold the page and data of a previous display
+        final boolean warm;
+        String route;
+
+        DisplayEngine(FlutterEngine engine, boolean warm, String route) {
+            this.engine = engine;
+            this.warm = warm;
+            this.route = route;
+        }
+    }
+
+    public PresentationEnginePool(Context context) {
+        this.context = context.getApplicationContext();
+        this.engineGroup = new FlutterEngineGroup(this.context);
+        this.preferences = this.context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * FlutterEngineCache name of the engine owned by the display
+     */
+    public static String cacheName(int displayId) {
+        return "presentation_display_" + displayId;
+    }
+
+    /**
+     * Engine for the display running the route, warm if one was prepared, otherwise started now.
+     * The display owns it until release(displayId); an engine it owned before is released first.
+     */
+    public FlutterEngine acquire(int displayId, String route) {
+        release(displayId);
+        pendingWarmUps.remove(route);
+        FlutterEngine engine = takeIdle(route);
+        boolean warm = engine != null;
+        if (!warm) {
+            engine = createEngine(route);
+            Log.d(TAG, "Cold start for route " + route + " on display " + displayId);
+        }
+        displays.put(displayId, new DisplayEngine(engine, warm, route));
+        FlutterEngineCache.getInstance().put(cacheName(displayId), engine);
+        rememberRoute(route);
+        return engine;
+    }
+
+    /**
+     * Let go of the display's engine; it is kept warm under its current route until IDLE_TIMEOUT_MS passes
+     */
+    public void release(int displayId) {
+        DisplayEngine owned = displays.remove(displayId);
+        if (owned == null) {
+            return;
+        }
+        FlutterEngineCache.getInstance().remove(cacheName(displayId));
+        String route = owned.route;
+        FlutterEngine replaced = takeIdle(route);
+        if (replaced != null) {
+            // One warm engine per route is enough
+            replaced.destroy();
+        }
+        idle.put(route, owned.engine);
+        Runnable expiry = () -> {
+            idleExpiry.remove(route);
+            FlutterEngine expired = idle.remove(route);
+            if (expired != null) {
+                expired.destroy();
+                Log.d(TAG, "Idle timeout for route " + route);
+            }
+        };
+        idleExpiry.put(route, expiry);
+        handler.postDelayed(expiry, IDLE_TIMEOUT_MS);
+        evictIdle(MAX_IDLE_ENGINES);
+    }
+
+    /**
+     * Push a route on the display's engine, in place of its current page
+     */
+    public void navigate(int displayId, String route) {
+        DisplayEngine owned = displays.get(displayId);
+        if (owned == null) {
+            Log.w(TAG, "No engine on display " + displayId);
+            return;
+        }
+        owned.engine.getNavigationChannel().pushRoute(route);
+        owned.route = route;
+        rememberRoute(route);
+    }
+
+    /**
+     * Whether the display's engine was warm when acquired, so it may still show what another display had
+     */
+    public boolean isWarm(int displayId) {
+        DisplayEngine owned = displays.get(displayId);
+        return owned != null && owned.warm;
+    }
+
+    public int activeCount() {
+        return displays.size();
+    }
+
+    /**
+     * Warm the routes shown in earlier sessions, one per main thread idle pass
+     */
+    public void prewarmRemembered() {
+        prewarm(preferences.getStringSet(PREF_PREWARM_ROUTES, new HashSet<>()));
+    }
+
+    /**
+     * Warm the given routes and remember them for the next app start
+     */
+    public void prewarm(Collection<String> routes) {
+        for (String route : routes) {
+            rememberRoute(route);
+            if (!idle.containsKey(route) && !pendingWarmUps.contains(route)) {
+                pendingWarmUps.add(route);
+            }
+        }
+        scheduleWarmUp();
+    }
+
+    /**
+     * Drop warm engines when the system is short on memory, the ones on a display are kept
+     */
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            pendingWarmUps.clear();
+            evictIdle(0);
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            evictIdle(1);
+        }
+    }
+
+    public int idleCount() {
+        return idle.size();
+    }
+
+    /**
+     * Destroy every engine, including the ones still on a display
+     */
+    public void destroy() {
+        pendingWarmUps.clear();
+        evictIdle(0);
+        for (Map.Entry<Integer, DisplayEngine> entry : displays.entrySet()) {
+            FlutterEngineCache.getInstance().remove(cacheName(entry.getKey()));
+            entry.getValue().engine.destroy();
+        }
+        displays.clear();
+    }
+
+    private void scheduleWarmUp() {
+        if (warmUpScheduled || pendingWarmUps.isEmpty()) {
+            return;
+        }
+        warmUpScheduled = true;
+        // Runs once the main engine's first frames are out of the way
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+            @Override
+            public boolean queueIdle() {
+                String route = pendingWarmUps.poll();
+                if (route != null && !idle.containsKey(route) && idle.size() < MAX_IDLE_ENGINES) {
+                    try {
+                        idle.put(route, createEngine(route));
+                        Log.d(TAG, "Warmed engine for route " + route);
+                    } catch (Exception e) {
+                        Log.e(TAG, "Warming route " + route + " failed", e);
+                    }
+                }
+                warmUpScheduled = !pendingWarmUps.isEmpty() && idle.size() < MAX_IDLE_ENGINES;
+                if (!warmUpScheduled) {
+                    pendingWarmUps.clear();
+                }
+                return warmUpScheduled;
+            }
+        });
+    }
+
+    private FlutterEngine createEngine(String route) {
+        FlutterEngine engine = engineGroup.createAndRunEngine(new FlutterEngineGroup.Options(context)
+                .setDartEntrypoint(DartExecutor.DartEntrypoint.createDefault())
+                .setInitialRoute(route));
+        engine.getLifecycleChannel().appIsResumed();
+        return engine;
+    }
+
+    private void evictIdle(int keep) {
+        Iterator<Map.Entry<String, FlutterEngine>> it = idle.entrySet().iterator();
+        while (idle.size() > keep && it.hasNext()) {
+            Map.Entry<String, FlutterEngine> eldest = it.next();
+            it.remove();
+            cancelExpiry(eldest.getKey());
+            eldest.getValue().destroy();
+            Log.d(TAG, "Evicted idle engine for route " + eldest.getKey());
+        }
+    }
+
+    private FlutterEngine takeIdle(String route) {
+        cancelExpiry(route);
+        return idle.remove(route);
+    }
+
+    private void cancelExpiry(String route) {
+        Runnable expiry = idleExpiry.remove(route);
+        if (expiry != null) {
+            handler.removeCallbacks(expiry);
+        }
+    }
+
+    private void rememberRoute(String route) {
+        Set<String> routes = preferences.getStringSet(PREF_PREWARM_ROUTES, new HashSet<>());
+        if (!routes.contains(route)) {
+            // The returned set must not be modified in place
+            Set<String> updated = new LinkedHashSet<>(routes);
+            updated.add(route);
+            preferences.edit().putStringSet(PREF_PREWARM_ROUTES, updated).apply();
+        }
+    }
+}
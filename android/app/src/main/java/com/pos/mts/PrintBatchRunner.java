@@ -0,0 +1,154 @@
+package com.pos.mts;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.flutter.Log;
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
+import io.flutter.plugin.common.MethodChannel.Result;
+
+/**
+ * Runs a whole receipt of imin_printer commands from a single channel call.
+ * Each command is dispatched through the plugin's own handler and awaited before the next,
+ * so commands keep their order even when a handler replies from a callback or another thread.
+ * A command that answers false counts as failed, since that is how the handlers report errors.
+ * Must run off the main thread.
+ */
+class PrintBatchRunner {
+    private static final String TAG = "PrintBatchRunner";
+    static final long DEFAULT_COMMAND_TIMEOUT_MS = 5000;
+
+    /**
+     * Printer transaction around the batch, e.g. the SDK 2.0 printer buffer
+     */
+    interface Transaction {
+        void begin();
+
+        void end(boolean commit);
+    }
+
+    private PrintBatchRunner() {
+    }
+
+    /**
+     * Run commands of the form {"method": String, "args": Map} in order and summarize them in one map:
+     * success, executed, results (one reply per executed command) and error for the first failure
+     */
+    static Map<String, Object> run(List<Map<String, Object>> commands, MethodCallHandler handler,
+            Transaction transaction, boolean stopOnError, long commandTimeoutMs) {
+        List<Object> results = new ArrayList<>(commands.size());
+        Map<String, Object> firstError = null;
+        int executed = 0;
+
+        if (transaction != null) {
+            transaction.begin();
+        }
+        try {
+            for (int i = 0; i < commands.size(); i++) {
+                Map<String, Object> command = commands.get(i);
+                String method = command != null ? (String) command.get("method") : null;
+                if (method == null || "printBatch".equals(method)) {
+                    // A nested batch would wait on the executor that is running this one
+                    firstError = error(i, method, "INVALID_COMMAND",
+                            method == null ? "Command has no method" : "Batches cannot be nested");
+                    break;
+                }
+
+                CapturingResult reply = new CapturingResult();
+                try {
+                    handler.onMethodCall(new MethodCall(method, command.get("args")), reply);
+                    if (!reply.await(commandTimeoutMs)) {
+                        reply.error("TIMEOUT", method + " did not reply within " + commandTimeoutMs + "ms", null);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    firstError = error(i, method, "INTERRUPTED", "Batch was cancelled");
+                    break;
+                } catch (Exception e) {
+                    Log.e(TAG, "Batch command " + i + " (" + method + ") failed", e);
+                    reply.error("COMMAND_ERROR", e.getMessage(), null);
+                }
+                executed++;
+                results.add(reply.value);
+                if (reply.errorCode == null && Boolean.FALSE.equals(reply.value)) {
+                    // Handlers report a caught exception by answering false
+                    reply.errorCode = "COMMAND_FAILED";
+                    reply.errorMessage = method + " returned false";
+                }
+
+                if (reply.errorCode != null) {
+                    if (firstError == null) {
+                        firstError = error(i, method, reply.errorCode, reply.errorMessage);
+                    }
+                    if (stopOnError) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            if (transaction != null) {
+                // Drop the buffered receipt when the batch stopped halfway
+                transaction.end(firstError == null || !stopOnError);
+            }
+        }
+
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("success", firstError == null);
+        summary.put("executed", executed);
+        summary.put("results", results);
+        if (firstError != null) {
+            summary.put("error", firstError);
+        }
+        return summary;
+    }
+
+    private static Map<String, Object> error(int index, String method, String code, String message) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("index", index);
+        error.put("method", method);
+        error.put("code", code);
+        error.put("message", message);
+        return error;
+    }
+
+    /**
+     * Keeps the first reply of a command and lets the batch thread wait for it
+     */
+    private static class CapturingResult implements Result {
+        private final CountDownLatch replied = new CountDownLatch(1);
+        private volatile Object value;
+        private volatile String errorCode;
+        private volatile String errorMessage;
+
+        boolean await(long timeoutMs) throws InterruptedException {
+            return replied.await(timeoutMs, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public synchronized void success(Object result) {
+            if (replied.getCount() > 0) {
+                value = result;
+                replied.countDown();
+            }
+        }
+
+        @Override
+        public synchronized void error(String code, String message, Object details) {
+            if (replied.getCount() > 0) {
+                errorCode = code;
+                errorMessage = message;
+                replied.countDown();
+            }
+        }
+
+        @Override
+        public void notImplemented() {
+            error("NOT_IMPLEMENTED", "Unknown method", null);
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package com.pos.mts;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Cache for printed URL images (store logos, QR banners, promos) shared by printBitmapToUrl
+ * and the label bitmap calls. Entries are keyed by URL, requested size, dithering mode and
+ * threshold, and hold the image ready to print: dithered to 1 bit when a dithering mode is given,
+ * otherwise the decoded and scaled ARGB bitmap, left for the printer SDK to process.
+ * There is a byte-bounded LRU of ready bitmaps in memory, and packed bits (or a PNG for
+ * undithered images) plus HTTP validators on disk.
+ * Stale entries are revalidated with ETag/Last-Modified, so an unchanged logo costs one 304
+ * and no decode; if the network is down the stale copy is printed rather than failing.
+ */
+public class PrintImageCache {
+    private static final String TAG = "PrintImageCache";
+
+    private static final int MEMORY_CACHE_BYTES = 8 * 1024 * 1024;
+    private static final long DISK_CACHE_BYTES = 16 * 1024 * 1024;
+    // Used when the server sends no freshness information
+    private static final long DEFAULT_MAX_AGE_MS = 60 * 60 * 1000;
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    private static final int READ_TIMEOUT_MS = 10000;
+    private static final int FILE_MAGIC = 0x50494332; // "PIC2"
+    private static final byte FORMAT_BITS = 0;
+    private static final byte FORMAT_PNG = 1;
+    // How often getAll checks running fetches against their timeout
+    private static final long TIMEOUT_POLL_MS = 50;
+
+    /**
+     * A fetch in getAll failed or timed out; index is the image's position in the request
+     */
+    public static class FetchException extends Exception {
+        public final int index;
+        public final String url;
+
+        FetchException(int index, String url, String message, Throwable cause) {
+            super(message, cause);
+            this.index = index;
+            this.url = url;
+        }
+    }
+
+    private static class Entry {
+        final Bitmap bitmap;
+        // Packed 1-bit rows, null for an undithered ARGB image
+        final byte[] bits;
+        final String etag;
+        final String lastModified;
+        volatile long expiresAt;
+
+        Entry(Bitmap bitmap, byte[] bits, String etag, String lastModified, long expiresAt) {
+            this.bitmap = bitmap;
+            this.bits = bits;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final Context context;
+    private final File directory;
+    private final LruCache<String, Entry> memory = new LruCache<String, Entry>(MEMORY_CACHE_BYTES) {
+        @Override
+        protected int sizeOf(String key, Entry entry) {
+            return entry.bitmap.getByteCount();
+        }
+    };
+
+    public PrintImageCache(Context context) {
+        this.context = context.getApplicationContext();
+        this.directory = new File(context.getCacheDir(), "print_images");
+    }
+
+    /**
+     * Bitmap for the URL at the requested size, dithered unless dither is null. The returned bitmap
+     * is shared by later receipts, so callers must not recycle it.
+     */
+    public Bitmap get(String url, int width, int height, EscPosRasterizer.Dither dither, int threshold)
+            throws Exception {
+        String key = url + "|" + width + "x" + height + "|"
+                + (dither != null ? dither + "|" + threshold : "argb");
+        Entry entry = memory.get(key);
+        if (entry == null) {
+            entry = readDisk(key);
+            if (entry != null) {
+                memory.put(key, entry);
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        if (entry != null && now < entry.expiresAt) {
+            return entry.bitmap;
+        }
+
+        Entry fetched;
+        try {
+            fetched = fetch(url, width, height, dither, threshold, entry);
+        } catch (Exception e) {
+            if (entry != null) {
+                Log.w(TAG, "Revalidation failed for " + url + ", printing cached copy: " + e.getMessage());
+                return entry.bitmap;
+            }
+            throw e;
+        }
+        if (fetched != entry) {
+            memory.put(key, fetched);
+        }
+        writeDisk(key, fetched);
+        return fetched.bitmap;
+    }
+
+    /**
+     * Fetch all URLs concurrently on executor and return the bitmaps in request order.
+     * Each image gets timeoutMs from the moment it starts, and the first failure cancels the rest.
+     */
+    public List<Bitmap> getAll(List<String> urls, int width, int height, EscPosRasterizer.Dither dither,
+            int threshold, ExecutorService executor, long timeoutMs) throws FetchException, InterruptedException {
+        int count = urls.size();
+        Bitmap[] bitmaps = new Bitmap[count];
+        AtomicLongArray startedAt = new AtomicLongArray(count);
+        ExecutorCompletionService<Integer> completion = new ExecutorCompletionService<>(executor);
+        List<Future<Integer>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final int index = i;
+            futures.add(completion.submit(() -> {
+                startedAt.set(index, SystemClock.elapsedRealtime());
+                String url = urls.get(index);
+                try {
+                    bitmaps[index] = get(url, width, height, dither, threshold);
+                } catch (Exception e) {
+                    throw new FetchException(index, url, "Image " + index + " failed: " + e.getMessage(), e);
+                }
+                return index;
+            }));
+        }
+
+        try {
+            int done = 0;
+            while (done < count) {
+                Future<Integer> future = completion.poll(TIMEOUT_POLL_MS, TimeUnit.MILLISECONDS);
+                if (future != null) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        if (e.getCause() instanceof FetchException) {
+                            throw (FetchException) e.getCause();
+                        }
+                        throw new FetchException(-1, null, e.getMessage(), e);
+                    }
+                    done++;
+                    continue;
+                }
+                long now = SystemClock.elapsedRealtime();
+                for (int i = 0; i < count; i++) {
+                    long started = startedAt.get(i);
+                    if (started != 0 && now - started > timeoutMs && !futures.get(i).isDone()) {
+                        throw new FetchException(i, urls.get(i),
+                                "Image " + i + " timed out after " + timeoutMs + "ms", null);
+                    }
+                }
+            }
+        } finally {
+            // Fail fast: nothing else is needed once one image is missing
+            for (Future<Integer> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return Arrays.asList(bitmaps);
+    }
+
+    public void clear() {
+        memory.evictAll();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    // Download (or revalidate) and dither; returns the cached entry itself when the server answers 304
+    private Entry fetch(String url, int width, int height, EscPosRasterizer.Dither dither, int threshold,
+            Entry cached) throws Exception {
+        if (!url.startsWith("http://") && !url.startsWith("https://")) {
+            // Local files and assets have no validators, the decode is still only done once per max age
+            return decode(Glide.with(context).asBitmap().load(url), width, height, dither, threshold, null, null,
+                    System.currentTimeMillis() + DEFAULT_MAX_AGE_MS);
+        }
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            if (cached != null) {
+                if (cached.etag != null) {
+                    connection.setRequestProperty("If-None-Match", cached.etag);
+                }
+                if (cached.lastModified != null) {
+                    connection.setRequestProperty("If-Modified-Since", cached.lastModified);
+                }
+            }
+
+            int code = connection.getResponseCode();
+            long expiresAt = expiresAt(connection);
+            if (code == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                Log.d(TAG, "Not modified: " + url);
+                cached.expiresAt = expiresAt;
+                return cached;
+            }
+            if (code != HttpURLConnection.HTTP_OK) {
+                throw new IOException("HTTP " + code + " for " + url);
+            }
+
+            byte[] body;
+            try (InputStream in = connection.getInputStream()) {
+                body = readAll(in);
+            }
+            Log.d(TAG, "Downloaded " + body.length + " bytes: " + url);
+            return decode(Glide.with(context).asBitmap().load(body), width, height, dither, threshold,
+                    connection.getHeaderField("ETag"), connection.getHeaderField("Last-Modified"), expiresAt);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static Entry decode(com.bumptech.glide.RequestBuilder<Bitmap> request, int width, int height,
+            EscPosRasterizer.Dither dither, int threshold, String etag, String lastModified, long expiresAt)
+            throws Exception {
+        // Same Glide sizing as before, the cache only takes over the network and the reuse
+        Bitmap decoded = request.diskCacheStrategy(DiskCacheStrategy.NONE).skipMemoryCache(true)
+                .submit(width, height).get();
+        if (dither == null) {
+            return new Entry(decoded, null, etag, lastModified, expiresAt);
+        }
+        byte[] bits = EscPosRasterizer.ditherToBits(decoded, dither, threshold);
+        Bitmap dithered = EscPosRasterizer.bitsToBitmap(bits, 0, decoded.getWidth(), decoded.getHeight());
+        return new Entry(dithered, bits, etag, lastModified, expiresAt);
+    }
+
+    // Freshness from Cache-Control max-age, then Expires, then DEFAULT_MAX_AGE_MS
+    private static long expiresAt(HttpURLConnection connection) {
+        long now = System.currentTimeMillis();
+        String cacheControl = connection.getHeaderField("Cache-Control");
+        if (cacheControl != null) {
+            for (String directive : cacheControl.split(",")) {
+                directive = directive.trim().toLowerCase();
+                if (directive.equals("no-cache") || directive.equals("no-store")) {
+                    return now;
+                }
+                if (directive.startsWith("max-age=")) {
+                    try {
+                        return now + Long.parseLong(directive.substring(8)) * 1000;
+                    } catch (NumberFormatException e) {
+                        break;
+                    }
+                }
+            }
+        }
+        long expires = connection.getExpiration();
+        return expires > 0 ? expires : now + DEFAULT_MAX_AGE_MS;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private File fileFor(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes("UTF-8"));
+            StringBuilder name = new StringBuilder();
+            for (byte b : digest) {
+                name.append(String.format("%02x", b));
+            }
+            return new File(directory, name.toString());
+        } catch (NoSuchAlgorithmException | IOException e) {
+            return new File(directory, Integer.toHexString(key.hashCode()));
+        }
+    }
+
+    private Entry readDisk(String key) {
+        File file = fileFor(key);
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (in.readInt() != FILE_MAGIC) {
+                return null;
+            }
+            int width = in.readInt();
+            int height = in.readInt();
+            long expiresAt = in.readLong();
+            String etag = in.readBoolean() ? in.readUTF() : null;
+            String lastModified = in.readBoolean() ? in.readUTF() : null;
+            byte format = in.readByte();
+            byte[] data = new byte[in.readInt()];
+            in.readFully(data);
+            // Touch the file so the size cap evicts the least recently printed images first
+            file.setLastModified(System.currentTimeMillis());
+            if (format == FORMAT_PNG) {
+                Bitmap bitmap = BitmapFactory.decodeByteArray(data, 0, data.length);
+                if (bitmap == null) {
+                    throw new IOException("Undecodable image");
+                }
+                return new Entry(bitmap, null, etag, lastModified, expiresAt);
+            }
+            return new Entry(EscPosRasterizer.bitsToBitmap(data, 0, width, height), data, etag, lastModified,
+                    expiresAt);
+        } catch (IOException e) {
+            Log.w(TAG, "Dropping unreadable cache file " + file.getName() + ": " + e.getMessage());
+            file.delete();
+            return null;
+        }
+    }
+
+    private void writeDisk(String key, Entry entry) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return;
+        }
+        File file = fileFor(key);
+        // A temp file of its own, so two fetches of the same image never write into each other
+        File tmp;
+        try {
+            tmp = File.createTempFile(file.getName(), ".tmp", directory);
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to create cache file: " + e.getMessage());
+            return;
+        }
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tmp))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(entry.bitmap.getWidth());
+            out.writeInt(entry.bitmap.getHeight());
+            out.writeLong(entry.expiresAt);
+            out.writeBoolean(entry.etag != null);
+            if (entry.etag != null) {
+                out.writeUTF(entry.etag);
+            }
+            out.writeBoolean(entry.lastModified != null);
+            if (entry.lastModified != null) {
+                out.writeUTF(entry.lastModified);
+            }
+            byte[] data = entry.bits;
+            if (data != null) {
+                out.writeByte(FORMAT_BITS);
+            } else {
+                ByteArrayOutputStream png = new ByteArrayOutputStream();
+                entry.bitmap.compress(Bitmap.CompressFormat.PNG, 100, png);
+                data = png.toByteArray();
+                out.writeByte(FORMAT_PNG);
+            }
+            out.writeInt(data.length);
+            out.write(data);
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to write cache file: " + e.getMessage());
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            return;
+        }
+        trimDisk();
+    }
+
+    // Delete least recently used files until the directory is under DISK_CACHE_BYTES
+    private synchronized void trimDisk() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= DISK_CACHE_BYTES) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (total <= DISK_CACHE_BYTES) {
+                break;
+            }
+            total -= file.length();
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.pos.mts;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, memory-mapped journal of USB print jobs.
+ * A job is recorded before it is sent and marked acknowledged once its outcome has been
+ * reported to Flutter. Records left pending when the process dies are recovered on the next
+ * start and printed again, so a receipt is printed at least once. Writes to the mapping land in
+ * the page cache and survive the app being killed; the file is bounded by CAPACITY and is
+ * compacted into a fresh file when it fills up.
+ *
+ * Layout: FILE_MAGIC, VERSION, then records until the first int that is not RECORD_MAGIC.
+ */
+public class PrintSpool {
+    private static final String TAG = "PrintSpool";
+
+    public static final int CAPACITY = 4 * 1024 * 1024;
+    public static final byte KIND_BYTES = 0;
+    public static final byte KIND_IMAGE = 1;
+
+    private static final int FILE_MAGIC = 0x4D545350; // "MTSP"
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 8;
+    private static final int RECORD_MAGIC = 0x4A4F4221; // "JOB!"
+    private static final int END_MARKER = 0;
+    private static final byte STATE_PENDING = 1;
+    private static final byte STATE_ACKED = 2;
+    // Record header: magic, state, kind, jobId, vendorId, productId, paperWidth, dither, threshold, length, crc
+    private static final int STATE_OFFSET = 4;
+    private static final int KIND_OFFSET = 5;
+    private static final int JOB_ID_OFFSET = 6;
+    private static final int VENDOR_ID_OFFSET = 14;
+    private static final int PRODUCT_ID_OFFSET = 18;
+    private static final int PAPER_WIDTH_OFFSET = 22;
+    private static final int DITHER_OFFSET = 26;
+    private static final int THRESHOLD_OFFSET = 27;
+    private static final int LENGTH_OFFSET = 31;
+    private static final int CRC_OFFSET = 35;
+    private static final int RECORD_HEADER_SIZE = 39;
+
+    /**
+     * A pending job as stored in the spool
+     */
+    public static class Job {
+        public final long jobId;
+        public final byte kind;
+        public final String vendorId;
+        public final String productId;
+        public final int paperWidth;
+        public final EscPosRasterizer.Dither dither;
+        public final int threshold;
+        public final byte[] payload;
+
+        Job(long jobId, byte kind, String vendorId, String productId, int paperWidth,
+                EscPosRasterizer.Dither dither, int threshold, byte[] payload) {
+            this.jobId = jobId;
+            this.kind = kind;
+            this.vendorId = vendorId;
+            this.productId = productId;
+            this.paperWidth = paperWidth;
+            this.dither = dither;
+            this.threshold = threshold;
+            this.payload = payload;
+        }
+    }
+
+    private final File file;
+    private MappedByteBuffer buffer;
+    // Record position of every pending job, in spool order
+    private final LinkedHashMap<Long, Integer> pending = new LinkedHashMap<>();
+    private int writePosition;
+    // Set by close, later appends and acks are ignored so a late reply never touches the file
+    private boolean closed;
+
+    public PrintSpool(File file) throws IOException {
+        this.file = file;
+        this.buffer = map(file);
+        if (buffer.getInt(0) != FILE_MAGIC || buffer.getInt(4) != VERSION) {
+            Log.d(TAG, "Initializing print spool at " + file.getPath());
+            buffer.putInt(0, FILE_MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(FILE_HEADER_SIZE, END_MARKER);
+        }
+        scan();
+    }
+
+    private static MappedByteBuffer map(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() != CAPACITY) {
+                raf.setLength(CAPACITY);
+            }
+            // The mapping stays valid after the channel is closed
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, CAPACITY);
+        }
+    }
+
+    // Rebuild the pending index and find the end of the journal
+    private void scan() {
+        pending.clear();
+        int position = FILE_HEADER_SIZE;
+        while (position + RECORD_HEADER_SIZE <= CAPACITY && buffer.getInt(position) == RECORD_MAGIC) {
+            int length = buffer.getInt(position + LENGTH_OFFSET);
+            if (length < 0 || position + RECORD_HEADER_SIZE + length > CAPACITY) {
+                Log.w(TAG, "Truncated spool record at " + position + ", dropping the rest of the spool");
+                break;
+            }
+            if (buffer.get(position + STATE_OFFSET) == STATE_PENDING) {
+                if (checksumMatches(position, length)) {
+                    pending.put(buffer.getLong(position + JOB_ID_OFFSET), position);
+                } else {
+                    Log.w(TAG, "Corrupt spool record at " + position + ", skipping");
+                }
+            }
+            position += RECORD_HEADER_SIZE + length;
+        }
+        writePosition = position;
+        if (writePosition + 4 <= CAPACITY) {
+            buffer.putInt(writePosition, END_MARKER);
+        }
+        if (!pending.isEmpty()) {
+            Log.d(TAG, "Recovered " + pending.size() + " unfinished print jobs");
+        }
+    }
+
+    /**
+     * Record a job before it is sent. Returns false when the job does not fit even after
+     * compaction, in which case it is printed without crash protection.
+     */
+    public synchronized boolean append(long jobId, byte kind, String vendorId, String productId, int paperWidth,
+            EscPosRasterizer.Dither dither, int threshold, byte[] payload) {
+        if (closed) {
+            return false;
+        }
+        int vendor;
+        int product;
+        try {
+            vendor = Integer.parseInt(vendorId);
+            product = Integer.parseInt(productId);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        int size = RECORD_HEADER_SIZE + payload.length;
+        // Leave room for the end marker after the record
+        if (writePosition + size + 4 > CAPACITY) {
+            compact();
+            if (writePosition + size + 4 > CAPACITY) {
+                Log.w(TAG, "Print spool full, job " + jobId + " (" + payload.length + " bytes) is not spooled");
+                return false;
+            }
+        }
+
+        int position = writePosition;
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        buffer.position(position + STATE_OFFSET);
+        buffer.put(STATE_PENDING);
+        buffer.put(kind);
+        buffer.putLong(jobId);
+        buffer.putInt(vendor);
+        buffer.putInt(product);
+        buffer.putInt(paperWidth);
+        buffer.put((byte) (dither != null ? dither.ordinal() : 0));
+        buffer.putInt(threshold);
+        buffer.putInt(payload.length);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(payload);
+        buffer.putInt(END_MARKER);
+        // Publishing the magic last means a record torn by a crash is never read back
+        buffer.putInt(position, RECORD_MAGIC);
+
+        writePosition = position + size;
+        pending.put(jobId, position);
+        return true;
+    }
+
+    /**
+     * Mark a job as done once its outcome has been delivered
+     */
+    public synchronized void ack(long jobId) {
+        if (closed) {
+            return;
+        }
+        Integer position = pending.remove(jobId);
+        if (position == null) {
+            return;
+        }
+        buffer.put(position + STATE_OFFSET, STATE_ACKED);
+        if (pending.isEmpty()) {
+            // Nothing left to recover, so start over at the head and keep the file warm
+            writePosition = FILE_HEADER_SIZE;
+            buffer.putInt(writePosition, END_MARKER);
+        }
+    }
+
+    public synchronized boolean isPending(long jobId) {
+        return pending.containsKey(jobId);
+    }
+
+    /**
+     * The stored job, or null once it has been acknowledged or the spool is closed
+     */
+    public synchronized Job pendingJob(long jobId) {
+        Integer position = pending.get(jobId);
+        return position == null || closed ? null : readJob(position);
+    }
+
+    /**
+     * Every job still waiting for an outcome, oldest first
+     */
+    public synchronized List<Job> pendingJobs() {
+        List<Job> jobs = new ArrayList<>(pending.size());
+        for (int position : pending.values()) {
+            jobs.add(readJob(position));
+        }
+        return jobs;
+    }
+
+    public synchronized Map<String, Object> status() {
+        List<Map<String, Object>> jobs = new ArrayList<>();
+        for (int position : pending.values()) {
+            Map<String, Object> job = new HashMap<>();
+            job.put("jobId", buffer.getLong(position + JOB_ID_OFFSET));
+            job.put("kind", buffer.get(position + KIND_OFFSET) == KIND_IMAGE ? "image" : "bytes");
+            job.put("vendorId", String.valueOf(buffer.getInt(position + VENDOR_ID_OFFSET)));
+            job.put("productId", String.valueOf(buffer.getInt(position + PRODUCT_ID_OFFSET)));
+            job.put("size", buffer.getInt(position + LENGTH_OFFSET));
+            jobs.add(job);
+        }
+        Map<String, Object> status = new HashMap<>();
+        status.put("capacity", CAPACITY);
+        status.put("usedBytes", writePosition);
+        status.put("pendingCount", jobs.size());
+        status.put("jobs", jobs);
+        return status;
+    }
+
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        buffer.force();
+    }
+
+    private Job readJob(int position) {
+        int length = buffer.getInt(position + LENGTH_OFFSET);
+        byte[] payload = new byte[length];
+        buffer.position(position + RECORD_HEADER_SIZE);
+        buffer.get(payload);
+        EscPosRasterizer.Dither[] dithers = EscPosRasterizer.Dither.values();
+        int dither = buffer.get(position + DITHER_OFFSET);
+        return new Job(buffer.getLong(position + JOB_ID_OFFSET), buffer.get(position + KIND_OFFSET),
+                String.valueOf(buffer.getInt(position + VENDOR_ID_OFFSET)), String.valueOf(buffer.getInt(position + PRODUCT_ID_OFFSET)),
+                buffer.getInt(position + PAPER_WIDTH_OFFSET), dithers[Math.min(Math.max(dither, 0), dithers.length - 1)],
+                buffer.getInt(position + THRESHOLD_OFFSET), payload);
+    }
+
+    private boolean checksumMatches(int position, int length) {
+        byte[] payload = new byte[length];
+        buffer.position(position + RECORD_HEADER_SIZE);
+        buffer.get(payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, length);
+        return (int) crc.getValue() == buffer.getInt(position + CRC_OFFSET);
+    }
+
+    /**
+     * Copy the pending records into a new file and swap it in, so a crash during compaction
+     * leaves either the old or the new spool intact, never a half-moved one
+     */
+    private void compact() {
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            MappedByteBuffer target = map(tmp);
+            target.putInt(0, FILE_MAGIC);
+            target.putInt(4, VERSION);
+            int position = FILE_HEADER_SIZE;
+            LinkedHashMap<Long, Integer> moved = new LinkedHashMap<>();
+            for (Map.Entry<Long, Integer> entry : pending.entrySet()) {
+                int source = entry.getValue();
+                int size = RECORD_HEADER_SIZE + buffer.getInt(source + LENGTH_OFFSET);
+                ByteBuffer record = buffer.duplicate();
+                record.position(source);
+                record.limit(source + size);
+                target.position(position);
+                target.put(record);
+                moved.put(entry.getKey(), position);
+                position += size;
+            }
+            target.putInt(position, END_MARKER);
+            target.force();
+
+            if (!tmp.renameTo(file)) {
+                throw new IOException("Unable to replace " + file.getPath());
+            }
+            buffer = target;
+            pending.clear();
+            pending.putAll(moved);
+            Log.d(TAG, "Compacted print spool from " + writePosition + " to " + position + " bytes");
+            writePosition = position;
+        } catch (IOException e) {
+            Log.e(TAG, "Error compacting print spool", e);
+            tmp.delete();
+        }
+    }
+}
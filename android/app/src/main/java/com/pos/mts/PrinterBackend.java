@@ -0,0 +1,121 @@
+package com.pos.mts;
+
+import android.graphics.Bitmap;
+import android.graphics.Typeface;
+
+import java.util.List;
+
+/**
+ * Receipt printing operations shared by every printer the imin_printer channel can drive.
+ * IminPrinterPlugin picks one implementation when it attaches (SDK 1.0 IminPrintUtils or
+ * SDK 2.0 PrinterHelper, from the DeviceProfile) and can be switched to raw ESC/POS over USB,
+ * so the channel handlers call the backend instead of branching per SDK.
+ * Features only some printers have are reported through {@link #supports(Capability)}, and the
+ * channel methods of such a feature are registered with the capability they need.
+ * Nullable Integer parameters mean "not given by the caller" and select the SDK's shorter overload.
+ */
+public interface PrinterBackend {
+    enum Capability {
+        // IminPrintUtils device session of SDK 1.0: resetDevice, setInitIminPrinter and its log switch
+        DEVICE_SESSION,
+        // Settings, identity and drawer queries of the SDK 2.0 printer service
+        PRINTER_SERVICE,
+        // Text rendered to a bitmap by the SDK 2.0 printer service, printTextBitmap and its setters
+        TEXT_BITMAP,
+        TEXT_STYLE,
+        ANTI_WHITE_TEXT,
+        FULL_CUT,
+        COLOR_CHART,
+        // Two QR codes side by side, printDoubleQR and its setters
+        DOUBLE_QR,
+        // Label canvas, label learning and the label/receipt printer mode of the SDK 2.0 service
+        LABEL,
+        // enterPrinterBuffer/exitPrinterBuffer transactions for printBatch
+        PRINTER_BUFFER,
+        RAW_DATA
+    }
+
+    enum BitmapMode {
+        NORMAL,
+        BLACK_WHITE,
+        COLOR_CHART
+    }
+
+    interface StatusCallback {
+        void onStatus(int status);
+    }
+
+    String name();
+
+    boolean supports(Capability capability);
+
+    void init() throws Exception;
+
+    void getStatus(StatusCallback callback) throws Exception;
+
+    void setTextSize(int size) throws Exception;
+
+    void setTextTypeface(Typeface typeface) throws Exception;
+
+    void setTextWidth(int width) throws Exception;
+
+    void setAlignment(int alignment) throws Exception;
+
+    void setTextLineSpacing(float space) throws Exception;
+
+    void printText(String text) throws Exception;
+
+    void printAntiWhiteText(String text) throws Exception;
+
+    void printAndLineFeed() throws Exception;
+
+    void printAndFeedPaper(int height) throws Exception;
+
+    void partialCut() throws Exception;
+
+    void fullCut() throws Exception;
+
+    void printBitmap(Bitmap bitmap, Integer alignment, BitmapMode mode) throws Exception;
+
+    void printMultiBitmap(List<Bitmap> bitmaps, Integer alignment) throws Exception;
+
+    void printColumnsText(String[] text, int[] width, int[] align, int[] fontSize) throws Exception;
+
+    void setQrCodeSize(int size) throws Exception;
+
+    void setQrCodeErrorCorrectionLev(int level) throws Exception;
+
+    void setLeftMargin(int margin) throws Exception;
+
+    void printQrCode(String data, Integer alignment, Integer size, Integer level) throws Exception;
+
+    void setBarCodeWidth(int width) throws Exception;
+
+    void setBarCodeHeight(int height) throws Exception;
+
+    void setBarCodeContentPrintPos(int position) throws Exception;
+
+    void printBarCode(int type, String data, Integer alignment, Integer width, Integer height, Integer position)
+            throws Exception;
+
+    void setPageFormat(int style) throws Exception;
+
+    void setDoubleQRSize(int size) throws Exception;
+
+    /**
+     * Settings of one code of the pair; qr is 1 for the left code and 2 for the right one
+     */
+    void setDoubleQRLevel(int qr, int level) throws Exception;
+
+    void setDoubleQRMarginLeft(int qr, int margin) throws Exception;
+
+    void setDoubleQRVersion(int qr, int version) throws Exception;
+
+    void printDoubleQR(String qr1Text, String qr2Text) throws Exception;
+
+    void sendRawData(byte[] data) throws Exception;
+
+    void openDrawer() throws Exception;
+
+    void close();
+}
@@ -0,0 +1,135 @@
+package com.pos.mts;
+
+import android.os.SystemClock;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.flutter.plugin.common.MethodChannel.Result;
+
+/**
+ * Executors owned by one imin_printer plugin instance.
+ * Printer-mutating commands run one at a time, in the order they arrived, on a single printer
+ * thread; image downloads run on a small bounded pool. Both report queue depth and how long
+ * tasks waited before starting, and both are shut down when the plugin detaches.
+ */
+class PrinterExecutors {
+    static final int IO_THREADS = 4;
+
+    // Set on the printer thread, so a command issued from printBatch runs inline instead of queueing behind it
+    private static final ThreadLocal<Boolean> ON_PRINTER_THREAD = new ThreadLocal<>();
+
+    private final MeteredExecutor printer = new MeteredExecutor("imin-printer", 1, true);
+    private final MeteredExecutor io = new MeteredExecutor("imin-image-io", IO_THREADS, false);
+
+    static boolean onPrinterThread() {
+        return Boolean.TRUE.equals(ON_PRINTER_THREAD.get());
+    }
+
+    /**
+     * Run task on the printer thread after everything submitted before it.
+     * Fails the reply when the plugin has already detached.
+     */
+    void executePrinter(Result reply, Runnable task) {
+        if (onPrinterThread()) {
+            task.run();
+            return;
+        }
+        try {
+            printer.execute(task);
+        } catch (RejectedExecutionException e) {
+            reply.error("EXECUTOR_SHUTDOWN", "imin_printer is detached", null);
+        }
+    }
+
+    ExecutorService io() {
+        return io;
+    }
+
+    Map<String, Object> metrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("printer", printer.metrics());
+        metrics.put("io", io.metrics());
+        return metrics;
+    }
+
+    void shutdown() {
+        printer.shutdownNow();
+        io.shutdownNow();
+    }
+
+    /**
+     * Fixed-size pool that records how long each task sat in the queue
+     */
+    private static class MeteredExecutor extends ThreadPoolExecutor {
+        private final AtomicLong submitted = new AtomicLong();
+        private final AtomicLong started = new AtomicLong();
+        private final AtomicLong totalWaitMs = new AtomicLong();
+        private final AtomicLong maxWaitMs = new AtomicLong();
+        private volatile long lastWaitMs;
+
+        MeteredExecutor(String name, int threads, boolean printerThread) {
+            super(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                    new NamedThreadFactory(name, printerThread));
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            long enqueuedAt = SystemClock.elapsedRealtime();
+            super.execute(() -> {
+                long waitMs = SystemClock.elapsedRealtime() - enqueuedAt;
+                lastWaitMs = waitMs;
+                totalWaitMs.addAndGet(waitMs);
+                maxWaitMs.accumulateAndGet(waitMs, Math::max);
+                started.incrementAndGet();
+                command.run();
+            });
+            submitted.incrementAndGet();
+        }
+
+        Map<String, Object> metrics() {
+            long startedCount = started.get();
+            Map<String, Object> metrics = new HashMap<>();
+            metrics.put("threads", getMaximumPoolSize());
+            metrics.put("active", getActiveCount());
+            metrics.put("queueDepth", getQueue().size());
+            metrics.put("submitted", submitted.get());
+            metrics.put("completed", getCompletedTaskCount());
+            metrics.put("lastWaitMs", lastWaitMs);
+            metrics.put("maxWaitMs", maxWaitMs.get());
+            metrics.put("avgWaitMs", startedCount > 0 ? (double) totalWaitMs.get() / startedCount : 0.0);
+            return metrics;
+        }
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final String name;
+        private final boolean printerThread;
+        private final AtomicInteger count = new AtomicInteger();
+
+        NamedThreadFactory(String name, boolean printerThread) {
+            this.name = name;
+            this.printerThread = printerThread;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(() -> {
+                if (printerThread) {
+                    ON_PRINTER_THREAD.set(true);
+                }
+                runnable.run();
+            }, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
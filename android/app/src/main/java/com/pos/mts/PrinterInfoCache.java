@@ -0,0 +1,95 @@
+package com.pos.mts;
+
+import com.imin.printer.PrinterHelper;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import io.flutter.Log;
+
+/**
+ * One snapshot of the SDK 2.0 printer's identity and settings for getPrinterInfo.
+ * Every field is queried concurrently, the callback ones through NeoPrinterQuery and the
+ * blocking binder getters on the I/O executor, and the combined map is kept until the printer
+ * reports a status change or a setting is changed through the plugin. Concurrent callers share
+ * the load in flight. A snapshot with a failed field is returned but not kept, so the next
+ * call retries it.
+ */
+class PrinterInfoCache {
+    private static final String TAG = "PrinterInfoCache";
+
+    private final Executor executor;
+    private CompletableFuture<Map<String, Object>> snapshot;
+
+    PrinterInfoCache(Executor executor) {
+        this.executor = executor;
+    }
+
+    synchronized CompletableFuture<Map<String, Object>> get() {
+        if (snapshot == null) {
+            // Published before loading, so a load that fails right away can still discard itself
+            snapshot = new CompletableFuture<>();
+            load(snapshot);
+        }
+        return snapshot;
+    }
+
+    synchronized void invalidate() {
+        snapshot = null;
+    }
+
+    private synchronized void discard(CompletableFuture<Map<String, Object>> loaded) {
+        if (snapshot == loaded) {
+            snapshot = null;
+        }
+    }
+
+    private void load(CompletableFuture<Map<String, Object>> loaded) {
+        PrinterHelper printer = PrinterHelper.getInstance();
+        Map<String, CompletableFuture<Object>> fields = new LinkedHashMap<>();
+        fields.put("serialNumber", NeoPrinterQuery.query("getPrinterSerialNumber", printer::getPrinterSerialNumber));
+        fields.put("modelName", NeoPrinterQuery.query("getPrinterModelName", printer::getPrinterModelName));
+        fields.put("firmwareVersion",
+                NeoPrinterQuery.query("getPrinterFirmwareVersion", printer::getPrinterFirmwareVersion));
+        fields.put("serviceVersion", async(printer::getServiceVersion));
+        fields.put("density", async(printer::getPrinterDensity));
+        fields.put("speed", async(printer::getPrinterSpeed));
+        fields.put("paperType", async(printer::getPrinterPaperType));
+        fields.put("codepage", async(printer::getCurCodepage));
+        fields.put("encode", async(printer::getCurEncode));
+
+        AtomicBoolean failed = new AtomicBoolean();
+        Map<String, CompletableFuture<Object>> tolerant = new HashMap<>();
+        for (Map.Entry<String, CompletableFuture<Object>> field : fields.entrySet()) {
+            String name = field.getKey();
+            tolerant.put(name, field.getValue().handle((value, error) -> {
+                if (error != null) {
+                    Log.w(TAG, "Printer info field " + name + " failed: " + error.getMessage());
+                    failed.set(true);
+                    return null;
+                }
+                return value;
+            }));
+        }
+
+        NeoPrinterQuery.all(tolerant).whenComplete((info, error) -> {
+            if (error != null || failed.get()) {
+                discard(loaded);
+            }
+            if (error != null) {
+                loaded.completeExceptionally(error);
+            } else {
+                loaded.complete(info);
+            }
+        });
+    }
+
+    private CompletableFuture<Object> async(Supplier<Object> getter) {
+        return CompletableFuture.supplyAsync(getter, executor);
+    }
+}
@@ -0,0 +1,237 @@
+package com.pos.mts;
+
+import android.graphics.Bitmap;
+import android.graphics.Typeface;
+
+import com.imin.printerlib.IminPrintUtils;
+
+import java.util.List;
+
+/**
+ * iMin SDK 1.0 (IminPrintUtils), used on every device that is not an SDK 2.0 model
+ */
+public class Sdk1PrinterBackend implements PrinterBackend {
+    private final IminPrintUtils printer;
+    private final IminPrintUtils.PrintConnectType connectType;
+
+    public Sdk1PrinterBackend(IminPrintUtils printer, IminPrintUtils.PrintConnectType connectType) {
+        this.printer = printer;
+        this.connectType = connectType;
+    }
+
+    @Override
+    public String name() {
+        return "sdk1";
+    }
+
+    @Override
+    public boolean supports(Capability capability) {
+        switch (capability) {
+            case DEVICE_SESSION:
+            case TEXT_STYLE:
+            case ANTI_WHITE_TEXT:
+            case DOUBLE_QR:
+            case RAW_DATA:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public void init() {
+        printer.initPrinter(connectType);
+    }
+
+    @Override
+    public void getStatus(StatusCallback callback) {
+        if (connectType.equals(IminPrintUtils.PrintConnectType.SPI)) {
+            // SPI printers only report status asynchronously
+            printer.getPrinterStatus(connectType, callback::onStatus);
+        } else {
+            callback.onStatus(printer.getPrinterStatus(connectType));
+        }
+    }
+
+    @Override
+    public void setTextSize(int size) {
+        printer.setTextSize(size);
+    }
+
+    @Override
+    public void setTextTypeface(Typeface typeface) {
+        printer.setTextTypeface(typeface);
+    }
+
+    @Override
+    public void setTextWidth(int width) {
+        printer.setTextWidth(width);
+    }
+
+    @Override
+    public void setAlignment(int alignment) {
+        printer.setAlignment(alignment);
+    }
+
+    @Override
+    public void setTextLineSpacing(float space) {
+        printer.setTextLineSpacing(space);
+    }
+
+    @Override
+    public void printText(String text) {
+        printer.printText(text);
+    }
+
+    @Override
+    public void printAntiWhiteText(String text) {
+        printer.printAntiWhiteText(text);
+    }
+
+    @Override
+    public void printAndLineFeed() {
+        printer.printAndLineFeed();
+    }
+
+    @Override
+    public void printAndFeedPaper(int height) {
+        printer.printAndFeedPaper(height);
+    }
+
+    @Override
+    public void partialCut() {
+        printer.partialCut();
+    }
+
+    @Override
+    public void fullCut() {
+        // SDK 1.0 has no full cut
+    }
+
+    @Override
+    public void printBitmap(Bitmap bitmap, Integer alignment, BitmapMode mode) {
+        if (alignment != null) {
+            printer.printSingleBitmap(bitmap, alignment);
+        } else if (mode == BitmapMode.BLACK_WHITE) {
+            printer.printSingleBitmapBlackWhite(bitmap);
+        } else {
+            printer.printSingleBitmap(bitmap);
+        }
+    }
+
+    @Override
+    public void printMultiBitmap(List<Bitmap> bitmaps, Integer alignment) {
+        printer.printMultiBitmap(bitmaps, alignment != null ? alignment : 0);
+    }
+
+    @Override
+    public void printColumnsText(String[] text, int[] width, int[] align, int[] fontSize) {
+        printer.printColumnsText(text, width, align, fontSize);
+    }
+
+    @Override
+    public void setQrCodeSize(int size) {
+        printer.setQrCodeSize(size);
+    }
+
+    @Override
+    public void setQrCodeErrorCorrectionLev(int level) {
+        printer.setQrCodeErrorCorrectionLev(level);
+    }
+
+    @Override
+    public void setLeftMargin(int margin) {
+        printer.setLeftMargin(margin);
+    }
+
+    @Override
+    public void printQrCode(String data, Integer alignment, Integer size, Integer level) {
+        // Size and level are set separately on SDK 1.0
+        if (alignment != null) {
+            printer.printQrCode(data, alignment);
+        } else {
+            printer.printQrCode(data);
+        }
+    }
+
+    @Override
+    public void setBarCodeWidth(int width) {
+        printer.setBarCodeWidth(width);
+    }
+
+    @Override
+    public void setBarCodeHeight(int height) {
+        printer.setBarCodeHeight(height);
+    }
+
+    @Override
+    public void setBarCodeContentPrintPos(int position) {
+        printer.setBarCodeContentPrintPos(position);
+    }
+
+    @Override
+    public void printBarCode(int type, String data, Integer alignment, Integer width, Integer height,
+            Integer position) {
+        if (alignment != null) {
+            printer.printBarCode(type, data, alignment);
+        } else {
+            printer.printBarCode(type, data);
+        }
+    }
+
+    @Override
+    public void setPageFormat(int style) {
+        printer.setPageFormat(style);
+    }
+
+    @Override
+    public void setDoubleQRSize(int size) {
+        printer.setDoubleQRSize(size);
+    }
+
+    @Override
+    public void setDoubleQRLevel(int qr, int level) {
+        if (qr == 1) {
+            printer.setDoubleQR1Level(level);
+        } else {
+            printer.setDoubleQR2Level(level);
+        }
+    }
+
+    @Override
+    public void setDoubleQRMarginLeft(int qr, int margin) {
+        if (qr == 1) {
+            printer.setDoubleQR1MarginLeft(margin);
+        } else {
+            printer.setDoubleQR2MarginLeft(margin);
+        }
+    }
+
+    @Override
+    public void setDoubleQRVersion(int qr, int version) {
+        if (qr == 1) {
+            printer.setDoubleQR1Version(version);
+        } else {
+            printer.setDoubleQR2Version(version);
+        }
+    }
+
+    @Override
+    public void printDoubleQR(String qr1Text, String qr2Text) {
+        printer.printDoubleQR(qr1Text, qr2Text);
+    }
+
+    @Override
+    public void sendRawData(byte[] data) {
+        printer.sendRAWData(data);
+    }
+
+    @Override
+    public void openDrawer() {
+        Utils.getInstance().opencashBox();
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,254 @@
+package com.pos.mts;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Typeface;
+
+import com.imin.printer.PrinterHelper;
+
+import java.util.List;
+
+import io.flutter.Log;
+
+/**
+ * iMin SDK 2.0 (PrinterHelper), used on the I23/I24 models.
+ * Text styling is configured on the printer service itself, so the SDK 1.0 style setters are no-ops here.
+ */
+public class Sdk2PrinterBackend implements PrinterBackend {
+    private static final String TAG = "Sdk2PrinterBackend";
+
+    private final Context context;
+
+    public Sdk2PrinterBackend(Context context) {
+        this.context = context;
+    }
+
+    private static PrinterHelper printer() {
+        return PrinterHelper.getInstance();
+    }
+
+    @Override
+    public String name() {
+        return "sdk2";
+    }
+
+    @Override
+    public boolean supports(Capability capability) {
+        switch (capability) {
+            case PRINTER_SERVICE:
+            case TEXT_BITMAP:
+            case FULL_CUT:
+            case COLOR_CHART:
+            case DOUBLE_QR:
+            case LABEL:
+            case PRINTER_BUFFER:
+            case RAW_DATA:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public void init() {
+        Log.d(TAG, context.getPackageName());
+        printer().initPrinter(context.getPackageName(), null);
+    }
+
+    @Override
+    public void getStatus(StatusCallback callback) {
+        callback.onStatus(printer().getPrinterStatus());
+    }
+
+    @Override
+    public void setTextSize(int size) {
+    }
+
+    @Override
+    public void setTextTypeface(Typeface typeface) {
+    }
+
+    @Override
+    public void setTextWidth(int width) {
+    }
+
+    @Override
+    public void setAlignment(int alignment) {
+    }
+
+    @Override
+    public void setTextLineSpacing(float space) {
+    }
+
+    @Override
+    public void printText(String text) {
+        printer().printText(text, null);
+    }
+
+    @Override
+    public void printAntiWhiteText(String text) {
+    }
+
+    @Override
+    public void printAndLineFeed() {
+        printer().printAndLineFeed();
+    }
+
+    @Override
+    public void printAndFeedPaper(int height) {
+        printer().printAndFeedPaper(height);
+    }
+
+    @Override
+    public void partialCut() {
+        printer().partialCut();
+    }
+
+    @Override
+    public void fullCut() {
+        printer().fullCut();
+    }
+
+    @Override
+    public void printBitmap(Bitmap bitmap, Integer alignment, BitmapMode mode) {
+        if (mode == BitmapMode.COLOR_CHART) {
+            if (alignment != null) {
+                printer().printBitmapColorChartWithAlign(bitmap, alignment, null);
+            } else {
+                printer().printBitmapColorChart(bitmap, null);
+            }
+        } else if (alignment != null) {
+            printer().printBitmapWithAlign(bitmap, alignment, null);
+        } else {
+            printer().printBitmap(bitmap, null);
+        }
+    }
+
+    @Override
+    public void printMultiBitmap(List<Bitmap> bitmaps, Integer alignment) {
+        if (alignment != null) {
+            printer().printMultiBitmapWithAlign(bitmaps, alignment, null);
+        } else {
+            printer().printMultiBitmap(bitmaps, null);
+        }
+    }
+
+    @Override
+    public void printColumnsText(String[] text, int[] width, int[] align, int[] fontSize) {
+        printer().printColumnsText(text, width, align, fontSize, null);
+    }
+
+    @Override
+    public void setQrCodeSize(int size) {
+        printer().setQrCodeSize(size);
+    }
+
+    @Override
+    public void setQrCodeErrorCorrectionLev(int level) {
+        printer().setQrCodeErrorCorrectionLev(level);
+    }
+
+    @Override
+    public void setLeftMargin(int margin) {
+        printer().setLeftMargin(margin);
+    }
+
+    @Override
+    public void printQrCode(String data, Integer alignment, Integer size, Integer level) {
+        if (alignment == null) {
+            printer().printQrCode(data, null);
+        } else if (size != null && level != null) {
+            printer().printQRCodeWithFull(data, size, level, alignment, null);
+        } else {
+            printer().printQrCodeWithAlign(data, alignment, null);
+        }
+    }
+
+    @Override
+    public void setBarCodeWidth(int width) {
+        printer().setBarCodeWidth(width);
+    }
+
+    @Override
+    public void setBarCodeHeight(int height) {
+        printer().setBarCodeHeight(height);
+    }
+
+    @Override
+    public void setBarCodeContentPrintPos(int position) {
+        printer().setBarCodeContentPrintPos(position);
+    }
+
+    @Override
+    public void printBarCode(int type, String data, Integer alignment, Integer width, Integer height,
+            Integer position) {
+        if (alignment == null) {
+            printer().printBarCode(data, type, null);
+        } else if (position != null && height != null && width != null) {
+            printer().printBarCodeWithFull(data, type, width, height, alignment, position, null);
+        } else {
+            printer().printBarCodeWithAlign(data, type, alignment, null);
+        }
+    }
+
+    @Override
+    public void setPageFormat(int style) {
+        printer().setPageFormat(style);
+    }
+
+    @Override
+    public void setDoubleQRSize(int size) {
+        printer().setDoubleQRSize(size);
+    }
+
+    @Override
+    public void setDoubleQRLevel(int qr, int level) {
+        if (qr == 1) {
+            printer().setDoubleQR1Level(level);
+        } else {
+            printer().setDoubleQR2Level(level);
+        }
+    }
+
+    @Override
+    public void setDoubleQRMarginLeft(int qr, int margin) {
+        if (qr == 1) {
+            printer().setDoubleQR1MarginLeft(margin);
+        } else {
+            printer().setDoubleQR2MarginLeft(margin);
+        }
+    }
+
+    @Override
+    public void setDoubleQRVersion(int qr, int version) {
+        if (qr == 1) {
+            printer().setDoubleQR1Version(version);
+        } else {
+            printer().setDoubleQR2Version(version);
+        }
+    }
+
+    @Override
+    public void printDoubleQR(String qr1Text, String qr2Text) {
+        printer().printDoubleQR(qr1Text, qr2Text, null);
+    }
+
+    @Override
+    public void sendRawData(byte[] data) {
+        printer().sendRAWData(data, null);
+    }
+
+    @Override
+    public void openDrawer() {
+        try {
+            printer().openDrawer();
+        } catch (Exception e) {
+            Log.e(TAG, "PrinterHelper.openDrawer() failed, trying IminSDKManager: " + e.getMessage());
+            Utils.getInstance().opencashBox();
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,172 @@
+package com.pos.mts;
+
+import android.hardware.usb.UsbConstants;
+import android.hardware.usb.UsbDevice;
+import android.hardware.usb.UsbDeviceConnection;
+import android.hardware.usb.UsbEndpoint;
+import android.hardware.usb.UsbInterface;
+import android.hardware.usb.UsbManager;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Keeps USB printer connections open between print jobs.
+ * Connections are keyed by the same "vendorId:productId" id used for connectedPrinters,
+ * so a receipt only pays for openDevice/claimInterface the first time a printer is used.
+ * Writers hold the printer's writeLock for the whole job, so jobs sent through different
+ * channels to the same printer never interleave their bytes.
+ */
+public class UsbConnectionManager {
+    private static final String TAG = "UsbConnectionManager";
+
+    // Standard USB GET_STATUS request used as a cheap health probe
+    private static final int REQUEST_TYPE_DEVICE_TO_HOST = 0x80;
+    private static final int REQUEST_GET_STATUS = 0x00;
+    private static final int PROBE_TIMEOUT_MS = 100;
+
+    private final UsbManager usbManager;
+    private final HashMap<String, PooledConnection> connections = new HashMap<>();
+    private final HashMap<String, Object> writeLocks = new HashMap<>();
+
+    public UsbConnectionManager(UsbManager usbManager) {
+        this.usbManager = usbManager;
+    }
+
+    /**
+     * Open USB connection with its claimed interface and cached bulk OUT endpoint
+     */
+    public static class PooledConnection {
+        public final UsbDevice device;
+        public final UsbDeviceConnection connection;
+        public final UsbInterface usbInterface;
+        public final UsbEndpoint endpoint;
+        private final byte[] probeBuffer = new byte[2];
+
+        PooledConnection(UsbDevice device, UsbDeviceConnection connection, UsbInterface usbInterface,
+                UsbEndpoint endpoint) {
+            this.device = device;
+            this.connection = connection;
+            this.usbInterface = usbInterface;
+            this.endpoint = endpoint;
+        }
+
+        boolean isHealthy() {
+            if (connection.getFileDescriptor() < 0) {
+                return false;
+            }
+            int read = connection.controlTransfer(REQUEST_TYPE_DEVICE_TO_HOST, REQUEST_GET_STATUS, 0, 0,
+                    probeBuffer, probeBuffer.length, PROBE_TIMEOUT_MS);
+            return read >= 0;
+        }
+
+        void close() {
+            try {
+                connection.releaseInterface(usbInterface);
+            } catch (Exception e) {
+                Log.w(TAG, "Error releasing USB interface: " + e.getMessage());
+            }
+            connection.close();
+        }
+    }
+
+    /**
+     * Thrown when a connection cannot be opened; carries the error code returned to Flutter
+     */
+    public static class UsbConnectionException extends Exception {
+        public final String code;
+
+        UsbConnectionException(String code, String message) {
+            super(message);
+            this.code = code;
+        }
+    }
+
+    /**
+     * Return a healthy pooled connection for the printer, opening a new one if needed
+     */
+    public synchronized PooledConnection acquire(String printerId, UsbDevice device)
+            throws UsbConnectionException {
+        PooledConnection pooled = connections.get(printerId);
+        if (pooled != null) {
+            if (pooled.device.getDeviceId() == device.getDeviceId() && pooled.isHealthy()) {
+                return pooled;
+            }
+            Log.d(TAG, "Pooled connection for " + printerId + " is stale, reopening");
+            connections.remove(printerId);
+            pooled.close();
+        }
+
+        pooled = open(device);
+        connections.put(printerId, pooled);
+        Log.d(TAG, "Opened pooled connection for " + printerId + " (pool size: " + connections.size() + ")");
+        return pooled;
+    }
+
+    /**
+     * Lock to hold while writing to the printer, the same object for as long as the process lives
+     */
+    public synchronized Object writeLock(String printerId) {
+        Object lock = writeLocks.get(printerId);
+        if (lock == null) {
+            lock = new Object();
+            writeLocks.put(printerId, lock);
+        }
+        return lock;
+    }
+
+    /**
+     * Drop the pooled connection, e.g. after a failed transfer, so the next job reopens it
+     */
+    public synchronized void invalidate(String printerId) {
+        PooledConnection pooled = connections.remove(printerId);
+        if (pooled != null) {
+            pooled.close();
+            Log.d(TAG, "Closed pooled connection for " + printerId);
+        }
+    }
+
+    public synchronized boolean isOpen(String printerId) {
+        return connections.containsKey(printerId);
+    }
+
+    public synchronized void closeAll() {
+        for (String printerId : new ArrayList<>(connections.keySet())) {
+            invalidate(printerId);
+        }
+    }
+
+    private PooledConnection open(UsbDevice device) throws UsbConnectionException {
+        UsbDeviceConnection connection = usbManager.openDevice(device);
+        if (connection == null) {
+            throw new UsbConnectionException("CONNECTION_FAILED", "Failed to open USB device connection");
+        }
+
+        // Find the first interface (usually the printer interface)
+        UsbInterface usbInterface = device.getInterface(0);
+        if (!connection.claimInterface(usbInterface, true)) {
+            connection.close();
+            throw new UsbConnectionException("INTERFACE_CLAIM_FAILED", "Failed to claim USB interface");
+        }
+
+        // Find the bulk OUT endpoint for sending data
+        UsbEndpoint endpoint = null;
+        for (int i = 0; i < usbInterface.getEndpointCount(); i++) {
+            UsbEndpoint ep = usbInterface.getEndpoint(i);
+            if (ep.getType() == UsbConstants.USB_ENDPOINT_XFER_BULK &&
+                    ep.getDirection() == UsbConstants.USB_DIR_OUT) {
+                endpoint = ep;
+                break;
+            }
+        }
+
+        if (endpoint == null) {
+            connection.releaseInterface(usbInterface);
+            connection.close();
+            throw new UsbConnectionException("NO_ENDPOINT", "No bulk OUT endpoint found");
+        }
+
+        return new PooledConnection(device, connection, usbInterface, endpoint);
+    }
+}
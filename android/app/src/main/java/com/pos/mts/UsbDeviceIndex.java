@@ -0,0 +1,132 @@
+package com.pos.mts;
+
+import android.hardware.usb.UsbDevice;
+import android.hardware.usb.UsbManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Attached USB devices keyed by their packed vendor/product id.
+ * Built from getDeviceList() once and then kept current by the attach/detach receiver,
+ * so print jobs find their printer without scanning and string-comparing every device.
+ * The printer classification is computed once per attached device and cached with it.
+ * A lookup that misses rescans at most once per MISS_RESCAN_INTERVAL_MS, so polling an unplugged
+ * printer does not cost a full getDeviceList() on every call.
+ */
+public class UsbDeviceIndex {
+    private static final String TAG = "UsbDeviceIndex";
+    static final long MISS_RESCAN_INTERVAL_MS = 5000;
+
+    public interface PrinterClassifier {
+        boolean isPrinter(UsbDevice device);
+    }
+
+    /**
+     * Attached device with its cached printer classification
+     */
+    public static class Entry {
+        public final UsbDevice device;
+        public final boolean isPrinter;
+
+        Entry(UsbDevice device, boolean isPrinter) {
+            this.device = device;
+            this.isPrinter = isPrinter;
+        }
+    }
+
+    private final UsbManager usbManager;
+    private final PrinterClassifier classifier;
+    private final HashMap<Integer, Entry> entries = new HashMap<>();
+    private long lastScanMillis;
+
+    public UsbDeviceIndex(UsbManager usbManager, PrinterClassifier classifier) {
+        this.usbManager = usbManager;
+        this.classifier = classifier;
+        rebuild();
+    }
+
+    static int key(int vendorId, int productId) {
+        return (vendorId & 0xFFFF) << 16 | (productId & 0xFFFF);
+    }
+
+    /**
+     * Find an attached device by the decimal vendor/product id strings used on the channel
+     */
+    public UsbDevice find(String vendorId, String productId) {
+        try {
+            return find(Integer.parseInt(vendorId), Integer.parseInt(productId));
+        } catch (NumberFormatException e) {
+            Log.w(TAG, "Invalid USB id: vendorId=" + vendorId + ", productId=" + productId);
+            return null;
+        }
+    }
+
+    public synchronized UsbDevice find(int vendorId, int productId) {
+        Entry entry = entries.get(key(vendorId, productId));
+        if (entry == null && SystemClock.elapsedRealtime() - lastScanMillis >= MISS_RESCAN_INTERVAL_MS) {
+            // An attach broadcast can be missed while the receiver is not registered,
+            // so a miss rescans before reporting the device as absent, unless a scan just did
+            rebuild();
+            entry = entries.get(key(vendorId, productId));
+        }
+        return entry != null ? entry.device : null;
+    }
+
+    /**
+     * Cached classification, falls back to the classifier for devices not in the index
+     */
+    public synchronized boolean isPrinter(UsbDevice device) {
+        Entry entry = entries.get(key(device.getVendorId(), device.getProductId()));
+        if (entry != null && entry.device.getDeviceId() == device.getDeviceId()) {
+            return entry.isPrinter;
+        }
+        return classifier.isPrinter(device);
+    }
+
+    public synchronized List<Entry> printers() {
+        List<Entry> printers = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.isPrinter) {
+                printers.add(entry);
+            }
+        }
+        return printers;
+    }
+
+    public synchronized void onAttached(UsbDevice device) {
+        entries.put(key(device.getVendorId(), device.getProductId()),
+                new Entry(device, classifier.isPrinter(device)));
+    }
+
+    public synchronized void onDetached(UsbDevice device) {
+        int key = key(device.getVendorId(), device.getProductId());
+        Entry entry = entries.get(key);
+        // Ignore a late detach for a device that has already been replaced by a new attach
+        if (entry != null && entry.device.getDeviceId() == device.getDeviceId()) {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Replace the index with a fresh scan, reusing cached classifications for devices still attached
+     */
+    public synchronized void rebuild() {
+        lastScanMillis = SystemClock.elapsedRealtime();
+        HashMap<Integer, Entry> previous = new HashMap<>(entries);
+        entries.clear();
+        for (UsbDevice device : usbManager.getDeviceList().values()) {
+            int key = key(device.getVendorId(), device.getProductId());
+            Entry cached = previous.get(key);
+            if (cached != null && cached.device.getDeviceId() == device.getDeviceId()) {
+                entries.put(key, cached);
+            } else {
+                entries.put(key, new Entry(device, classifier.isPrinter(device)));
+            }
+        }
+        Log.d(TAG, "Indexed " + entries.size() + " USB devices");
+    }
+}
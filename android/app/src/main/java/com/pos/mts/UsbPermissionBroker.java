@@ -0,0 +1,155 @@
+package com.pos.mts;
+
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.hardware.usb.UsbDevice;
+import android.hardware.usb.UsbManager;
+import android.os.Build;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Serializes USB permission requests per device.
+ * Every caller waiting on a device is queued behind a single outstanding requestPermission,
+ * and all of them are answered when the user decides, so concurrent print jobs and
+ * permission requests for different printers never overwrite each other.
+ * All methods are expected to run on the main thread, where the receiver is delivered.
+ */
+public class UsbPermissionBroker {
+    private static final String TAG = "UsbPermissionBroker";
+    private static final String ACTION_USB_PERMISSION = "com.pos.mts.USB_PERMISSION";
+    private static final String EXTRA_KEY = "com.pos.mts.USB_DEVICE_KEY";
+
+    public interface Callback {
+        void onResult(boolean granted);
+
+        /**
+         * The broker was unregistered before the user decided, treated as a denial unless overridden
+         */
+        default void onCancelled() {
+            onResult(false);
+        }
+    }
+
+    private final Context context;
+    private final UsbManager usbManager;
+    // Callbacks waiting on an outstanding request, keyed by packed vendor/product id
+    private final HashMap<Integer, List<Callback>> waiting = new HashMap<>();
+    private boolean registered;
+
+    private final BroadcastReceiver receiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (!ACTION_USB_PERMISSION.equals(intent.getAction())) {
+                return;
+            }
+            UsbDevice device = (UsbDevice) intent.getParcelableExtra(UsbManager.EXTRA_DEVICE);
+            int key = intent.getIntExtra(EXTRA_KEY, device != null
+                    ? UsbDeviceIndex.key(device.getVendorId(), device.getProductId()) : -1);
+            boolean granted = intent.getBooleanExtra(UsbManager.EXTRA_PERMISSION_GRANTED, false)
+                    || (device != null && usbManager.hasPermission(device));
+            dispatch(key, granted, false);
+        }
+    };
+
+    public UsbPermissionBroker(Context context, UsbManager usbManager) {
+        this.context = context;
+        this.usbManager = usbManager;
+    }
+
+    /**
+     * Register the permission receiver once for the owner's lifetime
+     */
+    public void register() {
+        if (registered) {
+            return;
+        }
+        IntentFilter filter = new IntentFilter(ACTION_USB_PERMISSION);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            // Delivered through our own PendingIntent, so it never needs to be exported
+            context.registerReceiver(receiver, filter, Context.RECEIVER_NOT_EXPORTED);
+        } else {
+            context.registerReceiver(receiver, filter);
+        }
+        registered = true;
+    }
+
+    /**
+     * Unregister and cancel every caller still waiting, so no result is left hanging
+     */
+    public void unregister() {
+        if (registered) {
+            try {
+                context.unregisterReceiver(receiver);
+            } catch (IllegalArgumentException e) {
+                // Receiver was not registered, ignore
+            }
+            registered = false;
+        }
+        for (Integer key : new ArrayList<>(waiting.keySet())) {
+            dispatch(key, false, true);
+        }
+    }
+
+    /**
+     * Call back right away when permission is already held, otherwise queue the callback
+     * behind the device's outstanding request, starting one if there is none yet
+     */
+    public void request(UsbDevice device, Callback callback) {
+        if (usbManager.hasPermission(device)) {
+            callback.onResult(true);
+            return;
+        }
+
+        int key = UsbDeviceIndex.key(device.getVendorId(), device.getProductId());
+        List<Callback> callbacks = waiting.get(key);
+        if (callbacks != null) {
+            callbacks.add(callback);
+            Log.d(TAG, "Permission already requested for " + device.getDeviceName() + ", " + callbacks.size()
+                    + " callers waiting");
+            return;
+        }
+        callbacks = new ArrayList<>();
+        callbacks.add(callback);
+        waiting.put(key, callbacks);
+
+        Intent intent = new Intent(ACTION_USB_PERMISSION);
+        intent.setPackage(context.getPackageName());
+        intent.putExtra(EXTRA_KEY, key);
+        // UsbManager adds the device and grant extras, which requires a mutable intent on Android 12+.
+        // The request code is unique per device so one device's intent never replaces another's.
+        int flags = Build.VERSION.SDK_INT >= Build.VERSION_CODES.S ? PendingIntent.FLAG_MUTABLE : 0;
+        PendingIntent permissionIntent = PendingIntent.getBroadcast(context, key, intent,
+                flags | PendingIntent.FLAG_UPDATE_CURRENT);
+        usbManager.requestPermission(device, permissionIntent);
+        Log.d(TAG, "USB permission request sent for device: " + device.getDeviceName());
+    }
+
+    private void dispatch(int key, boolean granted, boolean cancelled) {
+        List<Callback> callbacks = waiting.remove(key);
+        if (callbacks == null) {
+            Log.w(TAG, "USB permission result with no waiting callers");
+            return;
+        }
+        Log.d(TAG, "USB permission " + (cancelled ? "cancelled" : granted ? "granted" : "denied") + ", answering " + callbacks.size()
+                + " callers");
+        for (Callback callback : callbacks) {
+            try {
+                if (cancelled) {
+                    callback.onCancelled();
+                } else {
+                    callback.onResult(granted);
+                }
+            } catch (Exception e) {
+                // One failing job must not stop the others from being replayed
+                Log.e(TAG, "Error in USB permission callback", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.pos.mts;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-writer print queue per USB printer.
+ * Jobs for the same printer run one after another on that printer's own thread, so
+ * concurrent orders never interleave, while different printers print in parallel.
+ */
+public class UsbPrintQueue {
+    private static final String TAG = "UsbPrintQueue";
+
+    private final HashMap<String, ExecutorService> executors = new HashMap<>();
+    private final AtomicLong nextJobId = new AtomicLong(1);
+    private boolean shutDown;
+
+    /**
+     * Reserve a job id before the job is submitted, e.g. while USB permission is pending
+     */
+    public long newJobId() {
+        return nextJobId.getAndIncrement();
+    }
+
+    /**
+     * Make sure new ids never collide with ids already used, e.g. by jobs recovered from the spool
+     */
+    public void reserveJobIdsThrough(long jobId) {
+        nextJobId.accumulateAndGet(jobId + 1, Math::max);
+    }
+
+    /**
+     * Queue a job on the printer's serial executor
+     */
+    public void submit(String printerId, long jobId, Runnable job) {
+        ExecutorService executor = executorFor(printerId);
+        if (executor == null) {
+            // Left pending in the spool, it is recovered the next time printing starts
+            Log.w(TAG, "Print queue is shut down, dropping job " + jobId + " for " + printerId);
+            return;
+        }
+        executor.execute(() -> {
+            Log.d(TAG, "Running print job " + jobId + " on " + printerId);
+            try {
+                job.run();
+            } catch (Exception e) {
+                Log.e(TAG, "Print job " + jobId + " failed on " + printerId, e);
+            }
+        });
+    }
+
+    /**
+     * Interrupt the running jobs, drop the queued ones and wait up to timeoutMillis for every
+     * printer thread to exit. Returns false when some job was still running at the deadline.
+     */
+    public boolean shutdownNow(long timeoutMillis) throws InterruptedException {
+        ArrayList<ExecutorService> stopping;
+        synchronized (this) {
+            shutDown = true;
+            stopping = new ArrayList<>(executors.values());
+            executors.clear();
+        }
+        for (ExecutorService executor : stopping) {
+            executor.shutdownNow();
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        for (ExecutorService executor : stopping) {
+            if (!executor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private synchronized ExecutorService executorFor(String printerId) {
+        if (shutDown) {
+            return null;
+        }
+        ExecutorService executor = executors.get(printerId);
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "usb-print-" + printerId);
+                thread.setDaemon(true);
+                return thread;
+            });
+            executors.put(printerId, executor);
+        }
+        return executor;
+    }
+}
@@ -0,0 +1,168 @@
+package com.pos.mts;
+
+import android.content.Context;
+import android.hardware.usb.UsbDevice;
+import android.hardware.usb.UsbInterface;
+import android.hardware.usb.UsbManager;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * USB printer state shared by everything in the process that talks to a USB printer:
+ * the thermal printer channel in MainActivity and the raw ESC/POS backend of IminPrinterPlugin.
+ * There is one connection pool, so a printer's interface is claimed by a single owner instead of
+ * two managers taking it from each other, and one device index, so lookups never rescan the bus.
+ * The print queue and the spool live here too, so an activity recreated by a configuration change
+ * keeps printing through the same queue and never opens a second spool over the same file.
+ */
+public class UsbPrinterServices {
+    private static final String TAG = "UsbPrinterServices";
+    private static final String SPOOL_FILE = "print_spool.bin";
+    // How long teardown waits for a running job before closing the spool under it
+    private static final long SHUTDOWN_TIMEOUT_MS = 1000;
+
+    private static UsbPrinterServices instance;
+
+    private final Context context;
+    private final UsbManager usbManager;
+    private final UsbConnectionManager connectionManager;
+    private final UsbDeviceIndex deviceIndex;
+
+    // Open between startPrinting and stopPrinting, owned by the activity that started them last
+    private Object printingOwner;
+    private UsbPrintQueue printQueue;
+    private PrintSpool printSpool;
+    // Jobs recovered from the spool that still have to be printed, only touched on the main thread
+    private final Map<Long, PrintSpool.Job> recoveredJobs = new LinkedHashMap<>();
+
+    private UsbPrinterServices(Context context) {
+        this.context = context;
+        usbManager = (UsbManager) context.getSystemService(Context.USB_SERVICE);
+        connectionManager = new UsbConnectionManager(usbManager);
+        deviceIndex = new UsbDeviceIndex(usbManager, UsbPrinterServices::isPrinterDevice);
+    }
+
+    public static synchronized UsbPrinterServices getInstance(Context context) {
+        if (instance == null) {
+            instance = new UsbPrinterServices(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    public UsbManager usbManager() {
+        return usbManager;
+    }
+
+    public UsbConnectionManager connectionManager() {
+        return connectionManager;
+    }
+
+    public UsbDeviceIndex deviceIndex() {
+        return deviceIndex;
+    }
+
+    /**
+     * Open the print queue and the spool unless they are already running, and make owner the one
+     * allowed to stop them. Jobs left in the spool are loaded into recoveredJobs when it is opened.
+     */
+    public synchronized void startPrinting(Object owner) {
+        printingOwner = owner;
+        if (printQueue != null) {
+            return;
+        }
+        printQueue = new UsbPrintQueue();
+        try {
+            printSpool = new PrintSpool(new File(context.getFilesDir(), SPOOL_FILE));
+            for (PrintSpool.Job job : printSpool.pendingJobs()) {
+                recoveredJobs.put(job.jobId, job);
+                printQueue.reserveJobIdsThrough(job.jobId);
+            }
+        } catch (IOException e) {
+            // Printing still works, just without crash recovery
+            Log.e(TAG, "Unable to open print spool", e);
+        }
+    }
+
+    /**
+     * Stop the print queue and close the spool and connections, unless another owner has started
+     * printing since. Running jobs are interrupted and awaited before the spool is closed, jobs that
+     * never finished stay pending in it and are recovered by the next startPrinting.
+     */
+    public synchronized void stopPrinting(Object owner) {
+        if (owner != printingOwner || printQueue == null) {
+            return;
+        }
+        try {
+            if (!printQueue.shutdownNow(SHUTDOWN_TIMEOUT_MS)) {
+                Log.w(TAG, "Print jobs still running after " + SHUTDOWN_TIMEOUT_MS + " ms, closing the spool anyway");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (printSpool != null) {
+            printSpool.close();
+        }
+        connectionManager.closeAll();
+        printingOwner = null;
+        printQueue = null;
+        printSpool = null;
+        recoveredJobs.clear();
+    }
+
+    public synchronized UsbPrintQueue printQueue() {
+        return printQueue;
+    }
+
+    // Null when the spool could not be opened
+    public synchronized PrintSpool printSpool() {
+        return printSpool;
+    }
+
+    public Map<Long, PrintSpool.Job> recoveredJobs() {
+        return recoveredJobs;
+    }
+
+    // Check if the USB device is a printer (supports various thermal printer types)
+    static boolean isPrinterDevice(UsbDevice device) {
+        // Check USB class 7 (Printer class)
+        for (int i = 0; i < device.getInterfaceCount(); i++) {
+            UsbInterface usbInterface = device.getInterface(i);
+            if (usbInterface.getInterfaceClass() == 7) { // USB_CLASS_PRINTER
+                Log.d(TAG, "Device is printer (USB class 7)");
+                return true;
+            }
+        }
+
+        int vendorId = device.getVendorId();
+        int productId = device.getProductId();
+
+        // Check for common thermal printer vendor IDs
+        switch (vendorId) {
+            case 0x04b8: // Epson
+                Log.d(TAG, "Detected Epson printer (VID: 0x04b8)");
+                return true;
+            case 0x0519: // Star Micronics
+                Log.d(TAG, "Detected Star Micronics printer (VID: 0x0519)");
+                return true;
+            case 0x1d90: // Citizen
+                Log.d(TAG, "Detected Citizen printer (VID: 0x1d90)");
+                return true;
+            case 0x0471: // Philips (some thermal printers)
+                Log.d(TAG, "Detected Philips thermal printer (VID: 0x0471)");
+                return true;
+            case 0x0fe6: // iMin devices (including Swan 2 Pro)
+                Log.d(TAG, "Detected iMin device (VID: 0x0fe6) - ProductID: " + productId);
+                return true;
+            case 0x25a7: // Alternative iMin vendor ID
+                Log.d(TAG, "Detected iMin device (VID: 0x25a7)");
+                return true;
+            default:
+                Log.d(TAG, "Unknown vendor ID: 0x" + Integer.toHexString(vendorId));
+                return false;
+        }
+    }
+}
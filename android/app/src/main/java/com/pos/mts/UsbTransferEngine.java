@@ -0,0 +1,98 @@
+package com.pos.mts;
+
+import android.hardware.usb.UsbDeviceConnection;
+import android.hardware.usb.UsbEndpoint;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Streams a print job to a bulk OUT endpoint in packet-aligned chunks.
+ * Keeps a running offset so partial writes are resumed instead of silently truncating the job,
+ * retries failed chunks and applies the timeout per chunk rather than to the whole payload.
+ */
+public class UsbTransferEngine {
+    private static final String TAG = "UsbTransferEngine";
+
+    // Largest single bulk transfer accepted by older Android USB host stacks
+    private static final int MAX_CHUNK_SIZE = 16384;
+    private static final int CHUNK_TIMEOUT_MS = 2000;
+    private static final int MAX_RETRIES = 3;
+    private static final long RETRY_DELAY_MS = 20;
+    // Report progress at most every 5%
+    private static final int PROGRESS_STEP_PERCENT = 5;
+
+    public interface ProgressListener {
+        void onProgress(int bytesSent, int totalBytes);
+    }
+
+    /**
+     * Thrown when a chunk still fails after all retries
+     */
+    public static class UsbTransferException extends Exception {
+        public final int bytesSent;
+
+        UsbTransferException(String message, int bytesSent) {
+            super(message);
+            this.bytesSent = bytesSent;
+        }
+    }
+
+    private UsbTransferEngine() {
+    }
+
+    /**
+     * Chunk size used for the endpoint: a whole number of max-size packets, capped at MAX_CHUNK_SIZE
+     */
+    public static int chunkSizeFor(UsbEndpoint endpoint) {
+        int packetSize = endpoint.getMaxPacketSize();
+        if (packetSize <= 0) {
+            return MAX_CHUNK_SIZE;
+        }
+        return Math.max(packetSize, (MAX_CHUNK_SIZE / packetSize) * packetSize);
+    }
+
+    /**
+     * Send data[offset, offset + length) and return the number of bytes written
+     */
+    public static int transfer(UsbDeviceConnection connection, UsbEndpoint endpoint, byte[] data, int offset,
+            int length, ProgressListener listener) throws UsbTransferException {
+        int chunkSize = chunkSizeFor(endpoint);
+        int sent = 0;
+        int retries = 0;
+        int lastReportedStep = -1;
+
+        while (sent < length) {
+            int requested = Math.min(chunkSize, length - sent);
+            int written = connection.bulkTransfer(endpoint, data, offset + sent, requested, CHUNK_TIMEOUT_MS);
+
+            if (written <= 0) {
+                retries++;
+                Log.w(TAG, "Chunk write failed at offset " + sent + " (result: " + written + ", retry " + retries
+                        + "/" + MAX_RETRIES + ")");
+                if (retries > MAX_RETRIES) {
+                    throw new UsbTransferException("Transfer stalled after " + sent + " of " + length + " bytes",
+                            sent);
+                }
+                SystemClock.sleep(RETRY_DELAY_MS * retries);
+                continue;
+            }
+
+            // A short write is not an error: resume from the new offset on the next pass
+            if (written < requested) {
+                Log.d(TAG, "Partial write: " + written + " of " + requested + " bytes at offset " + sent);
+            }
+            sent += written;
+            retries = 0;
+
+            if (listener != null) {
+                int step = (int) ((sent * 100L / length) / PROGRESS_STEP_PERCENT);
+                if (step != lastReportedStep || sent == length) {
+                    lastReportedStep = step;
+                    listener.onProgress(sent, length);
+                }
+            }
+        }
+
+        return sent;
+    }
+}
@@ -31,6 +31,8 @@ public class Utils {
     }
 
     private Context mContext;
+    // Resolved on first use; none of its inputs change while the process is alive
+    private volatile DeviceProfile deviceProfile;
 
     public Context getContext() {
         return mContext;
@@ -44,7 +46,26 @@ public class Utils {
         return getSystemProperties("ro.board.platform");
     }
 
+    public DeviceProfile getDeviceProfile() {
+        DeviceProfile profile = deviceProfile;
+        if (profile == null) {
+            synchronized (this) {
+                profile = deviceProfile;
+                if (profile == null) {
+                    profile = DeviceProfile.resolve(resolveModel());
+                    Log.d(TAG, "Resolved " + profile);
+                    deviceProfile = profile;
+                }
+            }
+        }
+        return profile;
+    }
+
     public String getModel() {
+        return getDeviceProfile().model;
+    }
+
+    private String resolveModel() {
         String model = "";
         String plaform = getPlaform();
 
@@ -58,11 +79,11 @@ public class Utils {
                 model = "MS1-11";
             }
         } else {
-            model = getSystemProperties("sys.neostra_oem_id");
+            String oemId = getSystemProperties("sys.neostra_oem_id");
+            model = oemId;
             android.util.Log.d(TAG, "model " + model);
             if (!TextUtils.isEmpty(model) && model.length() > 4) {
                 model = filterModel(model.substring(0, 5));
-                String oemId = getSystemProperties("sys.neostra_oem_id");
                 if (oemId.length() > 27 && oemId.startsWith("W26MP")) {
                     String num28 = String.valueOf(oemId.charAt(27));
                     if ("S".equalsIgnoreCase(num28)) {
@@ -116,9 +137,10 @@ public class Utils {
             case "V2BXX":
                 return "D2 Pro";
             case "1824P":
-                if (getSystemProperties("persist.sys.customername").equals("ZKSY-301")) {
+                String name1824P = getSystemProperties("persist.sys.customername");
+                if (name1824P.equals("ZKSY-301")) {
                     return "ZKSY-301";
-                } else if (getSystemProperties("persist.sys.customername").equals("K3")) {
+                } else if (name1824P.equals("K3")) {
                     return "K3";
                 }
                 return "D3-501";//yimin
@@ -231,22 +253,39 @@ public class Utils {
         return "";
     }
 
+    // SystemProperties is hidden API, so its getter is reflected once and reused
+    private static class SystemPropertiesGetter {
+        private static final Method GET = lookup();
+
+        private static Method lookup() {
+            try {
+                return Class.forName("android.os.SystemProperties").getDeclaredMethod("get", String.class);
+            } catch (Exception e) {
+                Log.d(TAG, "Unable to find system properties");
+                return null;
+            }
+        }
+    }
+
     public String getSystemProperties(String property) {
         String value = "";
+        Method getter = SystemPropertiesGetter.GET;
+        if (getter == null) {
+            return value;
+        }
         try {
-            Class clazz = Class.forName("android.os.SystemProperties");
-            Method getter = clazz.getDeclaredMethod("get", String.class);
             value = (String) getter.invoke(null, property);
         } catch (Exception e) {
             Log.d(TAG, "Unable to read system properties");
         }
-        return value;
+        return value != null ? value : "";
     }
 
     public void opencashBox() {
-        String model = getModel();
-        String buildModel = Build.MODEL;
-        String buildDevice = Build.DEVICE;
+        DeviceProfile profile = getDeviceProfile();
+        String model = profile.model;
+        String buildModel = profile.buildModel;
+        String buildDevice = profile.buildDevice;
         
         Log.d("iminLib", "=== DRAWER DEBUG ===");
         Log.d("iminLib", "Utils.getModel(): " + model);
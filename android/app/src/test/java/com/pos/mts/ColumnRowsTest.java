@@ -0,0 +1,107 @@
+package com.pos.mts;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class ColumnRowsTest {
+    private final ColumnRows columnRows = new ColumnRows();
+
+    // Each printed row as {text, width, align, fontSize} copies, plus the arrays that were passed
+    private final List<Object[]> printed = new ArrayList<>();
+    private final List<Object[]> passed = new ArrayList<>();
+
+    private final ColumnRows.RowPrinter printer = (text, width, align, fontSize) -> {
+        printed.add(new Object[]{text.clone(), width.clone(), align.clone(), fontSize.clone()});
+        passed.add(new Object[]{text, width, align, fontSize});
+    };
+
+    private static List<Object> col(Object text, Object width, Object align, Object fontSize) {
+        return Arrays.asList(text, width, align, fontSize);
+    }
+
+    private void assertRow(int index, String[] text, int[] width, int[] align, int[] fontSize) {
+        Object[] row = printed.get(index);
+        assertArrayEquals(text, (String[]) row[0]);
+        assertArrayEquals(width, (int[]) row[1]);
+        assertArrayEquals(align, (int[]) row[2]);
+        assertArrayEquals(fontSize, (int[]) row[3]);
+    }
+
+    @Test
+    public void listRowIsCopiedIntoColumnArrays() throws Exception {
+        // StandardMessageCodec may hand over any Number type
+        columnRows.printRow(Arrays.asList(col("Coffee", 2, 0, 24), col(3.5, 1L, 2, 24.0), col(null, 1, 1, 26)),
+                printer);
+
+        assertEquals(1, printed.size());
+        assertRow(0, new String[]{"Coffee", "3.5", ""}, new int[]{2, 1, 1}, new int[]{0, 2, 1},
+                new int[]{24, 24, 26});
+    }
+
+    @Test
+    public void legacyJsonRowIsStillAccepted() throws Exception {
+        columnRows.printRow("[{\"text\":\"Tea\",\"width\":3,\"align\":0,\"fontSize\":24},"
+                + "{\"text\":\"2.00\",\"width\":1,\"align\":2,\"fontSize\":22}]", printer);
+
+        assertEquals(1, printed.size());
+        assertRow(0, new String[]{"Tea", "2.00"}, new int[]{3, 1}, new int[]{0, 2}, new int[]{24, 22});
+    }
+
+    @Test
+    public void arraysAreReusedPerColumnCount() throws Exception {
+        columnRows.printRow(Arrays.asList(col("a", 1, 0, 24), col("b", 1, 0, 24)), printer);
+        columnRows.printRow("[{\"text\":\"c\",\"width\":1,\"align\":0,\"fontSize\":24},"
+                + "{\"text\":\"d\",\"width\":1,\"align\":0,\"fontSize\":24}]", printer);
+        columnRows.printRow(Collections.singletonList(col("e", 1, 0, 24)), printer);
+
+        for (int i = 0; i < 4; i++) {
+            assertSame(passed.get(0)[i], passed.get(1)[i]);
+            assertNotSame(passed.get(0)[i], passed.get(2)[i]);
+        }
+        // The SDKs take the column count from the array length
+        assertEquals(2, ((String[]) passed.get(0)[0]).length);
+        assertEquals(1, ((String[]) passed.get(2)[0]).length);
+    }
+
+    @Test
+    public void tableRowsArePrintedInOrder() throws Exception {
+        List<Object> rows = Arrays.asList(
+                Arrays.asList(col("Item", 2, 0, 24), col("Qty", 1, 2, 24)),
+                Arrays.asList(col("Bagel", 2, 0, 24), col(2, 1, 2, 24)),
+                Collections.singletonList(col("Total", 3, 1, 28)));
+
+        assertEquals(3, columnRows.printRows(rows, printer));
+
+        assertEquals(3, printed.size());
+        assertRow(0, new String[]{"Item", "Qty"}, new int[]{2, 1}, new int[]{0, 2}, new int[]{24, 24});
+        assertRow(1, new String[]{"Bagel", "2"}, new int[]{2, 1}, new int[]{0, 2}, new int[]{24, 24});
+        assertRow(2, new String[]{"Total"}, new int[]{3}, new int[]{1}, new int[]{28});
+    }
+
+    @Test
+    public void tableRowThatIsNotAListIsRejected() throws Exception {
+        List<Object> rows = Arrays.asList(Collections.singletonList(col("ok", 1, 0, 24)), "not a row");
+        try {
+            columnRows.printRows(rows, printer);
+            fail("Expected the second row to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Row 1 is not a list of columns", e.getMessage());
+        }
+        assertEquals(1, printed.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rowOfAnotherTypeIsRejected() throws Exception {
+        columnRows.printRow(42, printer);
+    }
+}
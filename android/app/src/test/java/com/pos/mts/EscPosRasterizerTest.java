@@ -0,0 +1,200 @@
+package com.pos.mts;
+
+import android.graphics.Bitmap;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class EscPosRasterizerTest {
+    private static final int BLACK = 0xFF000000;
+    private static final int WHITE = 0xFFFFFFFF;
+
+    // A bitmap that serves rows from argb, the stub android.jar cannot create real ones
+    private static Bitmap bitmapOf(int width, int height, int[] argb) {
+        return bitmapOf(width, height, argb, new AtomicInteger(), height);
+    }
+
+    // Same, counting the getPixels calls in progress in reading, rows from slowRow on take a while to read
+    private static Bitmap bitmapOf(int width, int height, int[] argb, AtomicInteger reading, int slowRow) {
+        Bitmap bitmap = mock(Bitmap.class);
+        when(bitmap.getWidth()).thenReturn(width);
+        when(bitmap.getHeight()).thenReturn(height);
+        doAnswer(invocation -> {
+            int[] pixels = invocation.getArgument(0);
+            int offset = invocation.getArgument(1);
+            int stride = invocation.getArgument(2);
+            int x = invocation.getArgument(3);
+            int y = invocation.getArgument(4);
+            int w = invocation.getArgument(5);
+            int h = invocation.getArgument(6);
+            reading.incrementAndGet();
+            try {
+                if (y >= slowRow) {
+                    Thread.sleep(100);
+                }
+                for (int row = 0; row < h; row++) {
+                    System.arraycopy(argb, (y + row) * width + x, pixels, offset + row * stride, w);
+                }
+            } finally {
+                reading.decrementAndGet();
+            }
+            return null;
+        }).when(bitmap).getPixels(any(int[].class), anyInt(), anyInt(), anyInt(), anyInt(), anyInt(), anyInt());
+        return bitmap;
+    }
+
+    @Test
+    public void headerIsGsV0WithLittleEndianSizes() {
+        byte[] out = new byte[EscPosRasterizer.HEADER_SIZE];
+        EscPosRasterizer.writeHeader(out, 0, 300, 260);
+        assertArrayEquals(new byte[]{0x1D, 0x76, 0x30, 0x00, 0x2C, 0x01, 0x04, 0x01}, out);
+    }
+
+    @Test
+    public void bandsAreLaidOutBackToBack() {
+        int bytesPerRow = EscPosRasterizer.PAPER_58MM_DOTS / 8;
+        int height = EscPosRasterizer.BAND_ROWS * 2 + 88;
+        assertEquals(3 * EscPosRasterizer.HEADER_SIZE + bytesPerRow * height,
+                EscPosRasterizer.rasterSize(bytesPerRow, height));
+        assertEquals(0, EscPosRasterizer.bandOffset(bytesPerRow, 0));
+        assertEquals(EscPosRasterizer.HEADER_SIZE + EscPosRasterizer.BAND_ROWS * bytesPerRow,
+                EscPosRasterizer.bandOffset(bytesPerRow, EscPosRasterizer.BAND_ROWS));
+        assertEquals(2 * EscPosRasterizer.HEADER_SIZE + 2 * EscPosRasterizer.BAND_ROWS * bytesPerRow,
+                EscPosRasterizer.bandOffset(bytesPerRow, 2 * EscPosRasterizer.BAND_ROWS));
+    }
+
+    @Test
+    public void rowsArePackedMostSignificantBitFirst() {
+        int[] row = {1, 0, 0, 0, 0, 0, 0, 1, 1, 1};
+        byte[] out = new byte[3];
+        EscPosRasterizer.packRow(row, row.length, out, 1);
+        assertArrayEquals(new byte[]{0, (byte) 0x81, (byte) 0xC0}, out);
+    }
+
+    @Test
+    public void luminanceCompositesOverWhite() {
+        int[] row = {WHITE, BLACK, 0x00000000, 0xFFFF0000, 0x80000000};
+        EscPosRasterizer.toLuminance(row, row.length);
+        assertArrayEquals(new int[]{255, 0, 255, 76, 127}, row);
+    }
+
+    @Test
+    public void thresholdRasterSplitsIntoBandsAndStreamsThem() throws Exception {
+        int width = 20;
+        int height = EscPosRasterizer.BAND_ROWS + 44;
+        int bytesPerRow = 3;
+        int[] argb = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                argb[y * width + x] = (x + y) % 3 == 0 ? BLACK : WHITE;
+            }
+        }
+        List<int[]> bands = new ArrayList<>();
+
+        byte[] out = EscPosRasterizer.rasterizeFitted(bitmapOf(width, height, argb),
+                EscPosRasterizer.Dither.THRESHOLD, EscPosRasterizer.DEFAULT_THRESHOLD,
+                (raster, offset, length, totalLength) -> bands.add(new int[]{offset, length, totalLength}), false);
+
+        int secondBand = EscPosRasterizer.bandOffset(bytesPerRow, EscPosRasterizer.BAND_ROWS);
+        assertEquals(EscPosRasterizer.rasterSize(bytesPerRow, height), out.length);
+        assertEquals(2, bands.size());
+        assertArrayEquals(new int[]{0, secondBand, out.length}, bands.get(0));
+        assertArrayEquals(new int[]{secondBand, out.length - secondBand, out.length}, bands.get(1));
+        assertEquals(EscPosRasterizer.BAND_ROWS, (out[6] & 0xFF) | (out[7] & 0xFF) << 8);
+        assertEquals(44, (out[secondBand + 6] & 0xFF) | (out[secondBand + 7] & 0xFF) << 8);
+
+        for (int y = 0; y < height; y++) {
+            int rowOffset = (y / EscPosRasterizer.BAND_ROWS + 1) * EscPosRasterizer.HEADER_SIZE + y * bytesPerRow;
+            for (int x = 0; x < width; x++) {
+                int bit = (out[rowOffset + x / 8] >> (7 - x % 8)) & 1;
+                assertEquals("pixel " + x + "," + y, (x + y) % 3 == 0 ? 1 : 0, bit);
+            }
+        }
+    }
+
+    // Gray noise over a gradient, so error diffusion carries across every row and band boundary
+    private static int[] receiptImage(int width, int height) {
+        Random random = new Random(42);
+        int[] argb = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int gray = Math.min(255, Math.max(0, (x * 255 / width + y) % 256 + random.nextInt(61) - 30));
+                argb[y * width + x] = 0xFF000000 | gray << 16 | gray << 8 | gray;
+            }
+        }
+        return argb;
+    }
+
+    private static void assertParallelMatchesSerial(EscPosRasterizer.Dither dither) throws Exception {
+        int width = EscPosRasterizer.PAPER_58MM_DOTS;
+        int height = EscPosRasterizer.PARALLEL_MIN_ROWS + 97;
+        int[] argb = receiptImage(width, height);
+        List<Integer> bandOffsets = new ArrayList<>();
+
+        byte[] serial = EscPosRasterizer.rasterizeFitted(bitmapOf(width, height, argb), dither,
+                EscPosRasterizer.DEFAULT_THRESHOLD, null, false);
+        byte[] parallel = EscPosRasterizer.rasterizeFitted(bitmapOf(width, height, argb), dither,
+                EscPosRasterizer.DEFAULT_THRESHOLD, (raster, offset, length, totalLength) -> {
+                    assertArrayEquals(Arrays.copyOfRange(serial, offset, offset + length),
+                            Arrays.copyOfRange(raster, offset, offset + length));
+                    bandOffsets.add(offset);
+                }, true);
+
+        assertArrayEquals(serial, parallel);
+        List<Integer> expectedOffsets = new ArrayList<>();
+        for (int bandStart = 0; bandStart < height; bandStart += EscPosRasterizer.BAND_ROWS) {
+            expectedOffsets.add(EscPosRasterizer.bandOffset(width / 8, bandStart));
+        }
+        assertEquals(expectedOffsets, bandOffsets);
+    }
+
+    @Test
+    public void parallelFloydSteinbergMatchesSerial() throws Exception {
+        assertParallelMatchesSerial(EscPosRasterizer.Dither.FLOYD_STEINBERG);
+    }
+
+    @Test
+    public void parallelAtkinsonMatchesSerial() throws Exception {
+        assertParallelMatchesSerial(EscPosRasterizer.Dither.ATKINSON);
+    }
+
+    @Test
+    public void failingSinkStopsWorkersBeforeReturning() throws Exception {
+        int width = EscPosRasterizer.PAPER_58MM_DOTS;
+        int height = EscPosRasterizer.PARALLEL_MIN_ROWS * 2;
+        AtomicInteger reading = new AtomicInteger();
+        Exception failure = new IOException("printer unplugged");
+
+        try {
+            // Workers are still reading rows of the second band when the first one fails
+            EscPosRasterizer.rasterizeFitted(bitmapOf(width, height, receiptImage(width, height), reading,
+                            EscPosRasterizer.BAND_ROWS),
+                    EscPosRasterizer.Dither.FLOYD_STEINBERG, EscPosRasterizer.DEFAULT_THRESHOLD,
+                    (raster, offset, length, totalLength) -> {
+                        throw failure;
+                    }, true);
+            fail("Expected the sink failure to propagate");
+        } catch (IOException e) {
+            assertSame(failure, e);
+        }
+
+        // The caller recycles the bitmap right away, so no worker may still be reading it
+        assertEquals(0, reading.get());
+    }
+}
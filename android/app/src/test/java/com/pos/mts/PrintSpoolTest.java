@@ -0,0 +1,153 @@
+package com.pos.mts;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PrintSpoolTest {
+    // File header plus the fixed record header, where the first record's payload starts
+    private static final int FIRST_PAYLOAD = 8 + 39;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setUp() {
+        file = new File(folder.getRoot(), "print_spool.bin");
+    }
+
+    private static byte[] payload(int size, int seed) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) (i * 13 + seed);
+        }
+        return data;
+    }
+
+    @Test
+    public void pendingJobsAreRecoveredByTheNextSpool() throws Exception {
+        PrintSpool spool = new PrintSpool(file);
+        assertTrue(spool.append(7, PrintSpool.KIND_BYTES, "1208", "514", 0, null, 0, payload(100, 1)));
+        assertTrue(spool.append(8, PrintSpool.KIND_IMAGE, "1208", "515", 576,
+                EscPosRasterizer.Dither.ATKINSON, 140, payload(300, 2)));
+
+        // No close, as if the process had been killed
+        List<PrintSpool.Job> jobs = new PrintSpool(file).pendingJobs();
+
+        assertEquals(2, jobs.size());
+        PrintSpool.Job text = jobs.get(0);
+        assertEquals(7, text.jobId);
+        assertEquals(PrintSpool.KIND_BYTES, text.kind);
+        assertEquals("1208", text.vendorId);
+        assertEquals("514", text.productId);
+        assertArrayEquals(payload(100, 1), text.payload);
+        PrintSpool.Job image = jobs.get(1);
+        assertEquals(8, image.jobId);
+        assertEquals(PrintSpool.KIND_IMAGE, image.kind);
+        assertEquals("515", image.productId);
+        assertEquals(576, image.paperWidth);
+        assertEquals(EscPosRasterizer.Dither.ATKINSON, image.dither);
+        assertEquals(140, image.threshold);
+        assertArrayEquals(payload(300, 2), image.payload);
+    }
+
+    @Test
+    public void ackedJobsAreNotRecovered() throws Exception {
+        PrintSpool spool = new PrintSpool(file);
+        spool.append(1, PrintSpool.KIND_BYTES, "1", "2", 0, null, 0, payload(10, 1));
+        spool.append(2, PrintSpool.KIND_BYTES, "1", "2", 0, null, 0, payload(10, 2));
+        spool.ack(1);
+
+        List<PrintSpool.Job> jobs = new PrintSpool(file).pendingJobs();
+
+        assertEquals(1, jobs.size());
+        assertEquals(2, jobs.get(0).jobId);
+    }
+
+    @Test
+    public void ackingTheLastJobRewindsToTheHead() throws Exception {
+        PrintSpool spool = new PrintSpool(file);
+        spool.append(1, PrintSpool.KIND_BYTES, "1", "2", 0, null, 0, payload(10, 1));
+        spool.append(2, PrintSpool.KIND_BYTES, "1", "2", 0, null, 0, payload(10, 2));
+        spool.ack(2);
+        spool.ack(1);
+
+        assertEquals(8, spool.status().get("usedBytes"));
+        assertEquals(0, spool.status().get("pendingCount"));
+        assertTrue(new PrintSpool(file).pendingJobs().isEmpty());
+    }
+
+    @Test
+    public void corruptRecordIsSkippedAndLaterOnesRecovered() throws Exception {
+        PrintSpool spool = new PrintSpool(file);
+        spool.append(1, PrintSpool.KIND_BYTES, "1", "2", 0, null, 0, payload(10, 1));
+        spool.append(2, PrintSpool.KIND_BYTES, "1", "2", 0, null, 0, payload(10, 2));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(FIRST_PAYLOAD + 3);
+            raf.write(raf.read() ^ 0xFF);
+        }
+
+        List<PrintSpool.Job> jobs = new PrintSpool(file).pendingJobs();
+
+        assertEquals(1, jobs.size());
+        assertEquals(2, jobs.get(0).jobId);
+    }
+
+    @Test
+    public void fullSpoolIsCompactedIntoANewFile() throws Exception {
+        int size = PrintSpool.CAPACITY / 4;
+        PrintSpool spool = new PrintSpool(file);
+        for (int jobId = 1; jobId <= 3; jobId++) {
+            assertTrue(spool.append(jobId, PrintSpool.KIND_BYTES, "1", "2", 0, null, 0, payload(size, jobId)));
+        }
+        spool.ack(1);
+        spool.ack(2);
+
+        // Does not fit behind job 3 until the acked records are dropped
+        assertTrue(spool.append(4, PrintSpool.KIND_BYTES, "1", "2", 0, null, 0, payload(size, 4)));
+
+        assertEquals(8 + 2 * (39 + size), spool.status().get("usedBytes"));
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+        List<PrintSpool.Job> jobs = new PrintSpool(file).pendingJobs();
+        assertEquals(2, jobs.size());
+        assertEquals(3, jobs.get(0).jobId);
+        assertArrayEquals(payload(size, 3), jobs.get(0).payload);
+        assertEquals(4, jobs.get(1).jobId);
+        assertArrayEquals(payload(size, 4), jobs.get(1).payload);
+    }
+
+    @Test
+    public void jobsThatCannotBeSpooledAreRejected() throws Exception {
+        PrintSpool spool = new PrintSpool(file);
+        assertFalse(spool.append(1, PrintSpool.KIND_BYTES, "1", "2", 0, null, 0, payload(PrintSpool.CAPACITY, 1)));
+        assertFalse(spool.append(2, PrintSpool.KIND_BYTES, "usb", "2", 0, null, 0, payload(10, 2)));
+        assertEquals(0, spool.status().get("pendingCount"));
+    }
+
+    @Test
+    public void closedSpoolIgnoresLateAcks() throws Exception {
+        PrintSpool spool = new PrintSpool(file);
+        spool.append(1, PrintSpool.KIND_BYTES, "1", "2", 0, null, 0, payload(10, 1));
+        spool.close();
+
+        // A reply arriving after teardown must leave the job for the next start
+        spool.ack(1);
+        assertFalse(spool.append(2, PrintSpool.KIND_BYTES, "1", "2", 0, null, 0, payload(10, 2)));
+
+        List<PrintSpool.Job> jobs = new PrintSpool(file).pendingJobs();
+        assertEquals(1, jobs.size());
+        assertEquals(1, jobs.get(0).jobId);
+    }
+}
@@ -0,0 +1,64 @@
+package com.pos.mts;
+
+import android.hardware.usb.UsbDevice;
+import android.hardware.usb.UsbManager;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class UsbDeviceIndexTest {
+    private UsbManager usbManager;
+    private final HashMap<String, UsbDevice> attached = new HashMap<>();
+    private UsbDeviceIndex index;
+
+    private static UsbDevice device(int deviceId, int vendorId, int productId) {
+        UsbDevice device = mock(UsbDevice.class);
+        when(device.getDeviceId()).thenReturn(deviceId);
+        when(device.getVendorId()).thenReturn(vendorId);
+        when(device.getProductId()).thenReturn(productId);
+        return device;
+    }
+
+    @Before
+    public void setUp() {
+        usbManager = mock(UsbManager.class);
+        when(usbManager.getDeviceList()).thenReturn(attached);
+        attached.put("/dev/bus/usb/001/002", device(2, 0x0fe6, 0x811e));
+        index = new UsbDeviceIndex(usbManager, device -> true);
+    }
+
+    @Test
+    public void attachedDeviceIsFoundWithoutRescanning() {
+        assertSame(attached.get("/dev/bus/usb/001/002"), index.find("4070", "33054"));
+        verify(usbManager, times(1)).getDeviceList();
+    }
+
+    @Test
+    public void repeatedMissesDoNotRescanEveryCall() {
+        for (int i = 0; i < 5; i++) {
+            assertNull(index.find(0x04b8, 0x0202));
+        }
+        // Only the scan from the constructor, the misses all fall inside the rescan interval
+        verify(usbManager, times(1)).getDeviceList();
+    }
+
+    @Test
+    public void attachBroadcastMakesAMissedDeviceFindable() {
+        assertNull(index.find(0x04b8, 0x0202));
+        UsbDevice printer = device(3, 0x04b8, 0x0202);
+        index.onAttached(printer);
+
+        assertSame(printer, index.find(0x04b8, 0x0202));
+        index.onDetached(printer);
+        assertNull(index.find(0x04b8, 0x0202));
+    }
+}
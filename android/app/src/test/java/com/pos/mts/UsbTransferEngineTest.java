@@ -0,0 +1,144 @@
+package com.pos.mts;
+
+import android.hardware.usb.UsbDeviceConnection;
+import android.hardware.usb.UsbEndpoint;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class UsbTransferEngineTest {
+    private UsbDeviceConnection connection;
+    private UsbEndpoint endpoint;
+    // Every bulkTransfer call as {offset, length}
+    private final List<int[]> calls = new ArrayList<>();
+    private byte[] received;
+
+    @Before
+    public void setUp() {
+        connection = mock(UsbDeviceConnection.class);
+        endpoint = mock(UsbEndpoint.class);
+        when(endpoint.getMaxPacketSize()).thenReturn(512);
+    }
+
+    // Accept at most limit bytes per call, copying what was written into received
+    private void acceptUpTo(int limit) {
+        when(connection.bulkTransfer(eq(endpoint), any(byte[].class), anyInt(), anyInt(), anyInt()))
+                .thenAnswer(invocation -> {
+                    byte[] data = invocation.getArgument(1);
+                    int offset = invocation.getArgument(2);
+                    int length = invocation.getArgument(3);
+                    calls.add(new int[]{offset, length});
+                    int written = Math.min(length, limit);
+                    System.arraycopy(data, offset, received, offset, written);
+                    return written;
+                });
+    }
+
+    private static byte[] payload(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) (i * 31 + 7);
+        }
+        return data;
+    }
+
+    @Test
+    public void chunkSizeIsWholePacketsUpToTheCap() {
+        when(endpoint.getMaxPacketSize()).thenReturn(64);
+        assertEquals(16384, UsbTransferEngine.chunkSizeFor(endpoint));
+        when(endpoint.getMaxPacketSize()).thenReturn(1000);
+        assertEquals(16000, UsbTransferEngine.chunkSizeFor(endpoint));
+        when(endpoint.getMaxPacketSize()).thenReturn(0);
+        assertEquals(16384, UsbTransferEngine.chunkSizeFor(endpoint));
+        // A packet larger than the cap is still sent whole
+        when(endpoint.getMaxPacketSize()).thenReturn(20000);
+        assertEquals(20000, UsbTransferEngine.chunkSizeFor(endpoint));
+    }
+
+    @Test
+    public void largeJobIsSentInChunks() throws Exception {
+        byte[] data = payload(40000);
+        received = new byte[data.length];
+        acceptUpTo(Integer.MAX_VALUE);
+
+        assertEquals(40000, UsbTransferEngine.transfer(connection, endpoint, data, 0, data.length, null));
+
+        assertEquals(3, calls.size());
+        assertArrayEquals(new int[]{0, 16384}, calls.get(0));
+        assertArrayEquals(new int[]{16384, 16384}, calls.get(1));
+        assertArrayEquals(new int[]{32768, 7232}, calls.get(2));
+        assertArrayEquals(data, received);
+    }
+
+    @Test
+    public void shortWritesAreResumedFromTheNewOffset() throws Exception {
+        byte[] data = payload(5000);
+        received = new byte[data.length];
+        acceptUpTo(1500);
+
+        assertEquals(5000, UsbTransferEngine.transfer(connection, endpoint, data, 0, data.length, null));
+
+        assertEquals(4, calls.size());
+        assertArrayEquals(new int[]{0, 5000}, calls.get(0));
+        assertArrayEquals(new int[]{1500, 3500}, calls.get(1));
+        assertArrayEquals(new int[]{3000, 2000}, calls.get(2));
+        assertArrayEquals(new int[]{4500, 500}, calls.get(3));
+        assertArrayEquals(data, received);
+    }
+
+    @Test
+    public void transferStartsAtTheGivenOffset() throws Exception {
+        byte[] data = payload(1000);
+        received = new byte[data.length];
+        acceptUpTo(Integer.MAX_VALUE);
+
+        assertEquals(600, UsbTransferEngine.transfer(connection, endpoint, data, 400, 600, null));
+
+        assertEquals(1, calls.size());
+        assertArrayEquals(new int[]{400, 600}, calls.get(0));
+    }
+
+    @Test
+    public void failedChunkIsRetriedThenReportsBytesSent() {
+        byte[] data = payload(20000);
+        received = new byte[data.length];
+        int[] attempts = new int[1];
+        when(connection.bulkTransfer(eq(endpoint), any(byte[].class), anyInt(), anyInt(), anyInt()))
+                .thenAnswer(invocation -> ++attempts[0] == 1 ? (int) invocation.getArgument(3) : -1);
+
+        try {
+            UsbTransferEngine.transfer(connection, endpoint, data, 0, data.length, null);
+            fail("Expected the transfer to stall");
+        } catch (UsbTransferEngine.UsbTransferException e) {
+            assertEquals(16384, e.bytesSent);
+        }
+        // One successful chunk, then the first try and three retries of the second
+        assertEquals(5, attempts[0]);
+    }
+
+    @Test
+    public void progressEndsWithTheFullLength() throws Exception {
+        byte[] data = payload(40000);
+        received = new byte[data.length];
+        acceptUpTo(Integer.MAX_VALUE);
+        List<Integer> progress = new ArrayList<>();
+
+        UsbTransferEngine.transfer(connection, endpoint, data, 0, data.length,
+                (bytesSent, totalBytes) -> progress.add(bytesSent));
+
+        assertEquals(3, progress.size());
+        assertEquals(Integer.valueOf(40000), progress.get(progress.size() - 1));
+    }
+}
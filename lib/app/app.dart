@@ -20,6 +20,7 @@ import 'package:mts/providers/my_navigator/my_navigator_providers.dart';
 import 'package:mts/widgets/global_barcode_listener.dart';
 import 'package:mts/core/mixins/usb_printer_lifecycle_mixin.dart';
 import 'package:mts/plugins/flutter_thermal_printer/utils/printer.dart';
+import 'package:mts/plugins/presentation_displays/presentation_route_observer.dart';
 
 /// App widget
 class App extends StatefulWidget {
@@ -44,6 +45,10 @@ class _AppState extends State<App>
     with WidgetsBindingObserver, UsbPrinterLifecycleMixin {
   // Stream controller for showing the lock screen
   final StreamController<bool> _showLockScreenStream = StreamController();
+  final _presentationRouteObserver = PresentationRouteObserver({
+    MainCustomerDisplay.routeName,
+    CustomerShowReceipt.routeName,
+  });
   Locale deviceLocale = window.locale;
   String localeDevice = '';
   bool _isAppJustStarted = true;
@@ -335,6 +340,7 @@ class _AppState extends State<App>
             child: MaterialApp(
               scaffoldMessengerKey: scaffoldMessengerKey,
               navigatorKey: navigatorKey,
+              navigatorObservers: [_presentationRouteObserver],
               title: 'Mysztech Pos',
               localizationsDelegates: context.localizationDelegates,
               supportedLocales: context.supportedLocales,
@@ -274,6 +274,10 @@ class OtherPrinterManager {
         _usbSubscription = eventChannel.receiveBroadcastStream().listen(
           (event) {
             final map = Map<String, dynamic>.from(event);
+            // Print progress and job events do not describe a device
+            if (map['event'] == 'print_progress' || map['event'] == 'print_job') {
+              return;
+            }
             _updateOrAddPrinter(
               PrinterModel(
                 vendorId: map['vendorId'].toString(),
@@ -37,14 +37,55 @@ class MethodChannelFlutterThermalPrinter extends FlutterThermalPrinterPlatform {
     Uint8List data, {
     String? path,
   }) async {
-    return await methodChannel.invokeMethod('printText', {
+    // Uint8List crosses the codec as a single byte[] instead of boxed ints
+    return await methodChannel.invokeMethod('printBytes', {
       "vendorId": device.vendorId.toString(),
       "productId": device.productId.toString(),
-      "data": List<int>.from(data),
+      "data": data,
       "path": path ?? "",
     });
   }
 
+  @override
+  Future<int> enqueuePrint(
+    PrinterModel device,
+    Uint8List data, {
+    String? path,
+  }) async {
+    return await methodChannel.invokeMethod('enqueuePrint', {
+      "vendorId": device.vendorId.toString(),
+      "productId": device.productId.toString(),
+      "data": data,
+      "path": path ?? "",
+    });
+  }
+
+  @override
+  Future<bool> printImage(
+    PrinterModel device,
+    Uint8List image, {
+    int? paperWidth,
+    String? dither,
+    int? threshold,
+  }) async {
+    return await methodChannel.invokeMethod('printImage', {
+      "vendorId": device.vendorId.toString(),
+      "productId": device.productId.toString(),
+      "data": image,
+      "paperWidth": paperWidth,
+      "dither": dither,
+      "threshold": threshold,
+    });
+  }
+
+  @override
+  Future<Map<String, dynamic>> getSpoolStatus() async {
+    final status = await methodChannel.invokeMapMethod<String, dynamic>(
+      'getSpoolStatus',
+    );
+    return status ?? {};
+  }
+
   @override
   Future<bool> isConnected(PrinterModel device) async {
     return await methodChannel.invokeMethod('isConnected', {
@@ -56,7 +97,7 @@ class MethodChannelFlutterThermalPrinter extends FlutterThermalPrinterPlatform {
   @override
   Future<dynamic> convertImageToGrayscale(Uint8List? value) async {
     return await methodChannel.invokeMethod('convertimage', {
-      "path": List<int>.from(value!),
+      "path": value!,
     });
   }
 
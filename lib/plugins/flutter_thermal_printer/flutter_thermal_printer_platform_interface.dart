@@ -33,6 +33,30 @@ abstract class FlutterThermalPrinterPlatform extends PlatformInterface {
     throw UnimplementedError("printText() has not been implemented.");
   }
 
+  /// Queues a print job and returns its id; the outcome arrives as a
+  /// `print_job` event on the printer event channel.
+  Future<int> enqueuePrint(PrinterModel device, Uint8List data, {String? path}) {
+    throw UnimplementedError("enqueuePrint() has not been implemented.");
+  }
+
+  /// Dithers an encoded image natively and streams it to the printer band by
+  /// band, so printing starts before the whole image is converted.
+  Future<bool> printImage(
+    PrinterModel device,
+    Uint8List image, {
+    int? paperWidth,
+    String? dither,
+    int? threshold,
+  }) {
+    throw UnimplementedError("printImage() has not been implemented.");
+  }
+
+  /// Jobs recorded in the native crash-safe print spool that have not been
+  /// acknowledged yet, with the spool capacity and used bytes.
+  Future<Map<String, dynamic>> getSpoolStatus() {
+    throw UnimplementedError("getSpoolStatus() has not been implemented.");
+  }
+
   Future<bool> isConnected(PrinterModel device) {
     throw UnimplementedError("isConnected() has not been implemented.");
   }
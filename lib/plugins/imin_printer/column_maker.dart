@@ -20,4 +20,10 @@ class ColumnMaker {
       "align": align.index.toString()
     };
   }
+
+  /// Column as [text, width, align, fontSize], the form the native side
+  /// decodes without going through JSON.
+  List<Object> toRow() {
+    return [text, width, align.index, fontSize];
+  }
 }
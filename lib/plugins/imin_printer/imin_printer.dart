@@ -170,6 +170,12 @@ class IminPrinter {
     return IminPrinterPlatform.instance.printColumnsText(cols: cols);
   }
 
+  /// print a whole table, one [ColumnMaker] row per line item, in a single
+  /// call instead of one printColumnsText per row
+  Future<void> printColumnsTable({required List<List<ColumnMaker>> rows}) {
+    return IminPrinterPlatform.instance.printColumnsTable(rows: rows);
+  }
+
   /// set the print and line feed in your printer
   ///
   /// {@tool snippet}
@@ -961,4 +967,78 @@ class IminPrinter {
   Future<String?> getPrintModel() {
     return IminPrinterPlatform.instance.getPrintModel();
   }
+
+  /// Forget cached URL images, e.g. after the store logo was replaced
+  /// under the same URL.
+  Future<void> clearImageCache() {
+    return IminPrinterPlatform.instance.clearImageCache();
+  }
+
+  /// Printer identity and settings in one call: `serialNumber`, `modelName`,
+  /// `firmwareVersion`, `serviceVersion`, `density`, `speed`, `paperType`,
+  /// `codepage` and `encode`. The native side queries them concurrently and
+  /// caches the result until the printer status changes or a setting is
+  /// changed. SDK 2.0 devices only.
+  Future<Map<String, dynamic>> getPrinterInfo() {
+    return IminPrinterPlatform.instance.getPrinterInfo();
+  }
+
+  /// Load on the native executors: `printer` (serial printer commands) and
+  /// `io` (image downloads), each with `queueDepth`, `active`, `submitted`,
+  /// `completed` and `lastWaitMs`/`avgWaitMs`/`maxWaitMs`.
+  Future<Map<String, dynamic>> getExecutorMetrics() {
+    return IminPrinterPlatform.instance.getExecutorMetrics();
+  }
+
+  /// Send receipt commands to the device's iMin SDK (`backend: 'sdk'`) or to
+  /// a raw ESC/POS USB printer (`backend: 'usb'`, identified by [vendorId]
+  /// and [productId], which must already have USB permission). Returns the
+  /// active backend name: `sdk1`, `sdk2` or `escpos_usb`.
+  Future<String?> selectPrinterBackend(String backend,
+      {int? vendorId, int? productId, int? paperWidth, String? charset}) {
+    return IminPrinterPlatform.instance.selectPrinterBackend(backend,
+        vendorId: vendorId,
+        productId: productId,
+        paperWidth: paperWidth,
+        charset: charset);
+  }
+
+  /// Print a whole receipt with one platform channel round trip.
+  ///
+  /// {@tool snippet}
+  ///
+  ///  ```dart
+  ///   final batch = IminPrintBatch()
+  ///     ..add('setAlignment', {'alignment': 1})
+  ///     ..add('printText', {'text': 'Total 12.00\n'})
+  ///     ..add('partialCut');
+  ///   final summary = await iminPrinter.printBatch(batch);
+  /// ```
+  /// {@end-tool}
+  ///
+  /// The summary holds `success`, `executed`, `results` and, when a command
+  /// failed, `error` with its `index`, `method`, `code` and `message`.
+  Future<Map<String, dynamic>> printBatch(
+    IminPrintBatch batch, {
+    bool stopOnError = true,
+    bool useBuffer = true,
+    int? commandTimeout,
+  }) {
+    return IminPrinterPlatform.instance.printBatch(
+      batch.commands,
+      stopOnError: stopOnError,
+      useBuffer: useBuffer,
+      commandTimeout: commandTimeout,
+    );
+  }
+}
+
+/// Ordered list of imin_printer method calls sent with [IminPrinter.printBatch].
+/// Each entry takes the same method name and arguments as the single call.
+class IminPrintBatch {
+  final List<Map<String, dynamic>> commands = [];
+
+  void add(String method, [Map<String, dynamic>? args]) {
+    commands.add(<String, dynamic>{"method": method, "args": args});
+  }
 }
@@ -1,5 +1,4 @@
 import 'dart:async';
-import 'dart:convert';
 
 import 'package:flutter/foundation.dart';
 import 'package:flutter/services.dart';
@@ -182,15 +181,25 @@ class MethodChannelIminPrinter extends IminPrinterPlatform {
 
   @override
   Future<void> printColumnsText({required List<ColumnMaker> cols}) async {
-    final jsonCols = List<Map<String, String>>.from(
-      cols.map<Map<String, String>>((ColumnMaker col) => col.toJson()),
-    );
     Map<String, dynamic> arguments = <String, dynamic>{
-      "cols": json.encode(jsonCols),
+      "cols": cols.map((ColumnMaker col) => col.toRow()).toList(),
     };
     await methodChannel.invokeMethod<void>('printColumnsText', arguments);
   }
 
+  @override
+  Future<void> printColumnsTable({
+    required List<List<ColumnMaker>> rows,
+  }) async {
+    Map<String, dynamic> arguments = <String, dynamic>{
+      "rows": rows
+          .map((List<ColumnMaker> cols) =>
+              cols.map((ColumnMaker col) => col.toRow()).toList())
+          .toList(),
+    };
+    await methodChannel.invokeMethod<void>('printColumnsTable', arguments);
+  }
+
   @override
   Future<void> setBarCodeWidth(int width) async {
     Map<String, dynamic> arguments = <String, dynamic>{"width": width};
@@ -785,11 +794,8 @@ class MethodChannelIminPrinter extends IminPrinterPlatform {
 
   @override
   Future<void> printColumnsString({required List<ColumnMaker> cols}) async {
-    final jsonCols = List<Map<String, String>>.from(
-      cols.map<Map<String, String>>((ColumnMaker col) => col.toJson()),
-    );
     Map<String, dynamic> arguments = <String, dynamic>{
-      "cols": json.encode(jsonCols),
+      "cols": cols.map((ColumnMaker col) => col.toRow()).toList(),
     };
     await methodChannel.invokeMethod<void>('printColumnsString', arguments);
   }
@@ -1007,4 +1013,57 @@ class MethodChannelIminPrinter extends IminPrinterPlatform {
       return 'Unknown Model'; // Return a default value
     }
   }
+
+  @override
+  Future<Map<String, dynamic>> printBatch(
+    List<Map<String, dynamic>> commands, {
+    bool stopOnError = true,
+    bool useBuffer = true,
+    int? commandTimeout,
+  }) async {
+    Map<String, dynamic> arguments = <String, dynamic>{
+      "commands": commands,
+      "stopOnError": stopOnError,
+      "useBuffer": useBuffer,
+      "commandTimeout": commandTimeout,
+    };
+    final summary = await methodChannel.invokeMapMethod<String, dynamic>(
+      'printBatch',
+      arguments,
+    );
+    return summary ?? <String, dynamic>{};
+  }
+
+  @override
+  Future<void> clearImageCache() async {
+    await methodChannel.invokeMethod<void>('clearImageCache');
+  }
+
+  @override
+  Future<Map<String, dynamic>> getPrinterInfo() async {
+    final info = await methodChannel.invokeMapMethod<String, dynamic>(
+      'getPrinterInfo',
+    );
+    return info ?? <String, dynamic>{};
+  }
+
+  @override
+  Future<Map<String, dynamic>> getExecutorMetrics() async {
+    final metrics = await methodChannel.invokeMapMethod<String, dynamic>(
+      'getExecutorMetrics',
+    );
+    return metrics ?? <String, dynamic>{};
+  }
+
+  @override
+  Future<String?> selectPrinterBackend(String backend,
+      {int? vendorId, int? productId, int? paperWidth, String? charset}) {
+    return methodChannel.invokeMethod<String>('selectPrinterBackend', {
+      'backend': backend,
+      'vendorId': vendorId,
+      'productId': productId,
+      'paperWidth': paperWidth,
+      'charset': charset,
+    });
+  }
 }
@@ -88,6 +88,10 @@ abstract class IminPrinterPlatform extends PlatformInterface {
     throw UnimplementedError('printColumnsText() has not been implemented.');
   }
 
+  Future<void> printColumnsTable({required List<List<ColumnMaker>> rows}) {
+    throw UnimplementedError('printColumnsTable() has not been implemented.');
+  }
+
   Future<void> setPageFormat({int? style}) {
     throw UnimplementedError('setPageFormat() has not been implemented.');
   }
@@ -500,4 +504,36 @@ abstract class IminPrinterPlatform extends PlatformInterface {
   Future<String?> getPrintModel() {
     throw UnimplementedError('getUsbPrinterVidPid() has not been implemented.');
   }
+
+  /// Runs [commands] (`{"method": ..., "args": {...}}`) in order with a single
+  /// channel call and returns one summary map.
+  Future<Map<String, dynamic>> printBatch(
+    List<Map<String, dynamic>> commands, {
+    bool stopOnError = true,
+    bool useBuffer = true,
+    int? commandTimeout,
+  }) {
+    throw UnimplementedError('printBatch() has not been implemented.');
+  }
+
+  /// Drops the native cache of downloaded, pre-dithered print images.
+  Future<void> clearImageCache() {
+    throw UnimplementedError('clearImageCache() has not been implemented.');
+  }
+
+  /// Printer identity and settings in one call, see [IminPrinter.getPrinterInfo].
+  Future<Map<String, dynamic>> getPrinterInfo() {
+    throw UnimplementedError('getPrinterInfo() has not been implemented.');
+  }
+
+  /// Queue depth and wait times of the native printer and image executors.
+  Future<Map<String, dynamic>> getExecutorMetrics() {
+    throw UnimplementedError('getExecutorMetrics() has not been implemented.');
+  }
+
+  /// Switch receipt printing between the iMin SDK and a raw USB printer.
+  Future<String?> selectPrinterBackend(String backend,
+      {int? vendorId, int? productId, int? paperWidth, String? charset}) {
+    throw UnimplementedError('selectPrinterBackend() has not been implemented.');
+  }
 }
@@ -7,6 +7,9 @@ class DisplayManager {
   static const MethodChannel _channel = MethodChannel(
     'presentation_displays_plugin',
   );
+  static const EventChannel _displayEventChannel = EventChannel(
+    'com.pos.mts/event_channel',
+  );
 
   //late EventChannel? _displayEventChannel;
   // final _displayEventChannelId = "presentation_displays_plugin_events";
@@ -26,6 +29,18 @@ class DisplayManager {
     return list.map((item) => Display.fromJson(item)).toList();
   }
 
+  /// Debounced display hot-plug events. Each event has `type` (`added`,
+  /// `removed`, `changed` or `reconnected`) and the display's `id`, `flags`,
+  /// `rotation`, `name`, `width`, `height` and `refreshRate`. A display that
+  /// drops and comes back unchanged within the debounce window sends nothing.
+  /// One that comes back under a new id sends `reconnected` with the old id
+  /// in `previousId`; its presentation is shown again on the native side and
+  /// the old id keeps working for [showSecondaryDisplay] and
+  /// [hideSecondaryDisplay].
+  Stream<Map<String, dynamic>> get displayEvents => _displayEventChannel
+      .receiveBroadcastStream()
+      .map((event) => Map<String, dynamic>.from(event as Map));
+
   Future<void> showSecondaryDisplay({
     required String displayId,
     required String routerName,
@@ -108,6 +123,17 @@ class DisplayManager {
     }
   }
 
+  /// Start the engines for [routes] in the background so the first
+  /// [showSecondaryDisplay] for them does not wait for a cold start.
+  /// The routes are remembered and warmed again on the next app start.
+  Future<void> prewarmPresentations(List<String> routes) async {
+    try {
+      await _channel.invokeMethod('prewarmPresentations', {'routes': routes});
+    } catch (e) {
+      prints("Failed to prewarm presentations: $e");
+    }
+  }
+
   Future<String?> getNameById(String index, {String? category}) async {
     List<Display> displays = await getDisplays();
     String? name;
@@ -122,8 +148,46 @@ class DisplayManager {
     return name;
   }
 
-  Future<void> transferDataToPresentation(dynamic data) async {
-    await _channel.invokeMethod('transferDataToPresentation', data);
+  /// Replace the data shown on a presentation. Updates sent within one
+  /// frame are coalesced and only the latest is delivered.
+  /// Goes to [displayId], to every presentation when [broadcast] is set,
+  /// otherwise to the display shown last.
+  Future<void> transferDataToPresentation(
+    dynamic data, {
+    String? displayId,
+    bool broadcast = false,
+  }) async {
+    await _channel.invokeMethod('transferDataToPresentation', {
+      'data': data,
+      'displayId': displayId,
+      'broadcast': broadcast,
+    });
+  }
+
+  /// Update only the given keys of the presentation data, a null value
+  /// removes the key. Cheaper than [transferDataToPresentation] for small
+  /// changes to a large cart. Targets displays like
+  /// [transferDataToPresentation].
+  Future<void> patchPresentationData(
+    Map<String, dynamic> changes, {
+    String? displayId,
+    bool broadcast = false,
+  }) async {
+    await _channel.invokeMethod('patchPresentationData', {
+      'changes': changes,
+      'displayId': displayId,
+      'broadcast': broadcast,
+    });
+  }
+
+  /// Counters of the native data bus: `displays`, `routes` (display id to
+  /// route), `published`, `patches`, `sent`, `encodes`, `coalesced`,
+  /// `deferredFrames`, `inFlight`, `pending`, `bytesSent` and
+  /// `lastPayloadBytes`.
+  Future<Map<String, dynamic>> getDataBusMetrics() async {
+    final metrics =
+        await _channel.invokeMapMethod<String, dynamic>('getDataBusMetrics');
+    return metrics ?? <String, dynamic>{};
   }
 
   // Stream<int?>? get connectedDisplaysChangedStream {
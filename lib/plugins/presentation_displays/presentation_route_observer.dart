@@ -0,0 +1,48 @@
+import 'package:flutter/widgets.dart';
+
+/// Keeps the navigator of a presentation engine at one page per route switch.
+///
+/// The native side switches what a customer display shows by pushing the new
+/// route through the engine's navigation channel, in the same window. Without
+/// this observer every switch would leave the previous page on the stack.
+/// Once the new page has finished its transition, the page under it is
+/// removed when both pages are presentation routes from [routeNames].
+class PresentationRouteObserver extends NavigatorObserver {
+  PresentationRouteObserver(this.routeNames);
+
+  final Set<String> routeNames;
+
+  @override
+  void didPush(Route<dynamic> route, Route<dynamic>? previousRoute) {
+    if (previousRoute == null ||
+        !routeNames.contains(route.settings.name) ||
+        !routeNames.contains(previousRoute.settings.name)) {
+      return;
+    }
+
+    void removePrevious() {
+      if (previousRoute.isActive) {
+        navigator?.removeRoute(previousRoute);
+      }
+    }
+
+    final animation = route is TransitionRoute ? route.animation : null;
+    if (animation == null || animation.isCompleted) {
+      // The navigator is locked during didPush
+      WidgetsBinding.instance.addPostFrameCallback((_) => removePrevious());
+      return;
+    }
+
+    void onStatus(AnimationStatus status) {
+      if (status == AnimationStatus.completed ||
+          status == AnimationStatus.dismissed) {
+        animation.removeStatusListener(onStatus);
+        if (status == AnimationStatus.completed) {
+          removePrevious();
+        }
+      }
+    }
+
+    animation.addStatusListener(onStatus);
+  }
+}
@@ -28,12 +28,19 @@ class SecondaryDisplay extends StatefulWidget {
 }
 
 class _SecondaryDisplayState extends State<SecondaryDisplay> {
-  final _presentationChannel = "presentation_displays_plugin_engine";
-  late MethodChannel? _presentationMethodChannel;
-
   @override
   void initState() {
-    _addListenerForPresentation(widget.callback);
+    final receiver = PresentationDataReceiver.instance;
+    receiver.addListener(_onData);
+    if (receiver.hasData) {
+      // A page pushed in place of another one starts from the data already shown,
+      // given after this frame since the callback usually rebuilds the parent
+      WidgetsBinding.instance.addPostFrameCallback((_) {
+        if (mounted) {
+          widget.callback(receiver.current);
+        }
+      });
+    }
     super.initState();
   }
 
@@ -42,10 +49,93 @@ class _SecondaryDisplayState extends State<SecondaryDisplay> {
     return widget.child;
   }
 
-  _addListenerForPresentation(ArgumentsCallback function) {
-    _presentationMethodChannel = MethodChannel(_presentationChannel);
-    _presentationMethodChannel?.setMethodCallHandler((call) async {
-      function(call.arguments);
-    });
+  void _onData(dynamic arguments) {
+    widget.callback(arguments);
+  }
+
+  @override
+  void dispose() {
+    // Only this page's subscription goes, the page that replaced it keeps receiving
+    PresentationDataReceiver.instance.removeListener(_onData);
+    super.dispose();
+  }
+}
+
+/// Receives the updates sent to this engine by the native PresentationDataBus.
+///
+/// A message channel has a single handler per engine, so it is installed once
+/// for the isolate and every [SecondaryDisplay] subscribes to it. A page removed
+/// after an in-place route switch then never takes the handler away from the
+/// page that replaced it. The merged data lives here too, so a patch always
+/// applies to the whole current data, whichever page is showing.
+class PresentationDataReceiver {
+  PresentationDataReceiver._();
+
+  static final PresentationDataReceiver instance = PresentationDataReceiver._();
+
+  static const _presentationChannel = "presentation_displays_plugin_data";
+
+  final List<ArgumentsCallback> _listeners = [];
+  BasicMessageChannel<ByteData?>? _presentationDataChannel;
+
+  /// Current data, kept here so patches can be merged into it
+  Map<Object?, Object?> _data = {};
+
+  /// Last value given to the listeners, only meaningful once [hasData] is set
+  dynamic _current;
+  bool _hasData = false;
+
+  /// Whether an update has arrived since the engine started
+  bool get hasData => _hasData;
+
+  /// The data as last given to the listeners
+  dynamic get current => _current;
+
+  void addListener(ArgumentsCallback listener) {
+    // Updates arrive as StandardMessageCodec bytes: {"full": bool, "data": ...}
+    _presentationDataChannel ??= BasicMessageChannel<ByteData?>(
+      _presentationChannel,
+      const BinaryCodec(),
+    )..setMessageHandler(_onMessage);
+    _listeners.add(listener);
+  }
+
+  void removeListener(ArgumentsCallback listener) {
+    _listeners.remove(listener);
+  }
+
+  Future<ByteData?> _onMessage(ByteData? bytes) async {
+    final message = const StandardMessageCodec().decodeMessage(bytes)
+        as Map<Object?, Object?>?;
+    if (message == null) {
+      return null;
+    }
+    final data = message['data'];
+    if (message['full'] == true) {
+      if (data is! Map) {
+        _notify(data);
+        return null;
+      }
+      _data = Map<Object?, Object?>.from(data);
+    } else if (data is Map) {
+      data.forEach((key, value) {
+        if (value == null) {
+          _data.remove(key);
+        } else {
+          _data[key] = value;
+        }
+      });
+    }
+    _notify(Map<Object?, Object?>.from(_data));
+    return null;
+  }
+
+  void _notify(dynamic arguments) {
+    _current = arguments;
+    _hasData = true;
+    // A listener may remove itself, e.g. by leaving the page
+    for (final listener in List.of(_listeners)) {
+      listener(arguments);
+    }
   }
 }
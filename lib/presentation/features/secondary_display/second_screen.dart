@@ -5,6 +5,7 @@ import 'package:mts/app/di/service_locator.dart';
 import 'package:mts/core/services/secondary_display_service.dart';
 import 'package:mts/presentation/features/customer_display_preview/main_customer_display.dart';
 import 'package:mts/presentation/features/customer_display_preview/main_customer_display_show_receipt.dart';
+import 'package:mts/plugins/presentation_displays/presentation_route_observer.dart';
 
 class SecondScreen extends StatefulWidget {
   const SecondScreen({super.key});
@@ -16,6 +17,10 @@ class SecondScreen extends StatefulWidget {
 class _SecondScreenState extends State<SecondScreen> {
   final SecondaryDisplayService _showSecondaryDisplayFacade =
       ServiceLocator.get<SecondaryDisplayService>();
+  final _presentationRouteObserver = PresentationRouteObserver({
+    MainCustomerDisplay.routeName,
+    CustomerShowReceipt.routeName,
+  });
 
   @override
   Widget build(BuildContext context) {
@@ -30,6 +35,7 @@ class _SecondScreenState extends State<SecondScreen> {
           locale: context.locale,
           debugShowCheckedModeBanner: false,
           navigatorKey: _showSecondaryDisplayFacade.navigatorKey,
+          navigatorObservers: [_presentationRouteObserver],
           onGenerateRoute: (RouteSettings routeSettings) {
             return MaterialPageRoute<void>(
               settings: routeSettings,
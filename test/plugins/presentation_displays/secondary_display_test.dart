@@ -0,0 +1,88 @@
+import 'package:flutter/material.dart';
+import 'package:flutter/services.dart';
+import 'package:flutter_test/flutter_test.dart';
+import 'package:mts/plugins/presentation_displays/presentation_route_observer.dart';
+import 'package:mts/plugins/presentation_displays/secondary_display.dart';
+
+const _channel = 'presentation_displays_plugin_data';
+
+/// Deliver an update the way the native PresentationDataBus sends it
+Future<void> _send(WidgetTester tester, bool full, Object? data) async {
+  await tester.binding.defaultBinaryMessenger.handlePlatformMessage(
+    _channel,
+    const StandardMessageCodec().encodeMessage({'full': full, 'data': data}),
+    (_) {},
+  );
+  await tester.pump();
+}
+
+/// Customer display page that shows the "total" it was last given
+class _TotalPage extends StatefulWidget {
+  const _TotalPage(this.label);
+
+  final String label;
+
+  @override
+  State<_TotalPage> createState() => _TotalPageState();
+}
+
+class _TotalPageState extends State<_TotalPage> {
+  Map<Object?, Object?> _data = {};
+
+  @override
+  Widget build(BuildContext context) {
+    return SecondaryDisplay(
+      callback: (arguments) => setState(() => _data = arguments),
+      child: Text('${widget.label} ${_data['total'] ?? '-'}'
+          ' ${_data['items'] ?? '-'}'),
+    );
+  }
+}
+
+Widget _app(GlobalKey<NavigatorState> navigatorKey) {
+  return MaterialApp(
+    navigatorKey: navigatorKey,
+    navigatorObservers: [
+      PresentationRouteObserver({'/', '/receipt'}),
+    ],
+    routes: {
+      '/': (_) => const _TotalPage('main'),
+      '/receipt': (_) => const _TotalPage('receipt'),
+    },
+  );
+}
+
+void main() {
+  testWidgets('updates still arrive after an in-place route switch',
+      (tester) async {
+    final navigatorKey = GlobalKey<NavigatorState>();
+    await tester.pumpWidget(_app(navigatorKey));
+    await _send(tester, true, {'total': '1.00', 'items': 1});
+    expect(find.text('main 1.00 1'), findsOneWidget);
+
+    // The native side pushes the new route on the same engine
+    navigatorKey.currentState!.pushNamed('/receipt');
+    await tester.pumpAndSettle();
+    // The observer has removed the old page, disposing its SecondaryDisplay
+    expect(find.textContaining('main'), findsNothing);
+
+    await _send(tester, true, {'total': '9.99', 'items': 3});
+    expect(find.text('receipt 9.99 3'), findsOneWidget);
+
+    // A patch is merged into the whole data, not only the patched keys
+    await _send(tester, false, {'total': '12.50'});
+    expect(find.text('receipt 12.50 3'), findsOneWidget);
+  });
+
+  testWidgets('a page pushed in place starts with the data already shown',
+      (tester) async {
+    final navigatorKey = GlobalKey<NavigatorState>();
+    await tester.pumpWidget(_app(navigatorKey));
+    await _send(tester, true, {'total': '4.20', 'items': 2});
+
+    navigatorKey.currentState!.pushNamed('/receipt');
+    await tester.pumpAndSettle();
+
+    expect(find.text('receipt 4.20 2'), findsOneWidget);
+  });
+}